@@ -0,0 +1,59 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * a result of Journal.listBoots(), with the state of the journal files it was built for:
+ * their disk usage and realtime range. If these are unchanged, so are the boots.
+ * <br>
+ * Unfiltered results are shared between all handles on the same file set, e.g. the handles reopened for
+ * streams, parallel and sharded reads; results with filters depend on the matches, and stay with their handle.
+ * Instances are immutable.
+ *
+ * @author jwilkes
+ * @version $Id: $Id
+ */
+final class BootIndex
+{
+    private static final int SHARED_LIMIT = 64; // file sets; more are unusual, and the map is simply cleared then.
+    private static final Map<String, BootIndex> SHARED = new ConcurrentHashMap<>();
+
+    private final long usage;
+    private final long since;
+    private final long until;
+    private final List<BootInfo> boots;
+
+    BootIndex(final long usage, final long since, final long until, final List<BootInfo> boots)
+        {
+        this.usage = usage;
+        this.since = since;
+        this.until = until;
+        this.boots = boots;
+        }
+
+    // true if the journal files are in the state this index was built for.
+    boolean isFor(final long currentUsage, final long currentSince, final long currentUntil)
+        {
+        return (usage == currentUsage) && (since == currentSince) && (until == currentUntil);
+        }
+
+    List<BootInfo> getBoots()
+        { return boots; }
+
+    // the unfiltered index last built for a file set, see Journal.getFileSet(); null if none.
+    static BootIndex shared(final String fileSet)
+        {
+        return SHARED.get(fileSet);
+        }
+
+    static void share(final String fileSet, final BootIndex index)
+        {
+        if (SHARED.size() >= SHARED_LIMIT)
+            SHARED.clear();
+        SHARED.put(fileSet, index);
+        return;
+        }
+}
+//___EOF___
@@ -0,0 +1,119 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * a boot found in the journal, with the timestamps of its first and its last entry.
+ * Returned by Journal.listBoots(), the equivalent of "journalctl --list-boots".
+ * Instances are immutable.
+ *
+ * @author jwilkes
+ * @version $Id: $Id
+ */
+public final class BootInfo
+{
+    private final UUID bootId;
+    private final int offset;
+    private final long firstRealtime;
+    private final long lastRealtime;
+    private final long firstMonotonic;
+    private final long lastMonotonic;
+
+    BootInfo(final UUID bootId, final int offset, final long firstRealtime, final long lastRealtime, final long firstMonotonic, final long lastMonotonic)
+        {
+        this.bootId = bootId;
+        this.offset = offset;
+        this.firstRealtime = firstRealtime;
+        this.lastRealtime = lastRealtime;
+        this.firstMonotonic = firstMonotonic;
+        this.lastMonotonic = lastMonotonic;
+        }
+
+    // the same boot, at another position in the list.
+    BootInfo withOffset(final int newOffset)
+        {
+        return new BootInfo(bootId, newOffset, firstRealtime, lastRealtime, firstMonotonic, lastMonotonic);
+        }
+
+    /**
+     * the boot ID.
+     *
+     * @return the boot ID, as in the _BOOT_ID field.
+     */
+    public UUID getBootId()
+        { return bootId; }
+
+    /**
+     * the position of the boot, counted the way "journalctl -b" does:
+     * 0 for the latest boot, -1 for the one before, and so on.
+     *
+     * @return the boot offset, 0 or negative
+     */
+    public int getOffset()
+        { return offset; }
+
+    /**
+     * wall-clock time of the first entry of this boot.
+     *
+     * @return microseconds since the epoch
+     */
+    public long getFirstMicroseconds()
+        { return firstRealtime; }
+
+    /**
+     * wall-clock time of the last entry of this boot.
+     *
+     * @return microseconds since the epoch
+     */
+    public long getLastMicroseconds()
+        { return lastRealtime; }
+
+    /**
+     * wall-clock time of the first entry of this boot.
+     *
+     * @return the time as java Instant
+     */
+    public Instant getFirst()
+        { return Instant.ofEpochSecond(firstRealtime/Journal.MILLION, firstRealtime%Journal.MILLION*1000); }
+
+    /**
+     * wall-clock time of the last entry of this boot.
+     *
+     * @return the time as java Instant
+     */
+    public Instant getLast()
+        { return Instant.ofEpochSecond(lastRealtime/Journal.MILLION, lastRealtime%Journal.MILLION*1000); }
+
+    /**
+     * the time range of this boot in the journal.
+     *
+     * @return the wall-clock times of the first and the last entry.
+     */
+    public Period getPeriod()
+        { return new Period(firstRealtime, lastRealtime); }
+
+    /**
+     * time since the start of the boot, of the first entry of this boot.
+     *
+     * @return monotonic timestamp in microseconds
+     */
+    public long getFirstMonotonicMicroseconds()
+        { return firstMonotonic; }
+
+    /**
+     * time since the start of the boot, of the last entry of this boot.
+     *
+     * @return monotonic timestamp in microseconds
+     */
+    public long getLastMonotonicMicroseconds()
+        { return lastMonotonic; }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+        {
+        return offset+" "+bootId+" "+getFirst()+" - "+getLast();
+        }
+}
+//___EOF___
@@ -0,0 +1,93 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import jnr.ffi.Memory;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * a field name, pre-encoded as NUL-terminated C string in native memory.
+ * Reads via a CompiledField pass this memory to libsystemd directly, so the Java String
+ * does not have to be converted on every call.
+ * <br>
+ * Each predefined JournalField has one, created on first use and kept for the lifetime of the JVM.
+ * For other field names, create one with of(String) and keep it for repeated reads.
+ * Instances are immutable, and may be shared between threads and Journal instances.
+ *
+ * @author jwilkes
+ * @version $Id: $Id
+ */
+public final class CompiledField
+{
+    private final String name;
+    private final Pointer nativeName;
+
+    private CompiledField(final String name)
+        {
+        this.name = name;
+        final byte[] encoded = name.getBytes(StandardCharsets.US_ASCII);
+        // the memory is released when this object is garbage collected.
+        this.nativeName = Memory.allocateDirect(Runtime.getSystemRuntime(), encoded.length + 1);
+        nativeName.put(0x00, encoded, 0x00, encoded.length);
+        nativeName.putByte(encoded.length, (byte) 0x00);
+        }
+
+    /**
+     * compile an arbitrary field name.
+     * For predefined field names, this returns the instance of the respective JournalField.
+     *
+     * @param fieldName the field name
+     * @return the compiled field
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException FIELD_NAME_INVALID if the name is not a valid field name
+     */
+    public static CompiledField of(final String fieldName) throws JJournalException
+        {
+        final JournalField predefined = JournalField.find(fieldName);
+        if (predefined != null)
+            return predefined.getCompiledField();
+        Journal.validateFieldName(fieldName);
+        return new CompiledField(fieldName);
+        }
+
+    /**
+     * the compiled form of a predefined field.
+     *
+     * @param field the field
+     * @return the compiled field, shared by all users of the JournalField.
+     */
+    public static CompiledField of(final JournalField field)
+        {
+        return field.getCompiledField();
+        }
+
+    // for JournalField; the name is known to be valid.
+    static CompiledField compile(final String validFieldName)
+        {
+        return new CompiledField(validFieldName);
+        }
+
+    /**
+     * the field name.
+     *
+     * @return the field name as String
+     */
+    public String getName()
+        { return name; }
+
+    // length of the name in bytes; the "FIELD=" header of the data is one more.
+    int getNameLength()
+        { return name.length(); }
+
+    // the NUL-terminated name, for native calls.
+    Pointer getNativeName()
+        { return nativeName; }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+        {
+        return name;
+        }
+}
+//___EOF___
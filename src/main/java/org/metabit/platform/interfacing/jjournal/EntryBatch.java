@@ -0,0 +1,291 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import jnr.ffi.Pointer;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * a batch of journal entries in columnar form, as read by Journal.readBatch().
+ * <br>
+ * Per entry (row), the batch holds the realtime timestamp and the priority in primitive arrays;
+ * per field of the projection (column), the offset and length of the value in one byte array shared by all
+ * values of the batch; and optionally the cursor. No objects are created per entry or field,
+ * which suits analytics code working on whole columns.
+ * <br>
+ * The instance is meant to be reused: each read overwrites the previous contents, and the arrays only grow.
+ * Values are stored without the "FIELD=" header, and are subject to the data threshold of the journal handle.
+ *
+ * @author jwilkes
+ * @version $Id: $Id
+ */
+public final class EntryBatch
+{
+    /** priority of entries without a (valid) PRIORITY field. */
+    public static final byte NO_PRIORITY = -1;
+    /** length of values the entry does not have. */
+    public static final int ABSENT = -1;
+
+    private static final int INITIAL_ARENA_SIZE = 16384;
+
+    private final boolean withCursors;
+    private FieldProjection projection;
+    private CompiledField[] fields = new CompiledField[0x00];
+    private int priorityColumn; // column of PRIORITY in the projection; -1 if it is read separately
+    private int size;
+    private int capacity;
+    private long[] realtime = new long[0x00];
+    private byte[] priority = new byte[0x00];
+    private int[][] valueOffset = new int[0x00][];
+    private int[][] valueLength = new int[0x00][];
+    private String[] cursors;
+    private byte[] arena = new byte[INITIAL_ARENA_SIZE];
+    private int arenaUsed;
+    private Charset charset = StandardCharsets.UTF_8;
+
+    /**
+     * create an empty batch, without cursors.
+     */
+    public EntryBatch()
+        {
+        this(false);
+        }
+
+    /**
+     * create an empty batch.
+     *
+     * @param withCursors true to store the cursor of each entry as well. This costs a String per entry.
+     */
+    public EntryBatch(final boolean withCursors)
+        {
+        this.withCursors = withCursors;
+        this.cursors = new String[0x00];
+        }
+
+    /**
+     * number of entries in the batch.
+     *
+     * @return the row count; 0 after a read at the end of the journal.
+     */
+    public int size()
+        { return size; }
+
+    /**
+     * the projection of the last read.
+     *
+     * @return the fields, in column order; null before the first read.
+     */
+    public FieldProjection getProjection()
+        { return projection; }
+
+    /**
+     * whether cursors are stored.
+     *
+     * @return true if getCursor() is available.
+     */
+    public boolean hasCursors()
+        { return withCursors; }
+
+    //--- rows
+
+    /**
+     * realtime timestamp of an entry.
+     *
+     * @param row 0 to size()-1
+     * @return microseconds since the epoch
+     */
+    public long getTimestampAsMicrosecondsLong(final int row)
+        {
+        checkRow(row);
+        return realtime[row];
+        }
+
+    /**
+     * syslog priority of an entry, 0 (emergency) to 7 (debug).
+     *
+     * @param row 0 to size()-1
+     * @return the priority, or NO_PRIORITY.
+     */
+    public byte getPriority(final int row)
+        {
+        checkRow(row);
+        return priority[row];
+        }
+
+    /**
+     * cursor of an entry.
+     *
+     * @param row 0 to size()-1
+     * @return the cursor, as from Journal.getCursorRaw().
+     * @throws java.lang.IllegalStateException if the batch was created without cursors.
+     */
+    public String getCursor(final int row)
+        {
+        if (!withCursors)
+            throw new IllegalStateException("batch created without cursors");
+        checkRow(row);
+        return cursors[row];
+        }
+
+    /**
+     * whether an entry has a value for a field.
+     *
+     * @param column index of the field in the projection
+     * @param row    0 to size()-1
+     * @return true if the entry contains the field.
+     */
+    public boolean hasValue(final int column, final int row)
+        {
+        checkRow(row);
+        return valueLength[column][row] != ABSENT;
+        }
+
+    /**
+     * value of a field, as String.
+     *
+     * @param column index of the field in the projection
+     * @param row    0 to size()-1
+     * @return the field contents, or null if the entry does not contain the field.
+     */
+    public String getValueAsString(final int column, final int row)
+        {
+        checkRow(row);
+        final int length = valueLength[column][row];
+        return (length == ABSENT) ? null : new String(arena, valueOffset[column][row], length, charset);
+        }
+
+    //--- columns, for processing without copies or Strings. Only valid until the next read; do not modify.
+
+    /**
+     * the realtime timestamps; entries 0 to size()-1 are valid.
+     *
+     * @return the column array
+     */
+    public long[] getTimestamps()
+        { return realtime; }
+
+    /**
+     * the priorities; entries 0 to size()-1 are valid, NO_PRIORITY where there is none.
+     *
+     * @return the column array
+     */
+    public byte[] getPriorities()
+        { return priority; }
+
+    /**
+     * where the values of a field start within getRawData().
+     *
+     * @param column index of the field in the projection
+     * @return the column array; entries 0 to size()-1 are valid.
+     */
+    public int[] getValueOffsets(final int column)
+        { return valueOffset[column]; }
+
+    /**
+     * the lengths of the values of a field within getRawData(); ABSENT where the entry does not contain the field.
+     *
+     * @param column index of the field in the projection
+     * @return the column array; entries 0 to size()-1 are valid.
+     */
+    public int[] getValueLengths(final int column)
+        { return valueLength[column]; }
+
+    /**
+     * the storage all values of the batch are kept in.
+     *
+     * @return the byte array backing this batch
+     */
+    public byte[] getRawData()
+        { return arena; }
+
+    //--- filling, by Journal.
+
+    // the fields to read, compiled; kept as long as the same projection is used.
+    CompiledField[] getFields()
+        { return fields; }
+
+    int getPriorityColumn()
+        { return priorityColumn; }
+
+    // prepare for a read of up to maxEntries rows.
+    void reset(final FieldProjection newProjection, final int maxEntries, final Charset newCharset)
+        {
+        if (newProjection != projection)
+            {
+            projection = newProjection;
+            fields = new CompiledField[newProjection.size()];
+            priorityColumn = -1;
+            for (int i = 0; i < fields.length; i++)
+                {
+                fields[i] = CompiledField.of(newProjection.getFieldName(i)); // validated by the projection
+                if (fields[i] == JournalField.PRIORITY.getCompiledField())
+                    priorityColumn = i;
+                }
+            valueOffset = new int[fields.length][capacity];
+            valueLength = new int[fields.length][capacity];
+            }
+        if (maxEntries > capacity)
+            {
+            capacity = maxEntries;
+            realtime = Arrays.copyOf(realtime, capacity);
+            priority = Arrays.copyOf(priority, capacity);
+            for (int i = 0; i < fields.length; i++)
+                {
+                valueOffset[i] = Arrays.copyOf(valueOffset[i], capacity);
+                valueLength[i] = Arrays.copyOf(valueLength[i], capacity);
+                }
+            if (withCursors)
+                cursors = Arrays.copyOf(cursors, capacity);
+            }
+        charset = newCharset;
+        size = 0x00;
+        arenaUsed = 0x00;
+        return;
+        }
+
+    void setRow(final int row, final long realtimeUsec, final String cursor)
+        {
+        realtime[row] = realtimeUsec;
+        priority[row] = NO_PRIORITY;
+        if (withCursors)
+            cursors[row] = cursor;
+        size = row + 1;
+        return;
+        }
+
+    void setAbsent(final int column, final int row)
+        {
+        valueOffset[column][row] = arenaUsed;
+        valueLength[column][row] = ABSENT;
+        return;
+        }
+
+    // copy a value from native memory; also sets the priority, for the PRIORITY column.
+    void setValue(final int column, final int row, final Pointer memory, final long address, final int length)
+        {
+        if (arenaUsed + length > arena.length)
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaUsed + length));
+        memory.get(address, arena, arenaUsed, length);
+        valueOffset[column][row] = arenaUsed;
+        valueLength[column][row] = length;
+        arenaUsed += length;
+        if (column == priorityColumn)
+            setPriority(row, (length == 1) ? arena[arenaUsed - 1] : 0x00);
+        return;
+        }
+
+    // the priority from the single digit of a PRIORITY value.
+    void setPriority(final int row, final byte digit)
+        {
+        priority[row] = ((digit >= '0') && (digit <= '7')) ? (byte) (digit - '0') : NO_PRIORITY;
+        return;
+        }
+
+    private void checkRow(final int row)
+        {
+        if ((row < 0x00) || (row >= size))
+            throw new IndexOutOfBoundsException("row " + row + " of " + size);
+        }
+}
+//___EOF___
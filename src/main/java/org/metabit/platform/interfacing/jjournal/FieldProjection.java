@@ -0,0 +1,143 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * an immutable selection of journal fields, for reads which need only some fields of each entry.
+ * Create once, use for any number of reads; the field names are kept in their encoded form,
+ * so matching against raw journal data needs no String operations.
+ *
+ * @author jwilkes
+ * @version $Id: $Id
+ */
+public final class FieldProjection
+{
+    private final String[] names;
+    private final byte[][] encodedNames; // ASCII, without the '=' separator
+    private final int maxNameLength;
+
+    private FieldProjection(final String[] names)
+        {
+        this.names = names;
+        this.encodedNames = new byte[names.length][];
+        int max = 0;
+        for (int i = 0; i < names.length; i++)
+            {
+            encodedNames[i] = names[i].getBytes(StandardCharsets.US_ASCII);
+            max = Math.max(max, encodedNames[i].length);
+            }
+        this.maxNameLength = max;
+        }
+
+    /**
+     * projection on predefined fields.
+     *
+     * @param fields the fields to select
+     * @return the projection
+     */
+    public static FieldProjection of(final JournalField... fields)
+        {
+        final String[] names = new String[fields.length];
+        for (int i = 0; i < fields.length; i++)
+            names[i] = fields[i].getValue();
+        return new FieldProjection(names);
+        }
+
+    /**
+     * projection on arbitrary field names.
+     *
+     * @param fieldNames the field names to select
+     * @return the projection
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException FIELD_NAME_INVALID if one of the names is not a valid field name
+     */
+    public static FieldProjection of(final String... fieldNames) throws JJournalException
+        {
+        for (String fieldName : fieldNames)
+            Journal.validateFieldName(fieldName);
+        return new FieldProjection(Arrays.copyOf(fieldNames, fieldNames.length));
+        }
+
+    /**
+     * projection on arbitrary field names.
+     *
+     * @param fieldNames the field names to select
+     * @return the projection
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException FIELD_NAME_INVALID if one of the names is not a valid field name
+     */
+    public static FieldProjection of(final List<String> fieldNames) throws JJournalException
+        {
+        return of(fieldNames.toArray(new String[0]));
+        }
+
+    /**
+     * number of fields in this projection.
+     *
+     * @return the number of fields
+     */
+    public int size()
+        { return names.length; }
+
+    /**
+     * field name at a given position.
+     *
+     * @param index position within the projection, 0 to size()-1
+     * @return the field name
+     */
+    public String getFieldName(final int index)
+        { return names[index]; }
+
+    /**
+     * position of a field name within the projection.
+     *
+     * @param fieldName the name to look for
+     * @return its index, or -1 if the field is not part of the projection.
+     */
+    public int indexOf(final String fieldName)
+        {
+        for (int i = 0; i < names.length; i++)
+            {
+            if (names[i].equals(fieldName))
+                return i;
+            }
+        return -1;
+        }
+
+    // length of the longest name, used to limit how much of the raw data is needed to match it.
+    int getMaxNameLength()
+        { return maxNameLength; }
+
+    // encoded name, for building native arguments.
+    byte[] getEncodedName(final int index)
+        { return encodedNames[index]; }
+
+    /*
+     * match raw journal data of the form "FIELD=value" against the projection.
+     * @return the index of the matching field, or -1 if the data is not one of the projected fields.
+     */
+    int match(final byte[] data, final int offset, final int length)
+        {
+        for (int i = 0; i < encodedNames.length; i++)
+            {
+            final byte[] name = encodedNames[i];
+            if ((length > name.length) && (data[offset + name.length] == '='))
+                {
+                int k = 0;
+                while ((k < name.length) && (data[offset + k] == name[k]))
+                    k++;
+                if (k == name.length)
+                    return i;
+                }
+            }
+        return -1;
+        }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+        {
+        return Arrays.toString(names);
+        }
+}
+//___EOF___
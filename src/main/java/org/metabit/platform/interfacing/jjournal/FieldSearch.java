@@ -0,0 +1,805 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import com.kenai.jffi.MemoryIO;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * an immutable search over raw field bytes, e.g. a grep over MESSAGE, without decoding Strings.
+ * <br>
+ * Two kinds: several substrings at once (forSubstrings()), reporting whether any of them occurs; and a regular
+ * expression (forRegex()), compiled to a DFA, reporting whether it matches anywhere in the value.
+ * Searches run directly on the native memory of a FieldView, or on byte arrays such as EntryBatch.getRawData(),
+ * so only the hits need decoding. Instances are thread-safe.
+ * <br>
+ * The substring search scans eight bytes per step for the first bytes of the needles (SWAR: a word-wide compare
+ * in a long), and verifies candidates bytewise. With many distinct first bytes, or with the system property
+ * org.metabit.jjournal.search=scalar, it scans byte by byte with a lookup table instead.
+ * <br>
+ * The regular expressions are a subset, matched on UTF-8 bytes: literals, '.', classes like [a-z0-9_] and [^...]
+ * (ASCII members only), \d \w \s \D \W \S, escapes of special characters, groups, '|', '*', '+', '?',
+ * and '^' and '$' at the start and end of the pattern. There are no backreferences, lookaround, or bounded
+ * repetition; matching is case-sensitive. The cost is one table step per byte, independent of the pattern.
+ *
+ * @author jwilkes
+ * @version $Id: $Id
+ */
+public final class FieldSearch
+{
+    /** system property to choose the substring scan: "swar" (default) or "scalar". */
+    static final String SEARCH_PROPERTY = "org.metabit.jjournal.search";
+    private static final boolean WORD_SCAN = !"scalar".equals(System.getProperty(SEARCH_PROPERTY));
+    private static final int MAX_WORD_SCAN_BYTES = 4; // distinct first bytes worth comparing word-wide
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGHS = 0x8080808080808080L;
+    private static final boolean NATIVE_LITTLE_ENDIAN = (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN);
+    private static final MemoryIO IO = MemoryIO.getInstance();
+    private static final int MAX_DFA_STATES = 4096;
+
+    private final String description;
+    // substrings
+    private final byte[][][] needlesByFirstByte; // null for a regex
+    private final long[] firstByteWords;          // first bytes, repeated over a long; null to scan bytewise
+    private final int minimumLength;
+    // regex
+    private final int[] transitions;              // [state * 256 + byte]; state 0 is dead
+    private final boolean[] accepting;
+    private final int startState;
+    private final boolean anchoredAtEnd;
+
+    private FieldSearch(final String description, final byte[][] needles)
+        {
+        this.description = description;
+        this.needlesByFirstByte = new byte[256][][];
+        int minimum = Integer.MAX_VALUE;
+        final Set<Integer> firstBytes = new LinkedHashSet<>();
+        for (byte[] needle : needles)
+            {
+            minimum = Math.min(minimum, needle.length);
+            if (needle.length == 0x00)
+                continue;
+            final int first = needle[0x00] & 0xFF;
+            firstBytes.add(first);
+            final byte[][] group = needlesByFirstByte[first];
+            needlesByFirstByte[first] = (group == null) ? new byte[][] { needle } : append(group, needle);
+            }
+        this.minimumLength = minimum;
+        if (WORD_SCAN && (firstBytes.size() <= MAX_WORD_SCAN_BYTES))
+            {
+            firstByteWords = new long[firstBytes.size()];
+            int i = 0x00;
+            for (int first : firstBytes)
+                firstByteWords[i++] = ONES * first;
+            }
+        else
+            firstByteWords = null;
+        this.transitions = null;
+        this.accepting = null;
+        this.startState = 0x00;
+        this.anchoredAtEnd = false;
+        }
+
+    private FieldSearch(final String description, final int[] transitions, final boolean[] accepting, final int startState, final boolean anchoredAtEnd)
+        {
+        this.description = description;
+        this.needlesByFirstByte = null;
+        this.firstByteWords = null;
+        this.minimumLength = 0x00;
+        this.transitions = transitions;
+        this.accepting = accepting;
+        this.startState = startState;
+        this.anchoredAtEnd = anchoredAtEnd;
+        }
+
+    /**
+     * a search for several substrings at once.
+     *
+     * @param needles the texts to look for, encoded in UTF-8; at least one. An empty needle matches every value.
+     * @return the search; it matches values containing any of the needles.
+     * @throws java.lang.IllegalArgumentException if no needle is given.
+     */
+    public static FieldSearch forSubstrings(final String... needles)
+        {
+        if (needles.length == 0x00)
+            throw new IllegalArgumentException("at least one needle required");
+        final byte[][] encoded = new byte[needles.length][];
+        for (int i = 0; i < needles.length; i++)
+            encoded[i] = needles[i].getBytes(StandardCharsets.UTF_8);
+        return new FieldSearch("*" + String.join("*|*", needles) + "*", encoded);
+        }
+
+    /**
+     * a search for a regular expression, anywhere in the value; see the class description for the syntax supported.
+     *
+     * @param pattern the regular expression
+     * @return the search
+     * @throws java.lang.IllegalArgumentException if the pattern is invalid, uses unsupported syntax, or is too complex.
+     */
+    public static FieldSearch forRegex(final String pattern)
+        {
+        return new RegexCompiler(pattern).compile();
+        }
+
+    /**
+     * search a field value in place.
+     *
+     * @param view a valid view, e.g. from Journal.readFieldView().
+     * @return true if the value matches.
+     */
+    public boolean matches(final FieldView view)
+        {
+        final long address = view.address();
+        final int length = view.length();
+        if (transitions != null)
+            return runDfa(address, length);
+        if (length < minimumLength)
+            return false;
+        if (minimumLength == 0x00)
+            return true;
+        return (firstByteWords != null) ? scanWords(address, length) : scanBytes(address, length);
+        }
+
+    /**
+     * search a range of a byte array, e.g. a value within EntryBatch.getRawData().
+     *
+     * @param data   the array
+     * @param offset where the value starts
+     * @param length length of the value
+     * @return true if the value matches.
+     */
+    public boolean matches(final byte[] data, final int offset, final int length)
+        {
+        if ((offset < 0x00) || (length < 0x00) || (offset + length > data.length))
+            throw new IndexOutOfBoundsException();
+        if (transitions != null)
+            return runDfa(data, offset, length);
+        if (length < minimumLength)
+            return false;
+        if (minimumLength == 0x00)
+            return true;
+        return (firstByteWords != null) ? scanWords(data, offset, length) : scanBytes(data, offset, length);
+        }
+
+    /**
+     * the search, in a readable form.
+     *
+     * @return the needles, or the pattern
+     */
+    @Override
+    public String toString()
+        { return description; }
+
+    //--- substrings, native memory
+
+    private boolean scanWords(final long address, final int length)
+        {
+        final int lastStart = length - minimumLength;
+        int i = 0x00;
+        for (; i + 8 <= length; i += 8)
+            {
+            final long word = IO.getLong(address + i);
+            long candidates = candidates(NATIVE_LITTLE_ENDIAN ? word : Long.reverseBytes(word));
+            while (candidates != 0x00)
+                {
+                final int position = i + (Long.numberOfTrailingZeros(candidates) >>> 3);
+                if (position > lastStart)
+                    return false;
+                if (verify(address, length, position))
+                    return true;
+                candidates &= candidates - 1;
+                }
+            }
+        for (; i <= lastStart; i++)
+            if (verify(address, length, i))
+                return true;
+        return false;
+        }
+
+    private boolean scanBytes(final long address, final int length)
+        {
+        final int lastStart = length - minimumLength;
+        for (int i = 0x00; i <= lastStart; i++)
+            if (verify(address, length, i))
+                return true;
+        return false;
+        }
+
+    private boolean verify(final long address, final int length, final int position)
+        {
+        final byte[][] group = needlesByFirstByte[IO.getByte(address + position) & 0xFF];
+        if (group == null)
+            return false;
+        for (byte[] needle : group)
+            {
+            if (position + needle.length > length)
+                continue;
+            int k = 1;
+            while ((k < needle.length) && (IO.getByte(address + position + k) == needle[k]))
+                k++;
+            if (k == needle.length)
+                return true;
+            }
+        return false;
+        }
+
+    //--- substrings, byte arrays
+
+    private boolean scanWords(final byte[] data, final int offset, final int length)
+        {
+        final ByteBuffer words = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        final int lastStart = length - minimumLength;
+        int i = 0x00;
+        for (; i + 8 <= length; i += 8)
+            {
+            long candidates = candidates(words.getLong(offset + i));
+            while (candidates != 0x00)
+                {
+                final int position = i + (Long.numberOfTrailingZeros(candidates) >>> 3);
+                if (position > lastStart)
+                    return false;
+                if (verify(data, offset, length, position))
+                    return true;
+                candidates &= candidates - 1;
+                }
+            }
+        for (; i <= lastStart; i++)
+            if (verify(data, offset, length, i))
+                return true;
+        return false;
+        }
+
+    private boolean scanBytes(final byte[] data, final int offset, final int length)
+        {
+        final int lastStart = length - minimumLength;
+        for (int i = 0x00; i <= lastStart; i++)
+            if (verify(data, offset, length, i))
+                return true;
+        return false;
+        }
+
+    private boolean verify(final byte[] data, final int offset, final int length, final int position)
+        {
+        final byte[][] group = needlesByFirstByte[data[offset + position] & 0xFF];
+        if (group == null)
+            return false;
+        for (byte[] needle : group)
+            {
+            if (position + needle.length > length)
+                continue;
+            int k = 1;
+            while ((k < needle.length) && (data[offset + position + k] == needle[k]))
+                k++;
+            if (k == needle.length)
+                return true;
+            }
+        return false;
+        }
+
+    /*
+     * the bytes of a little-endian word equal to one of the first bytes, as the high bit of each such byte.
+     * (x - 0x01..) & ~x & 0x80.. is non-zero in the bytes where x is zero; a borrow may mark bytes above
+     * a zero byte as well, which only adds candidates to verify, and never loses one.
+     */
+    private long candidates(final long word)
+        {
+        long found = 0x00;
+        for (long first : firstByteWords)
+            {
+            final long x = word ^ first;
+            found |= (x - ONES) & ~x & HIGHS;
+            }
+        return found;
+        }
+
+    //--- regex
+
+    private boolean runDfa(final long address, final int length)
+        {
+        int state = startState;
+        if (!anchoredAtEnd && accepting[state])
+            return true;
+        for (int i = 0x00; i < length; i++)
+            {
+            state = transitions[(state << 8) | (IO.getByte(address + i) & 0xFF)];
+            if (state == 0x00)
+                return false;
+            if (!anchoredAtEnd && accepting[state])
+                return true;
+            }
+        return accepting[state];
+        }
+
+    private boolean runDfa(final byte[] data, final int offset, final int length)
+        {
+        int state = startState;
+        if (!anchoredAtEnd && accepting[state])
+            return true;
+        for (int i = 0x00; i < length; i++)
+            {
+            state = transitions[(state << 8) | (data[offset + i] & 0xFF)];
+            if (state == 0x00)
+                return false;
+            if (!anchoredAtEnd && accepting[state])
+                return true;
+            }
+        return accepting[state];
+        }
+
+    private static byte[][] append(final byte[][] array, final byte[] element)
+        {
+        final byte[][] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = element;
+        return result;
+        }
+
+    /*
+     * recursive descent parser to a Thompson NFA over bytes, then subset construction to a DFA.
+     * NFA states: a byte set with one successor, or epsilon edges; the accepting state has neither.
+     */
+    private static final class RegexCompiler
+    {
+        private final String pattern;
+        private final byte[] source; // UTF-8
+        private int position;
+        private final List<boolean[]> byteSets = new ArrayList<>(); // per NFA state; null for epsilon states
+        private final List<int[]> successors = new ArrayList<>();
+
+        RegexCompiler(final String pattern)
+            {
+            this.pattern = pattern;
+            this.source = pattern.getBytes(StandardCharsets.UTF_8);
+            }
+
+        FieldSearch compile()
+            {
+            boolean anchoredAtStart = false;
+            boolean anchoredAtEnd = false;
+            int end = source.length;
+            if ((end > 0x00) && (source[0x00] == '^'))
+                {
+                anchoredAtStart = true;
+                position = 1;
+                }
+            if ((end > position) && (source[end - 1] == '$') && !escaped(end - 1))
+                {
+                anchoredAtEnd = true;
+                end--;
+                }
+            final int accept = newState(null);
+            final int start = parseAlternation(end, accept);
+            if (position != end)
+                throw error("unexpected ')'");
+            return toDfa(start, accept, anchoredAtStart, anchoredAtEnd);
+            }
+
+        //--- parser; each method builds the fragment for its part, leading to "next", and returns its start state.
+
+        private int parseAlternation(final int end, final int next)
+            {
+            final List<Integer> branches = new ArrayList<>();
+            branches.add(parseSequence(end, next));
+            while ((position < end) && (source[position] == '|'))
+                {
+                position++;
+                branches.add(parseSequence(end, next));
+                }
+            if (branches.size() == 1)
+                return branches.get(0x00);
+            final int[] edges = new int[branches.size()];
+            for (int i = 0; i < edges.length; i++)
+                edges[i] = branches.get(i);
+            return newState(null, edges);
+            }
+
+        // a sequence is built back to front, so each item knows its successor.
+        private int parseSequence(final int end, final int next)
+            {
+            final List<int[]> items = new ArrayList<>(); // [start, end) of the source of each item
+            while ((position < end) && (source[position] != '|') && (source[position] != ')'))
+                {
+                final int itemStart = position;
+                skipItem(end);
+                items.add(new int[] { itemStart, position });
+                }
+            final int resume = position;
+            int state = next;
+            for (int i = items.size() - 1; i >= 0x00; i--)
+                {
+                position = items.get(i)[0x00];
+                state = parseRepetition(items.get(i)[1], state);
+                }
+            position = resume;
+            return state;
+            }
+
+        private int parseRepetition(final int end, final int next)
+            {
+            final int atomStart = position;
+            int atomEnd = end;
+            while ((atomEnd > atomStart) && isQuantifier(source[atomEnd - 1]) && !escaped(atomEnd - 1))
+                atomEnd--;
+            if (atomEnd == atomStart)
+                throw error("quantifier without operand");
+            int state = next;
+            // quantifiers apply from the inside out: a+? is (a+)?.
+            if (atomEnd == end)
+                state = parseAtom(atomEnd, state);
+            else
+                state = quantified(atomStart, atomEnd, end, state);
+            position = end;
+            return state;
+            }
+
+        private int quantified(final int atomStart, final int atomEnd, final int end, final int next)
+            {
+            final char quantifier = (char) source[end - 1];
+            final int loop = newState(null); // edges set below
+            switch (quantifier)
+                {
+                case '*':
+                    {
+                    final int body = inner(atomStart, atomEnd, end - 1, loop);
+                    successors.set(loop, new int[] { body, next });
+                    return loop;
+                    }
+                case '+':
+                    {
+                    final int body = inner(atomStart, atomEnd, end - 1, loop);
+                    successors.set(loop, new int[] { body, next });
+                    return body;
+                    }
+                default: // '?'
+                    {
+                    final int body = inner(atomStart, atomEnd, end - 1, next);
+                    successors.set(loop, new int[] { body, next });
+                    return loop;
+                    }
+                }
+            }
+
+        // the operand of a quantifier, which may carry quantifiers itself.
+        private int inner(final int atomStart, final int atomEnd, final int end, final int next)
+            {
+            position = atomStart;
+            return (atomEnd == end) ? parseAtom(atomEnd, next) : quantified(atomStart, atomEnd, end, next);
+            }
+
+        private int parseAtom(final int end, final int next)
+            {
+            final int c = source[position] & 0xFF;
+            if (c == '(')
+                {
+                position++;
+                final int start = parseAlternation(end - 1, next);
+                if ((position != end - 1) || (source[position] != ')'))
+                    throw error("unbalanced '('");
+                position = end;
+                return start;
+                }
+            if (c == '.')
+                {
+                position++;
+                return anyCharacter(next);
+                }
+            if (c == '[')
+                return parseClass(end, next);
+            if (c == '\\')
+                return parseEscape(end, next);
+            if ((c == '^') || (c == '$'))
+                throw error("anchors are supported at the start and end of the pattern only");
+            // a literal character, in its UTF-8 bytes
+            int state = next;
+            for (int i = end - 1; i >= position; i--)
+                state = newState(single(source[i] & 0xFF), state);
+            position = end;
+            return state;
+            }
+
+        private int parseEscape(final int end, final int next)
+            {
+            if (position + 1 >= end)
+                throw error("dangling backslash");
+            final int c = source[position + 1] & 0xFF;
+            position = end;
+            switch (c)
+                {
+                case 'd': return newState(asciiSet("0-9"), next);
+                case 'w': return newState(asciiSet("a-zA-Z0-9_"), next);
+                case 's': return newState(asciiSet(" \t\n\r\f\u000B"), next);
+                case 'D': return negated(asciiSet("0-9"), next);
+                case 'W': return negated(asciiSet("a-zA-Z0-9_"), next);
+                case 'S': return negated(asciiSet(" \t\n\r\f\u000B"), next);
+                case 'n': return newState(single('\n'), next);
+                case 't': return newState(single('\t'), next);
+                default:
+                    if ((c < 0x80) && Character.isLetterOrDigit(c))
+                        throw error("unsupported escape \\" + (char) c);
+                    return newState(single(c), next);
+                }
+            }
+
+        private int parseClass(final int end, final int next)
+            {
+            int i = position + 1;
+            final boolean negate = (i < end) && (source[i] == '^');
+            if (negate)
+                i++;
+            final boolean[] set = new boolean[256];
+            boolean first = true;
+            while ((i < end) && ((source[i] != ']') || first))
+                {
+                first = false;
+                int low = source[i] & 0xFF;
+                if (low == '\\')
+                    {
+                    if (++i >= end)
+                        throw error("dangling backslash");
+                    low = source[i] & 0xFF;
+                    }
+                int high = low;
+                if ((i + 2 < end) && (source[i + 1] == '-') && (source[i + 2] != ']'))
+                    {
+                    high = source[i + 2] & 0xFF;
+                    i += 2;
+                    }
+                if ((low >= 0x80) || (high >= 0x80))
+                    throw error("classes support ASCII members only");
+                if (high < low)
+                    throw error("invalid range in class");
+                for (int b = low; b <= high; b++)
+                    set[b] = true;
+                i++;
+                }
+            if (i >= end)
+                throw error("unbalanced '['");
+            position = end;
+            return negate ? negated(set, next) : newState(set, next);
+            }
+
+        // any character not in an ASCII set: the other ASCII bytes, or any multi-byte character.
+        private int negated(final boolean[] set, final int next)
+            {
+            final boolean[] complement = new boolean[256];
+            for (int b = 0x00; b < 0x80; b++)
+                complement[b] = !set[b];
+            return newState(null, newState(complement, next), multiByteCharacter(next));
+            }
+
+        // any UTF-8 character; on invalid UTF-8, any single byte.
+        private int anyCharacter(final int next)
+            {
+            final boolean[] ascii = new boolean[256];
+            for (int b = 0x00; b < 0x80; b++)
+                ascii[b] = true;
+            return newState(null, newState(ascii, next), multiByteCharacter(next));
+            }
+
+        private int multiByteCharacter(final int next)
+            {
+            final boolean[] continuation = range(0x80, 0xBF);
+            final int one = newState(continuation, next);
+            final int two = newState(continuation, one);
+            final int three = newState(continuation, two);
+            return newState(null, newState(range(0xC0, 0xDF), one), newState(range(0xE0, 0xEF), two), newState(range(0xF0, 0xF7), three));
+            }
+
+        private void skipItem(final int end)
+            {
+            final int c = source[position] & 0xFF;
+            if (c == '(')
+                {
+                int depth = 0x00;
+                do
+                    {
+                    if (source[position] == '\\')
+                        position++;
+                    else if (source[position] == '(')
+                        depth++;
+                    else if (source[position] == ')')
+                        depth--;
+                    else if (source[position] == '[')
+                        skipClass(end);
+                    position++;
+                    }
+                while ((depth > 0x00) && (position < end));
+                if (depth > 0x00)
+                    throw error("unbalanced '('");
+                }
+            else if (c == '[')
+                {
+                skipClass(end);
+                position++;
+                }
+            else if (c == '\\')
+                position += 2;
+            else if (isQuantifier(c))
+                throw error("quantifier without operand");
+            else
+                position += utf8Length(c);
+            while ((position < end) && isQuantifier(source[position]))
+                position++;
+            if (position > end)
+                throw error("incomplete pattern");
+            return;
+            }
+
+        // leaves position on the closing ']'.
+        private void skipClass(final int end)
+            {
+            int i = position + 1;
+            if ((i < end) && (source[i] == '^'))
+                i++;
+            if ((i < end) && (source[i] == ']'))
+                i++;
+            while ((i < end) && (source[i] != ']'))
+                i += (source[i] == '\\') ? 2 : 1;
+            if (i >= end)
+                throw error("unbalanced '['");
+            position = i;
+            return;
+            }
+
+        private boolean escaped(final int index)
+            {
+            int backslashes = 0x00;
+            for (int i = index - 1; (i >= 0x00) && (source[i] == '\\'); i--)
+                backslashes++;
+            return (backslashes & 1) == 1;
+            }
+
+        private static boolean isQuantifier(final int c)
+            { return (c == '*') || (c == '+') || (c == '?'); }
+
+        private static int utf8Length(final int lead)
+            {
+            if (lead >= 0xF0)
+                return 4;
+            if (lead >= 0xE0)
+                return 3;
+            return (lead >= 0xC0) ? 2 : 1;
+            }
+
+        private static boolean[] single(final int b)
+            {
+            final boolean[] set = new boolean[256];
+            set[b] = true;
+            return set;
+            }
+
+        private static boolean[] range(final int low, final int high)
+            {
+            final boolean[] set = new boolean[256];
+            for (int b = low; b <= high; b++)
+                set[b] = true;
+            return set;
+            }
+
+        private static boolean[] asciiSet(final String members)
+            {
+            final boolean[] set = new boolean[256];
+            for (int i = 0; i < members.length(); i++)
+                {
+                if ((i + 2 < members.length()) && (members.charAt(i + 1) == '-'))
+                    {
+                    for (int b = members.charAt(i); b <= members.charAt(i + 2); b++)
+                        set[b] = true;
+                    i += 2;
+                    }
+                else
+                    set[members.charAt(i)] = true;
+                }
+            return set;
+            }
+
+        private int newState(final boolean[] byteSet, final int... edges)
+            {
+            byteSets.add(byteSet);
+            successors.add(edges);
+            return byteSets.size() - 1;
+            }
+
+        private IllegalArgumentException error(final String message)
+            { return new IllegalArgumentException(message + " in regular expression \"" + pattern + "\""); }
+
+        //--- subset construction
+
+        private FieldSearch toDfa(final int start, final int accept, final boolean anchoredAtStart, final boolean anchoredAtEnd)
+            {
+            final Map<String, Integer> known = new HashMap<>();
+            final List<int[]> sets = new ArrayList<>();
+            sets.add(new int[0x00]); // state 0: dead
+            known.put("", 0x00);
+            final int[] startSet = closure(new int[] { start });
+            final int startState = register(startSet, known, sets);
+            int[] table = new int[256 * 16];
+            for (int d = 1; d < sets.size(); d++)
+                {
+                final int[] current = sets.get(d);
+                for (int b = 0x00; b < 256; b++)
+                    {
+                    final List<Integer> targets = new ArrayList<>();
+                    for (int n : current)
+                        {
+                        final boolean[] set = byteSets.get(n);
+                        if ((set != null) && set[b])
+                            targets.add(successors.get(n)[0x00]);
+                        }
+                    if (!anchoredAtStart)
+                        targets.add(start); // a match may start at any byte
+                    final int[] targetArray = new int[targets.size()];
+                    for (int i = 0; i < targetArray.length; i++)
+                        targetArray[i] = targets.get(i);
+                    final int target = register(closure(targetArray), known, sets);
+                    if (sets.size() > MAX_DFA_STATES)
+                        throw error("too complex");
+                    if ((d << 8) + b >= table.length)
+                        table = Arrays.copyOf(table, table.length * 2);
+                    table[(d << 8) | b] = target;
+                    }
+                }
+            final boolean[] accepting = new boolean[sets.size()];
+            for (int d = 1; d < sets.size(); d++)
+                accepting[d] = Arrays.binarySearch(sets.get(d), accept) >= 0x00;
+            return new FieldSearch(pattern, Arrays.copyOf(table, sets.size() << 8), accepting, startState, anchoredAtEnd);
+            }
+
+        private static int register(final int[] set, final Map<String, Integer> known, final List<int[]> sets)
+            {
+            final String key = Arrays.toString(set);
+            Integer index = known.get(key);
+            if (index == null)
+                {
+                index = sets.size();
+                sets.add(set);
+                known.put(key, index);
+                }
+            return index;
+            }
+
+        // the states reachable over epsilon edges, sorted.
+        private int[] closure(final int[] states)
+            {
+            final boolean[] seen = new boolean[byteSets.size()];
+            final int[] stack = new int[byteSets.size()];
+            int top = 0x00;
+            for (int s : states)
+                if (!seen[s])
+                    {
+                    seen[s] = true;
+                    stack[top++] = s;
+                    }
+            while (top > 0x00)
+                {
+                final int s = stack[--top];
+                if (byteSets.get(s) != null)
+                    continue;
+                for (int e : successors.get(s))
+                    if (!seen[e])
+                        {
+                        seen[e] = true;
+                        stack[top++] = e;
+                        }
+                }
+            int count = 0x00;
+            for (boolean b : seen)
+                if (b)
+                    count++;
+            final int[] result = new int[count];
+            int i = 0x00;
+            for (int s = 0x00; s < seen.length; s++)
+                if (seen[s])
+                    result[i++] = s;
+            return result;
+            }
+    }
+}
+//___EOF___
@@ -0,0 +1,201 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import com.kenai.jffi.MemoryIO;
+import jnr.ffi.Pointer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * zero-copy view on a field value, pointing into the read-only memory map of the journal.
+ * Filled by Journal.readFieldView(); the object is meant to be reused for consecutive reads.
+ * <br>
+ * A view is valid only until its Journal moves the cursor, or reads the next field.
+ * With assertions enabled (-ea, e.g. during tests), all accessors check this and fail with an
+ * AssertionError on stale views. Without assertions, access to a stale view is undefined -
+ * it may return unrelated data, or crash the JVM if the memory has been unmapped.
+ * The same holds for ByteBuffers obtained via asByteBuffer(): do not keep them.
+ *
+ * @author jwilkes
+ * @version $Id: $Id
+ */
+public class FieldView
+{
+    private Journal journal;
+    private long valueAddress;
+    private int valueLength;
+    private int generation;
+
+    /**
+     * create an unset view, for use with Journal.readFieldView().
+     */
+    public FieldView()
+        {
+        }
+
+    /**
+     * check whether the view still points to valid data.
+     *
+     * @return true if the Journal has not moved, nor read other data, since the view was set.
+     */
+    public boolean isValid()
+        {
+        return (journal != null) && (journal.getDataGeneration() == generation);
+        }
+
+    /**
+     * length of the field value.
+     *
+     * @return number of bytes, without the FIELD= header.
+     */
+    public int length()
+        {
+        assert isValid() : "stale FieldView";
+        return valueLength;
+        }
+
+    /**
+     * a single byte of the value.
+     *
+     * @param index 0 to length()-1
+     * @return the byte
+     */
+    public byte byteAt(final int index)
+        {
+        assert isValid() : "stale FieldView";
+        if ((index < 0) || (index >= valueLength))
+            throw new IndexOutOfBoundsException();
+        return memory().getByte(valueAddress + index);
+        }
+
+    /**
+     * the value as read-only direct ByteBuffer on the native memory.
+     * The buffer is subject to the same validity limits as the view itself.
+     *
+     * @return a new read-only ByteBuffer object covering the value; the data is not copied.
+     */
+    public ByteBuffer asByteBuffer()
+        {
+        assert isValid() : "stale FieldView";
+        return MemoryIO.getInstance().newDirectByteBuffer(valueAddress, valueLength).asReadOnlyBuffer();
+        }
+
+    /**
+     * copy the value into a byte array.
+     *
+     * @param destination target array; needs length() bytes of space from offset on.
+     * @param offset      where to start in the destination
+     */
+    public void copyTo(final byte[] destination, final int offset)
+        {
+        assert isValid() : "stale FieldView";
+        memory().get(valueAddress, destination, offset, valueLength);
+        return;
+        }
+
+    /**
+     * compare the value with a byte sequence.
+     *
+     * @param other the bytes to compare with
+     * @return true if the value consists of exactly these bytes.
+     */
+    public boolean contentEquals(final byte[] other)
+        {
+        assert isValid() : "stale FieldView";
+        return (other.length == valueLength) && regionMatches(0, other);
+        }
+
+    /**
+     * check whether the value starts with a byte sequence.
+     *
+     * @param prefix the bytes to look for
+     * @return true if the value starts with the prefix.
+     */
+    public boolean startsWith(final byte[] prefix)
+        {
+        assert isValid() : "stale FieldView";
+        return (prefix.length <= valueLength) && regionMatches(0, prefix);
+        }
+
+    /**
+     * find a byte sequence within the value.
+     *
+     * @param needle the bytes to look for
+     * @return offset of the first occurrence, or -1 if not found.
+     */
+    public int indexOf(final byte[] needle)
+        {
+        assert isValid() : "stale FieldView";
+        final Pointer memory = memory();
+        final int last = valueLength - needle.length;
+        if (needle.length == 0)
+            return 0;
+        final byte first = needle[0];
+        for (int i = 0; i <= last; i++)
+            {
+            if ((memory.getByte(valueAddress + i) == first) && regionMatches(i, needle))
+                return i;
+            }
+        return -1;
+        }
+
+    /**
+     * hash of the value, identical to java.util.Arrays.hashCode() on a copy of it.
+     *
+     * @return hash code of the value bytes
+     */
+    public int contentHashCode()
+        {
+        assert isValid() : "stale FieldView";
+        final Pointer memory = memory();
+        int hash = 1;
+        for (int i = 0; i < valueLength; i++)
+            hash = 31 * hash + memory.getByte(valueAddress + i);
+        return hash;
+        }
+
+    /**
+     * the value, decoded as UTF-8 String. This allocates, obviously.
+     *
+     * @return the value as String
+     */
+    @Override
+    public String toString()
+        {
+        assert isValid() : "stale FieldView";
+        final byte[] copy = new byte[valueLength];
+        copyTo(copy, 0x00);
+        return new String(copy, StandardCharsets.UTF_8);
+        }
+
+    //---
+    void set(final Journal journal, final long dataAddress, final int dataLength, final int headerLength, final int generation)
+        {
+        this.journal = journal;
+        this.valueAddress = dataAddress + headerLength;
+        this.valueLength = dataLength - headerLength;
+        this.generation = generation;
+        }
+
+    // where the value starts in native memory; for searches scanning it directly.
+    long address()
+        {
+        assert isValid() : "stale FieldView";
+        return valueAddress;
+        }
+
+    private boolean regionMatches(final int offset, final byte[] bytes)
+        {
+        final Pointer memory = memory();
+        for (int k = 0; k < bytes.length; k++)
+            {
+            if (memory.getByte(valueAddress + offset + k) != bytes[k])
+                return false;
+            }
+        return true;
+        }
+
+    private static Pointer memory()
+        { return Journal.getAbsoluteMemory(); }
+}
+//___EOF___
@@ -0,0 +1,623 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import com.kenai.jffi.CallContext;
+import com.kenai.jffi.CallingConvention;
+import com.kenai.jffi.Invoker;
+import com.kenai.jffi.Library;
+import com.kenai.jffi.MemoryIO;
+import com.kenai.jffi.Type;
+import jnr.ffi.Address;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import jnr.ffi.byref.AddressByReference;
+import jnr.ffi.byref.ByReference;
+import jnr.ffi.byref.IntByReference;
+import jnr.ffi.byref.LongLongByReference;
+import jnr.ffi.byref.PointerByReference;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * NativeJournal written out by hand against jffi, the layer below JNR-FFI.
+ * JNR-FFI generates a stub class for the whole interface at load time, which costs several hundred
+ * milliseconds on startup; this class needs no bytecode generation at all, and binds each symbol
+ * on its first call. It can therefore be archived with AppCDS like any other class.
+ * Select it with -Dorg.metabit.jjournal.backend=jffi.
+ * <br>
+ * The JNR-FFI parameter types of the interface are only used as containers for addresses here.
+ * Pointers passed in must be direct (native) ones, e.g. from Memory.allocateDirect().
+ * Each open journal handle gets native memory for the out-parameters of the by-reference calls,
+ * released when the handle is closed; strings are converted into temporary native memory per call.
+ *
+ * @author jwilkes
+ * @version $Id: $Id
+ */
+final class JffiNativeJournal implements NativeJournal
+{
+    private static final Invoker INVOKER = Invoker.getInstance();
+    private static final MemoryIO IO = MemoryIO.getInstance();
+
+    // native signatures; pointers and size_t/uint64_t are passed as 64 bit values.
+    private static final Type[] HANDLE = {Type.POINTER};
+    private static final Type[] HANDLE_POINTER = {Type.POINTER, Type.POINTER};
+    private static final Type[] HANDLE_POINTER_POINTER = {Type.POINTER, Type.POINTER, Type.POINTER};
+    private static final Type[] HANDLE_LONG = {Type.POINTER, Type.UINT64};
+    // sd_id128_t by value is passed like two uint64_t, see NativeJournal.
+    private static final Type[] HANDLE_ID128_LONG = {Type.POINTER, Type.UINT64, Type.UINT64, Type.UINT64};
+    private static final Type[] HANDLE_ID128_POINTER_POINTER = {Type.POINTER, Type.UINT64, Type.UINT64, Type.POINTER, Type.POINTER};
+    private static final Type[] POINTER_INT = {Type.POINTER, Type.SINT};
+    private static final Type[] POINTER_POINTER_INT = {Type.POINTER, Type.POINTER, Type.SINT};
+
+    private final Library library;
+    private final Runtime runtime = Runtime.getSystemRuntime();
+    private final Map<Long, HandleState> handles = new ConcurrentHashMap<>();
+
+    private final Binding open = new Binding("sd_journal_open", Type.SINT, POINTER_INT);
+    private final Binding openNamespace = new Binding("sd_journal_open_namespace", Type.SINT, POINTER_POINTER_INT);
+    private final Binding openFiles = new Binding("sd_journal_open_files", Type.SINT, POINTER_POINTER_INT);
+    private final Binding openDirectory = new Binding("sd_journal_open_directory", Type.SINT, POINTER_POINTER_INT);
+    private final Binding close = new Binding("sd_journal_close", Type.VOID, HANDLE);
+    private final Binding enumerateFields = new Binding("sd_journal_enumerate_fields", Type.SINT, HANDLE_POINTER);
+    private final Binding restartFields = new Binding("sd_journal_restart_fields", Type.VOID, HANDLE);
+    private final Binding queryUnique = new Binding("sd_journal_query_unique", Type.SINT, HANDLE_POINTER);
+    private final Binding enumerateUnique = new Binding("sd_journal_enumerate_unique", Type.SINT, HANDLE_POINTER_POINTER);
+    private final Binding enumerateAvailableUnique = new Binding("sd_journal_enumerate_available_unique", Type.SINT, HANDLE_POINTER_POINTER);
+    private final Binding restartUnique = new Binding("sd_journal_restart_unique", Type.VOID, HANDLE);
+    private final Binding previous = new Binding("sd_journal_previous", Type.SINT, HANDLE);
+    private final Binding next = new Binding("sd_journal_next", Type.SINT, HANDLE);
+    private final Binding previousSkip = new Binding("sd_journal_previous_skip", Type.SINT, HANDLE_LONG);
+    private final Binding nextSkip = new Binding("sd_journal_next_skip", Type.SINT, HANDLE_LONG);
+    private final Binding seekHead = new Binding("sd_journal_seek_head", Type.SINT, HANDLE);
+    private final Binding seekTail = new Binding("sd_journal_seek_tail", Type.SINT, HANDLE);
+    private final Binding seekCursor = new Binding("sd_journal_seek_cursor", Type.SINT, HANDLE_POINTER);
+    private final Binding getCursor = new Binding("sd_journal_get_cursor", Type.SINT, HANDLE_POINTER);
+    private final Binding testCursor = new Binding("sd_journal_test_cursor", Type.SINT, HANDLE_POINTER);
+    private final Binding free = new Binding("free", Type.VOID, HANDLE); // libc, through libsystemd's dependencies
+    private final Binding getData = new Binding("sd_journal_get_data", Type.SINT, new Type[]{Type.POINTER, Type.POINTER, Type.POINTER, Type.POINTER});
+    private final Binding enumerateData = new Binding("sd_journal_enumerate_data", Type.SINT, HANDLE_POINTER_POINTER);
+    private final Binding enumerateAvailableData = new Binding("sd_journal_enumerate_available_data", Type.SINT, HANDLE_POINTER_POINTER);
+    private final Binding restartData = new Binding("sd_journal_restart_data", Type.VOID, HANDLE);
+    private final Binding getCutoffRealtimeUsec = new Binding("sd_journal_get_cutoff_realtime_usec", Type.SINT, HANDLE_POINTER_POINTER);
+    private final Binding getRealtimeUsec = new Binding("sd_journal_get_realtime_usec", Type.SINT, HANDLE_POINTER);
+    private final Binding seekRealtimeUsec = new Binding("sd_journal_seek_realtime_usec", Type.SINT, HANDLE_LONG);
+    private final Binding getMonotonicUsec = new Binding("sd_journal_get_monotonic_usec", Type.SINT, HANDLE_POINTER_POINTER);
+    private final Binding seekMonotonicUsec = new Binding("sd_journal_seek_monotonic_usec", Type.SINT, HANDLE_ID128_LONG);
+    private final Binding getCutoffMonotonicUsec = new Binding("sd_journal_get_cutoff_monotonic_usec", Type.SINT, HANDLE_ID128_POINTER_POINTER);
+    private final Binding setDataThreshold = new Binding("sd_journal_set_data_threshold", Type.SINT, HANDLE_LONG);
+    private final Binding getDataThreshold = new Binding("sd_journal_get_data_threshold", Type.SINT, HANDLE_POINTER);
+    private final Binding addMatch = new Binding("sd_journal_add_match", Type.SINT, new Type[]{Type.POINTER, Type.POINTER, Type.UINT64});
+    private final Binding addDisjunction = new Binding("sd_journal_add_disjunction", Type.SINT, HANDLE);
+    private final Binding addConjunction = new Binding("sd_journal_add_conjunction", Type.SINT, HANDLE);
+    private final Binding flushMatches = new Binding("sd_journal_flush_matches", Type.VOID, HANDLE);
+    private final Binding getUsage = new Binding("sd_journal_get_usage", Type.SINT, HANDLE_POINTER);
+    private final Binding hasRuntimeFiles = new Binding("sd_journal_has_runtime_files", Type.SINT, HANDLE);
+    private final Binding hasPersistentFiles = new Binding("sd_journal_has_persistent_files", Type.SINT, HANDLE);
+    private final Binding getFd = new Binding("sd_journal_get_fd", Type.SINT, HANDLE);
+    private final Binding getEvents = new Binding("sd_journal_get_events", Type.SINT, HANDLE);
+    private final Binding getTimeout = new Binding("sd_journal_get_timeout", Type.SINT, HANDLE_POINTER);
+    private final Binding process = new Binding("sd_journal_process", Type.SINT, HANDLE);
+    private final Binding waitForChange = new Binding("sd_journal_wait", Type.SINT, HANDLE_LONG);
+    private final Binding reliableFd = new Binding("sd_journal_reliable_fd", Type.SINT, HANDLE);
+
+    private JffiNativeJournal(final Library library)
+        {
+        this.library = library;
+        }
+
+    /*
+     * open the library. Symbols are resolved later, on first use.
+     * @return the interface, or null if the library could not be found.
+     */
+    static JffiNativeJournal load(final String libraryName)
+        {
+        if (com.kenai.jffi.Platform.getPlatform().addressSize() != 64)
+            return null; // size_t is passed as 64 bit value
+        final String fileName = System.mapLibraryName(libraryName);
+        Library library = Library.getCachedInstance(fileName + ".0", Library.LAZY | Library.LOCAL);
+        if (library == null)
+            library = Library.getCachedInstance(fileName, Library.LAZY | Library.LOCAL);
+        return (library == null) ? null : new JffiNativeJournal(library);
+        }
+
+    //--- opening and closing
+
+    @Override
+    public int sd_journal_open(final AddressByReference handle, final int flags)
+        {
+        final long out = IO.allocateMemory(8, true);
+        try
+            {
+            return opened(open.invokeN2(out, flags), out, handle);
+            }
+        finally
+            {
+            IO.freeMemory(out);
+            }
+        }
+
+    @Override
+    public int sd_journal_open_namespace(final AddressByReference handle, final String name_space, final int flags)
+        {
+        final long out = IO.allocateMemory(8, true);
+        final long string = nativeString(name_space);
+        try
+            {
+            return opened(openNamespace.invokeN3(out, string, flags), out, handle);
+            }
+        finally
+            {
+            freeString(string);
+            IO.freeMemory(out);
+            }
+        }
+
+    @Override
+    public int sd_journal_open_files(final AddressByReference journalHandle, final Pointer filenameArray, final int flags)
+        {
+        final long out = IO.allocateMemory(8, true);
+        try
+            {
+            return opened(openFiles.invokeN3(out, address(filenameArray), flags), out, journalHandle);
+            }
+        finally
+            {
+            IO.freeMemory(out);
+            }
+        }
+
+    @Override
+    public int sd_journal_open_directory(final AddressByReference journalHandle, final String absolutePath, final int flags)
+        {
+        final long out = IO.allocateMemory(8, true);
+        final long string = nativeString(absolutePath);
+        try
+            {
+            return opened(openDirectory.invokeN3(out, string, flags), out, journalHandle);
+            }
+        finally
+            {
+            freeString(string);
+            IO.freeMemory(out);
+            }
+        }
+
+    @Override
+    public void sd_journal_close(final Address handle)
+        {
+        final HandleState state = handles.remove(handle.address());
+        if (state != null)
+            IO.freeMemory(state.memory);
+        close.invokeN1(handle.address());
+        return;
+        }
+
+    //--- fields
+
+    @Override
+    public int sd_journal_enumerate_fields(final Address handle, final PointerByReference fieldName)
+        {
+        final HandleState state = state(handle);
+        return state.out(enumerateFields.invokeN2(handle.address(), state.memory), fieldName);
+        }
+
+    @Override
+    public void sd_journal_restart_fields(final Address handle)
+        {
+        restartFields.invokeN1(handle.address());
+        return;
+        }
+
+    @Override
+    public int sd_journal_query_unique(final Address handle, final String field)
+        {
+        final long string = nativeString(field);
+        try
+            {
+            return queryUnique.invokeN2(handle.address(), string);
+            }
+        finally
+            {
+            freeString(string);
+            }
+        }
+
+    @Override
+    public int sd_journal_query_unique(final Address handle, final Pointer field)
+        { return queryUnique.invokeN2(handle.address(), address(field)); }
+
+    @Override
+    public int sd_journal_enumerate_unique(final Address handle, final Pointer data, final Pointer length)
+        { return enumerateUnique.invokeN3(handle.address(), address(data), address(length)); }
+
+    @Override
+    public int sd_journal_enumerate_available_unique(final Address handle, final Pointer data, final Pointer length)
+        { return enumerateAvailableUnique.invokeN3(handle.address(), address(data), address(length)); }
+
+    @Override
+    public void sd_journal_restart_unique(final Address handle)
+        {
+        restartUnique.invokeN1(handle.address());
+        return;
+        }
+
+    //--- movement
+
+    @Override
+    public int sd_journal_previous(final Address handle)
+        { return previous.invokeN1(handle.address()); }
+
+    @Override
+    public int sd_journal_next(final Address handle)
+        { return next.invokeN1(handle.address()); }
+
+    @Override
+    public int sd_journal_previous_skip(final Address handle, final Long skip)
+        { return previousSkip.invokeN2(handle.address(), skip); }
+
+    @Override
+    public int sd_journal_next_skip(final Address handle, final Long skip)
+        { return nextSkip.invokeN2(handle.address(), skip); }
+
+    @Override
+    public int sd_journal_seek_head(final Address handle)
+        { return seekHead.invokeN1(handle.address()); }
+
+    @Override
+    public int sd_journal_seek_tail(final Address handle)
+        { return seekTail.invokeN1(handle.address()); }
+
+    @Override
+    public int sd_journal_seek_cursor(final Address handle, final String cursor)
+        {
+        final long string = nativeString(cursor);
+        try
+            {
+            return seekCursor.invokeN2(handle.address(), string);
+            }
+        finally
+            {
+            freeString(string);
+            }
+        }
+
+    @Override
+    public int sd_journal_get_cursor(final Address handle, final PointerByReference cursorPointerReadOnly)
+        {
+        final HandleState state = state(handle);
+        return state.out(getCursor.invokeN2(handle.address(), state.memory), cursorPointerReadOnly);
+        }
+
+    @Override
+    public int sd_journal_test_cursor(final Address handle, final String cursor)
+        {
+        final long string = nativeString(cursor);
+        try
+            {
+            return testCursor.invokeN2(handle.address(), string);
+            }
+        finally
+            {
+            freeString(string);
+            }
+        }
+
+    @Override
+    public void free(final Pointer ptr)
+        {
+        free.invokeN1(address(ptr));
+        return;
+        }
+
+    @Override
+    public int sd_journal_seek_realtime_usec(final Address handle, final long usec)
+        { return seekRealtimeUsec.invokeN2(handle.address(), usec); }
+
+    @Override
+    public int sd_journal_get_cutoff_realtime_usec(final Address handle, final LongLongByReference from, final LongLongByReference to)
+        {
+        final HandleState state = state(handle);
+        final int r = getCutoffRealtimeUsec.invokeN3(handle.address(), state.memory, state.memory + 8);
+        from.fromNative(runtime, state.view, 0L);
+        to.fromNative(runtime, state.view, 8L);
+        return r;
+        }
+
+    //--- data of the current entry
+
+    @Override
+    public int sd_journal_get_data(final Address handle, final String field, final PointerByReference data, final IntByReference length)
+        {
+        final HandleState state = state(handle);
+        final long string = nativeString(field);
+        try
+            {
+            final int r = getData.invokeN4(handle.address(), string, state.memory, state.memory + 8);
+            data.fromNative(runtime, state.view, 0L);
+            length.fromNative(runtime, state.view, 8L);
+            return r;
+            }
+        finally
+            {
+            freeString(string);
+            }
+        }
+
+    @Override
+    public int sd_journal_get_data(final Address handle, final String field, final Pointer data, final Pointer length)
+        {
+        final long string = nativeString(field);
+        try
+            {
+            return getData.invokeN4(handle.address(), string, address(data), address(length));
+            }
+        finally
+            {
+            freeString(string);
+            }
+        }
+
+    @Override
+    public int sd_journal_get_data(final Address handle, final Pointer field, final Pointer data, final Pointer length)
+        { return getData.invokeN4(handle.address(), address(field), address(data), address(length)); }
+
+    @Override
+    public int sd_journal_enumerate_data(final Address handle, final Pointer data, final Pointer length)
+        { return enumerateData.invokeN3(handle.address(), address(data), address(length)); }
+
+    @Override
+    public int sd_journal_enumerate_available_data(final Address handle, final Pointer data, final Pointer length)
+        { return enumerateAvailableData.invokeN3(handle.address(), address(data), address(length)); }
+
+    @Override
+    public void sd_journal_restart_data(final Address handle)
+        {
+        restartData.invokeN1(handle.address());
+        return;
+        }
+
+    @Override
+    public int sd_journal_get_realtime_usec(final Address handle, final LongLongByReference time)
+        {
+        final HandleState state = state(handle);
+        return state.out(getRealtimeUsec.invokeN2(handle.address(), state.memory), time);
+        }
+
+    @Override
+    public int sd_journal_get_realtime_usec(final Address handle, final Pointer time)
+        { return getRealtimeUsec.invokeN2(handle.address(), address(time)); }
+
+    @Override
+    public int sd_journal_get_monotonic_usec(final Address handle, final Pointer usec, final Pointer bootId)
+        { return getMonotonicUsec.invokeN3(handle.address(), address(usec), address(bootId)); }
+
+    @Override
+    public int sd_journal_seek_monotonic_usec(final Address handle, final long bootIdQword0, final long bootIdQword1, final long usec)
+        { return seekMonotonicUsec.invokeN4(handle.address(), bootIdQword0, bootIdQword1, usec); }
+
+    @Override
+    public int sd_journal_get_cutoff_monotonic_usec(final Address handle, final long bootIdQword0, final long bootIdQword1, final Pointer from, final Pointer to)
+        { return getCutoffMonotonicUsec.invokeN5(handle.address(), bootIdQword0, bootIdQword1, address(from), address(to)); }
+
+    @Override
+    public int sd_journal_set_data_threshold(final Address handle, final long sz)
+        { return setDataThreshold.invokeN2(handle.address(), sz); }
+
+    @Override
+    public int sd_journal_get_data_threshold(final Address handle, final Pointer sz)
+        { return getDataThreshold.invokeN2(handle.address(), address(sz)); }
+
+    //--- filtering
+
+    @Override
+    public int sd_journal_add_match(final Address handle, final ByteBuffer data, final int length)
+        {
+        if (data.isDirect())
+            return addMatch.invokeN3(handle.address(), IO.getDirectBufferAddress(data) + data.position(), length);
+        // the buffer may be on the heap; libsystemd copies the match, so a temporary native copy will do.
+        final long match = IO.allocateMemory(Math.max(length, 1), false);
+        try
+            {
+            for (int i = 0; i < length; i++)
+                IO.putByte(match + i, data.get(data.position() + i));
+            return addMatch.invokeN3(handle.address(), match, length);
+            }
+        finally
+            {
+            IO.freeMemory(match);
+            }
+        }
+
+    @Override
+    public int sd_journal_add_disjunction(final Address handle)
+        { return addDisjunction.invokeN1(handle.address()); }
+
+    @Override
+    public int sd_journal_add_conjunction(final Address handle)
+        { return addConjunction.invokeN1(handle.address()); }
+
+    @Override
+    public void sd_journal_flush_matches(final Address handle)
+        {
+        flushMatches.invokeN1(handle.address());
+        return;
+        }
+
+    //--- journal files
+
+    @Override
+    public int sd_journal_get_usage(final Address handle, final LongLongByReference bytes)
+        {
+        final HandleState state = state(handle);
+        return state.out(getUsage.invokeN2(handle.address(), state.memory), bytes);
+        }
+
+    @Override
+    public int sd_journal_has_runtime_files(final Address handle)
+        { return hasRuntimeFiles.invokeN1(handle.address()); }
+
+    @Override
+    public int sd_journal_has_persistent_files(final Address handle)
+        { return hasPersistentFiles.invokeN1(handle.address()); }
+
+    //--- change notification
+
+    @Override
+    public int sd_journal_get_fd(final Address handle)
+        { return getFd.invokeN1(handle.address()); }
+
+    @Override
+    public int sd_journal_get_events(final Address handle)
+        { return getEvents.invokeN1(handle.address()); }
+
+    @Override
+    public int sd_journal_get_timeout(final Address handle, final Pointer timeoutUsec)
+        { return getTimeout.invokeN2(handle.address(), address(timeoutUsec)); }
+
+    @Override
+    public int sd_journal_process(final Address handle)
+        { return process.invokeN1(handle.address()); }
+
+    @Override
+    public int sd_journal_wait(final Address handle, final long timeoutUsec)
+        { return waitForChange.invokeN2(handle.address(), timeoutUsec); }
+
+    @Override
+    public int sd_journal_reliable_fd(final Address handle)
+        { return reliableFd.invokeN1(handle.address()); }
+
+    //--- helpers
+
+    /*
+     * a native function, resolved on its first call.
+     * Races on first use are harmless: both threads resolve the same symbol, and Bound is immutable.
+     */
+    private final class Binding
+    {
+        private final String symbol;
+        private final Type returnType;
+        private final Type[] parameterTypes;
+        private Bound bound;
+
+        Binding(final String symbol, final Type returnType, final Type[] parameterTypes)
+            {
+            this.symbol = symbol;
+            this.returnType = returnType;
+            this.parameterTypes = parameterTypes;
+            }
+
+        private Bound bind()
+            {
+            Bound b = bound;
+            if (b == null)
+                {
+                final long address = library.getSymbolAddress(symbol);
+                if (address == 0L)
+                    throw new UnsatisfiedLinkError("symbol not found in libsystemd: " + symbol);
+                b = new Bound(CallContext.getCallContext(returnType, parameterTypes, CallingConvention.DEFAULT, false), address);
+                bound = b;
+                }
+            return b;
+            }
+
+        // the int return value is in the low 32 bits.
+        int invokeN1(final long n1)
+            {
+            final Bound b = bind();
+            return (int) INVOKER.invokeN1(b.context, b.address, n1);
+            }
+
+        int invokeN2(final long n1, final long n2)
+            {
+            final Bound b = bind();
+            return (int) INVOKER.invokeN2(b.context, b.address, n1, n2);
+            }
+
+        int invokeN3(final long n1, final long n2, final long n3)
+            {
+            final Bound b = bind();
+            return (int) INVOKER.invokeN3(b.context, b.address, n1, n2, n3);
+            }
+
+        int invokeN4(final long n1, final long n2, final long n3, final long n4)
+            {
+            final Bound b = bind();
+            return (int) INVOKER.invokeN4(b.context, b.address, n1, n2, n3, n4);
+            }
+
+        int invokeN5(final long n1, final long n2, final long n3, final long n4, final long n5)
+            {
+            final Bound b = bind();
+            return (int) INVOKER.invokeN5(b.context, b.address, n1, n2, n3, n4, n5);
+            }
+    }
+
+    private static final class Bound
+    {
+        final CallContext context;
+        final long address;
+
+        Bound(final CallContext context, final long address)
+            {
+            this.context = context;
+            this.address = address;
+            }
+    }
+
+    // per-handle native memory for out-parameters, released on sd_journal_close.
+    private final class HandleState
+    {
+        final long memory = IO.allocateMemory(16, true);
+        final Pointer view = runtime.getMemoryManager().newPointer(memory);
+
+        // hand the first out-parameter to a JNR reference object.
+        int out(final int returnCode, final ByReference<?> reference)
+            {
+            reference.fromNative(runtime, view, 0L);
+            return returnCode;
+            }
+    }
+
+    private HandleState state(final Address handle)
+        {
+        return handles.computeIfAbsent(handle.address(), address -> new HandleState());
+        }
+
+    private int opened(final int returnCode, final long out, final AddressByReference handle)
+        {
+        if (returnCode >= 0)
+            handle.fromNative(runtime, runtime.getMemoryManager().newPointer(out), 0L);
+        return returnCode;
+        }
+
+    private static long address(final Pointer pointer)
+        {
+        if (pointer == null)
+            return 0L;
+        if (!pointer.isDirect())
+            throw new IllegalArgumentException("native memory required");
+        return pointer.address();
+        }
+
+    // NUL-terminated UTF-8 copy in native memory; to be released with freeString().
+    private static long nativeString(final String string)
+        {
+        if (string == null)
+            return 0L;
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        final long memory = IO.allocateMemory(bytes.length + 1, false);
+        IO.putByteArray(memory, bytes, 0, bytes.length);
+        IO.putByte(memory + bytes.length, (byte) 0x00);
+        return memory;
+        }
+
+    private static void freeString(final long memory)
+        {
+        if (memory != 0L)
+            IO.freeMemory(memory);
+        return;
+        }
+}
+//___EOF___
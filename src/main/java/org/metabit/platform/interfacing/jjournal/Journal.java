@@ -10,17 +10,23 @@ package org.metabit.platform.interfacing.jjournal;
 import jnr.ffi.*;
 import jnr.ffi.Runtime;
 import jnr.ffi.byref.*;
+import org.metabit.platform.interfacing.jnrffi.JNRFFI_SD_ID128_T;
 
 import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
+import java.nio.ByteOrder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.temporal.ChronoField;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import static org.metabit.platform.interfacing.jjournal.JJournalException.ErrorCodes.*;
 
 /**
@@ -53,6 +59,13 @@ public class Journal implements AutoCloseable
         journalCharset = StandardCharsets.UTF_8; //@CHECK
         filtersActiveFlag = false;
         journalHandle = new AddressByReference();
+        // native out-parameters for data reads, allocated once per instance.
+        nativeDataPointerOut = Memory.allocateDirect(runtime, runtime.addressSize());
+        nativeDataLengthOut = Memory.allocateDirect(runtime, 8); // size_t, or uint64_t
+        nativeSecondLongOut = Memory.allocateDirect(runtime, 8);
+        nativeBootIdOut = Memory.allocateDirect(runtime, 16); // sd_id128_t
+        nativeBootId = new JNRFFI_SD_ID128_T(runtime);
+        nativeBootId.useMemory(nativeBootIdOut);
         return;
         }
 
@@ -80,6 +93,8 @@ public class Journal implements AutoCloseable
         if (ret != 0x00)
             throw new JJournalException(JJournalException.ErrorCodes.FAILED_TO_OPEN);
         actualJournalHandle = journalHandle.getValue();
+        opener = () -> new Journal(EnumSet.copyOf(flags));
+        fileSet = "open " + flags;
         }
 
     /**
@@ -102,6 +117,8 @@ public class Journal implements AutoCloseable
         if (ret != 0x00)
             throw new JJournalException(JJournalException.ErrorCodes.FAILED_TO_OPEN);
         actualJournalHandle = journalHandle.getValue();
+        opener = () -> new Journal(EnumSet.copyOf(flags));
+        fileSet = "open " + flags;
         return;
         }
 
@@ -134,6 +151,8 @@ public class Journal implements AutoCloseable
         if (ret != 0x00)
             throw new JJournalException(JJournalException.ErrorCodes.FAILED_TO_OPEN);
         actualJournalHandle = journalHandle.getValue();
+        opener = () -> new Journal(namespace, EnumSet.copyOf(flags));
+        fileSet = "namespace " + namespace + " " + flags;
         return;
         }
 
@@ -175,6 +194,8 @@ public class Journal implements AutoCloseable
         if (ret != 0x00)
             throw new JJournalException(JJournalException.ErrorCodes.FAILED_TO_OPEN);
         actualJournalHandle = journalHandle.getValue();
+        opener = () -> new Journal(namespace, EnumSet.copyOf(flags));
+        fileSet = "namespace " + namespace + " " + flags;
         return;
         }
 
@@ -206,6 +227,9 @@ public class Journal implements AutoCloseable
         if (ret != 0x00)
             throw new JJournalException(JJournalException.ErrorCodes.FAILED_TO_OPEN);
         actualJournalHandle = journalHandle.getValue();
+        final List<String> files = new ArrayList<>(filenames);
+        opener = () -> new Journal(files);
+        fileSet = "files " + files;
         return;
         }
 
@@ -240,6 +264,8 @@ public class Journal implements AutoCloseable
         if (ret != 0x00)
             throw new JJournalException(JJournalException.ErrorCodes.FAILED_TO_OPEN);
         actualJournalHandle = journalHandle.getValue();
+        opener = () -> new Journal(directory, flags.toArray(new OpenFlags[0x00]));
+        fileSet = "directory " + absoluteDirectoryPathString + " " + flags;
         return;
         }
 
@@ -280,6 +306,8 @@ public class Journal implements AutoCloseable
         if (ret != 0x00)
             throw new JJournalException(JJournalException.ErrorCodes.FAILED_TO_OPEN);
         actualJournalHandle = journalHandle.getValue();
+        opener = () -> new Journal(directory, flags.toArray(new OpenFlags[0x00]));
+        fileSet = "directory " + absoluteDirectoryPathString + " " + flags;
         return;
         }
      // sd_journal objects cannot be used in the child after a fork. Functions which take a journal object as an argument (sd_journal_next() and others) will return -ECHILD after a fork.
@@ -295,6 +323,7 @@ public class Journal implements AutoCloseable
         if (journalHandle == null)
             return; // ignore invalid state (or log if we have e.g. slf4j activated.)
         libJournal.sd_journal_close(actualJournalHandle);
+        dataGeneration++;
         actualJournalHandle = null;
         //:delete journalHandle;
         journalHandle = null;
@@ -310,6 +339,7 @@ public class Journal implements AutoCloseable
      */
     public void moveToEarliest() throws JJournalException
         {
+        dataGeneration++;
         int r = libJournal.sd_journal_seek_head(actualJournalHandle);
         if (r< 0x00)
             { throw new JJournalException(r); }
@@ -327,6 +357,7 @@ public class Journal implements AutoCloseable
      */
     public boolean moveToNext() throws JJournalException
         {
+        dataGeneration++;
         int r = libJournal.sd_journal_next(actualJournalHandle);
         if (r == 1) // moved
             return true;
@@ -346,6 +377,7 @@ public class Journal implements AutoCloseable
      */
     public boolean moveToPrevious() throws JJournalException
         {
+        dataGeneration++;
         int r = libJournal.sd_journal_previous(actualJournalHandle);
         if (r == 1) // moved
             return true;
@@ -374,6 +406,7 @@ public class Journal implements AutoCloseable
         long diff;
         if (numEntriesToSkip == 0x00)
             return 0x00;
+        dataGeneration++;
         if (numEntriesToSkip > 0x00)
             {
             long r;
@@ -402,6 +435,7 @@ public class Journal implements AutoCloseable
     public void moveToLatest() throws JJournalException
         {
         int r;
+        dataGeneration++;
         r = libJournal.sd_journal_seek_tail(actualJournalHandle);
         if (r< 0x00)
             { throw new JJournalException(r); }
@@ -438,7 +472,61 @@ public class Journal implements AutoCloseable
         r = libJournal.sd_journal_get_cursor(actualJournalHandle, reusablePointerByReference);
         if (r< 0x00)
             { throw new JJournalException(r); }
-        return reusablePointerByReference.getValue().getString(0x00); // getString parameter is the offset.
+        final Pointer cursor = reusablePointerByReference.getValue();
+        try
+            {
+            return cursor.getString(0x00); // getString parameter is the offset.
+            }
+        finally
+            {
+            libJournal.free(cursor); // allocated by libsystemd for the caller
+            }
+        }
+
+    /*
+     * the sequence number of the current entry, taken from the cursor ("s=<sequence ID>;i=<sequence number>;...").
+     * Sequence numbers are comparable only within the same sequence ID, i.e. for entries written by the same journald.
+     * Parsed from native memory, and the cursor freed, so nothing is left behind per entry.
+     * @param sequenceIdOut receives the two halves of the sequence ID
+     */
+    long readSequenceNumber(final long[] sequenceIdOut) throws JJournalException
+        {
+        int r = libJournal.sd_journal_get_cursor(actualJournalHandle, reusablePointerByReference);
+        if (r < 0x00)
+            throw new JJournalException(r);
+        final Pointer cursor = reusablePointerByReference.getValue();
+        try
+            {
+            if ((cursor.getByte(0x00) != 's') || (cursor.getByte(1) != '=') || (cursor.getByte(34) != ';') || (cursor.getByte(35) != 'i') || (cursor.getByte(36) != '='))
+                throw new JJournalException(UNEXPECTED_RETURN_CODE);
+            sequenceIdOut[0x00] = parseHex(cursor, 2, 16);
+            sequenceIdOut[1] = parseHex(cursor, 18, 16);
+            long sequenceNumber = 0x00;
+            for (long offset = 37; ; offset++)
+                {
+                final int digit = Character.digit(cursor.getByte(offset), 16);
+                if (digit < 0x00)
+                    return sequenceNumber;
+                sequenceNumber = (sequenceNumber << 4) | digit;
+                }
+            }
+        finally
+            {
+            libJournal.free(cursor);
+            }
+        }
+
+    private static long parseHex(final Pointer memory, final long offset, final int digits) throws JJournalException
+        {
+        long value = 0x00;
+        for (int i = 0; i < digits; i++)
+            {
+            final int digit = Character.digit(memory.getByte(offset + i), 16);
+            if (digit < 0x00)
+                throw new JJournalException(UNEXPECTED_RETURN_CODE);
+            value = (value << 4) | digit;
+            }
+        return value;
         }
 
     /**
@@ -469,6 +557,7 @@ public class Journal implements AutoCloseable
      */
     public void seekCursorRaw(final String cursorValue) throws JJournalException
         {
+        dataGeneration++;
         int r = libJournal.sd_journal_seek_cursor(actualJournalHandle, cursorValue);
         if (r!= 0x00)
             { throw new JJournalException(r); }
@@ -567,12 +656,188 @@ public class Journal implements AutoCloseable
         }
     //------------------
 
-/* --- ggf. für roberts bedarf ---
-    int sd_journal_enumerate_data(@In AddressByReference handle, @Out PointerByReference data, @Out @size_t IntByReference length);// const void **data, size_t *l  -  not tested yet
-    // the @Out ByReference<size_t> length construct doesn't look that good. fall back only if we have to.
-    int sd_journal_enumerate_available_data(@In AddressByReference handle, @Out  PointerByReference data, @Out @size_t IntByReference length); // const void **data, size_t *l  -  not tested yet
-    void sd_journal_restart_data(@In AddressByReference handle);  // -  not tested yet
-*/
+    /**
+     * read all fields of the current entry in one pass.
+     * This enumerates the entry data natively, instead of one lookup per field name.
+     * Fields which cannot be read (e.g. compressed with an unsupported algorithm) are skipped.
+     *
+     * @param target entry object to fill; previous contents are replaced. Reuse it for consecutive reads.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on errors, e.g. when not on a valid entry.
+     */
+    public void readEntry(final JournalEntry target) throws JJournalException
+        {
+        readEntry(target, null);
+        return;
+        }
+
+    /**
+     * read the fields of the current entry in one pass, optionally limited to a projection.
+     * Fields outside the projection are skipped without being copied.
+     * Values are subject to the data threshold.
+     *
+     * @param target     entry object to fill; previous contents are replaced. Reuse it for consecutive reads.
+     * @param projection the fields to read; null for all fields.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on errors, e.g. when not on a valid entry.
+     */
+    public void readEntry(final JournalEntry target, final FieldProjection projection) throws JJournalException
+        {
+        dataGeneration++;
+        target.clear();
+        target.setCharset(journalCharset);
+        target.setTimestamp(getTimestampAsMicrosecondsLong());
+        // the header is matched on a small prefix copy, so unwanted fields are never copied in full.
+        final byte[] scratch = (projection == null) ? null : reusableHeaderScratch(projection.getMaxNameLength() + 1);
+        libJournal.sd_journal_restart_data(actualJournalHandle);
+        int r;
+        while ((r = libJournal.sd_journal_enumerate_available_data(actualJournalHandle, nativeDataPointerOut, nativeDataLengthOut)) > 0x00)
+            {
+            final long address = nativeDataPointerOut.getAddress(0x00);
+            int length = (int) nativeDataLengthOut.getNativeLong(0x00);
+            if (dataThresholdEnforced && (length > dataThreshold))
+                length = (int) dataThreshold;
+            if (projection == null)
+                {
+                target.append(absoluteMemory, address, length, -1);
+                continue;
+                }
+            final int headerLength = Math.min(length, scratch.length);
+            absoluteMemory.get(address, scratch, 0x00, headerLength);
+            final int index = projection.match(scratch, 0x00, headerLength);
+            if (index >= 0)
+                target.append(absoluteMemory, address, length, projection.getEncodedName(index).length);
+            }
+        if (r < 0x00)
+            throw new JJournalException(r);
+        return;
+        }
+
+    /**
+     * read the next entries into a columnar batch: timestamps, priorities, the values of the projected fields,
+     * and, if the batch was created for it, the cursors.
+     * This works like a loop of moveToNext() and reads; the journal is left on the last entry read,
+     * so the next call continues after it. Each field is read with a single native call per entry,
+     * and no objects are created per entry or field.
+     * Values are subject to the data threshold.
+     *
+     * @param target     batch to fill; previous contents are replaced. Reuse it for consecutive reads.
+     * @param maxEntries maximum number of entries to read
+     * @param projection the fields to read; their values go to the columns in the order of the projection.
+     * @return number of entries read; 0 at the end of the journal.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on severe problems.
+     */
+    public int readBatch(final EntryBatch target, final int maxEntries, final FieldProjection projection) throws JJournalException
+        {
+        if (maxEntries < 0x00)
+            throw new IllegalArgumentException("maxEntries must not be negative");
+        target.reset(projection, maxEntries, journalCharset);
+        final CompiledField[] fields = target.getFields();
+        final boolean readPriority = (target.getPriorityColumn() < 0x00);
+        final CompiledField priorityField = JournalField.PRIORITY.getCompiledField();
+        int row = 0x00;
+        while ((row < maxEntries) && moveToNext())
+            {
+            target.setRow(row, readRealtimeUsec(), target.hasCursors() ? getCursorRaw() : null);
+            for (int column = 0x00; column < fields.length; column++)
+                {
+                final int length = fetchDataIfPresent(fields[column]);
+                if (length < 0x00)
+                    {
+                    target.setAbsent(column, row);
+                    continue;
+                    }
+                final int headerLength = fields[column].getNameLength() + 1;
+                target.setValue(column, row, absoluteMemory, nativeDataPointerOut.getAddress(0x00) + headerLength, Math.max(length - headerLength, 0x00));
+                }
+            if (readPriority && (fetchDataIfPresent(priorityField) == priorityField.getNameLength() + 2))
+                target.setPriority(row, absoluteMemory.getByte(nativeDataPointerOut.getAddress(0x00) + priorityField.getNameLength() + 1));
+            row++;
+            }
+        return row;
+        }
+
+    /**
+     * read the newest entries, like "tail -n": the last count entries matching the active filters,
+     * in chronological order, into a batch.
+     * <br>
+     * This takes a single native skip backwards from the end, and a forward batch read from there;
+     * so the cost depends on the count, not on the size of the journal.
+     * The journal is left on the newest entry read.
+     *
+     * @param target     batch to fill; previous contents are replaced.
+     * @param count      maximum number of entries; fewer if the journal (or the filter) has fewer.
+     * @param projection the fields to read
+     * @return number of entries read
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on severe problems.
+     */
+    public int readLatest(final EntryBatch target, final int count, final FieldProjection projection) throws JJournalException
+        {
+        if (count < 0x00)
+            throw new IllegalArgumentException("count must not be negative");
+        moveToLatest();
+        long available = 0x00;
+        if (count > 0x00)
+            {
+            available = libJournal.sd_journal_previous_skip(actualJournalHandle, (long) count);
+            if (available < 0x00)
+                throw new JJournalException((int) available);
+            // now on the oldest entry to read; step back once more, so the forward read starts with it.
+            if ((available > 0x00) && !moveToPrevious())
+                moveToEarliest();
+            }
+        return readBatch(target, (int) available, projection);
+        }
+
+    /**
+     * read batches on a background thread, ahead of the consumer; with a pool of four batches, without cursors.
+     * See prefetchBatches(FieldProjection, int, int, boolean) for details.
+     *
+     * @param projection the fields to read
+     * @param batchSize  maximum number of entries per batch
+     * @return the reader; close it when done.
+     */
+    public PrefetchingBatchReader prefetchBatches(final FieldProjection projection, final int batchSize)
+        {
+        return prefetchBatches(projection, batchSize, DEFAULT_PREFETCH_POOL_SIZE, false);
+        }
+
+    /**
+     * read batches on a background thread, ahead of the consumer.
+     * <br>
+     * A dedicated thread calls readBatch() from the current position on, into a fixed pool of batches, and hands them
+     * to the iterator returned; batches are recycled when the consumer moves on. So the native reads overlap with the
+     * processing, e.g. encoding, of the entries. Matches and the data threshold apply as set on this handle.
+     * Until the reader is closed, this handle is used by its thread, and must not be used otherwise.
+     *
+     * @param projection  the fields to read
+     * @param batchSize   maximum number of entries per batch
+     * @param poolSize    number of batches, at least 2; all but the one being processed can be read ahead.
+     * @param withCursors true to store the cursors in the batches as well.
+     * @return the reader; close it when done. It is at its end when readBatch() finds no more entries.
+     */
+    public PrefetchingBatchReader prefetchBatches(final FieldProjection projection, final int batchSize, final int poolSize, final boolean withCursors)
+        {
+        return new PrefetchingBatchReader(this, projection, batchSize, poolSize, withCursors);
+        }
+
+    // data read for batches: -1 if the entry does not have the field, instead of an exception. Cut at an enforced threshold.
+    private int fetchDataIfPresent(final CompiledField field) throws JJournalException
+        {
+        dataGeneration++;
+        final int ret = libJournal.sd_journal_get_data(actualJournalHandle, field.getNativeName(), nativeDataPointerOut, nativeDataLengthOut);
+        if (ret == -2) // ENOENT
+            return -1;
+        if (ret != 0x00)
+            throw new JJournalException(ret);
+        final int length = (int) nativeDataLengthOut.getNativeLong(0x00);
+        return (dataThresholdEnforced && (length > dataThreshold)) ? (int) dataThreshold : length;
+        }
+
+    private byte[] reusableHeaderScratch(final int minimumSize)
+        {
+        if ((headerScratch == null) || (headerScratch.length < minimumSize))
+            headerScratch = new byte[Math.max(minimumSize, 64)];
+        return headerScratch;
+        }
 
     //-----------------------------------------------------------------------------------------------------------------
     /**
@@ -583,10 +848,7 @@ public class Journal implements AutoCloseable
      */
     public Instant getTimestampAsInstant() throws JJournalException
         {
-        int r = libJournal.sd_journal_get_realtime_usec (actualJournalHandle, reusableLongLongByReference);
-        if (r != 0x00)
-            throw new JJournalException(r);
-        long usec = reusableLongLongByReference.longValue(); // C/C++ long long maps to Java Long; both are 64 bit in size.
+        final long usec = readRealtimeUsec();
         final long seconds     = usec/Journal.MILLION; // the seconds part.
         final long nanoseconds = usec%Journal.MILLION*1000; // the microseconds, then scaled to nanoseconds
         return Instant.ofEpochSecond(seconds, nanoseconds);
@@ -600,10 +862,16 @@ public class Journal implements AutoCloseable
      */
     public long getTimestampAsMicrosecondsLong() throws JJournalException
         {
-        int r = libJournal.sd_journal_get_realtime_usec (actualJournalHandle, reusableLongLongByReference);
+        return readRealtimeUsec();
+        }
+
+    // the realtime timestamp of the current entry, read through preallocated native memory.
+    private long readRealtimeUsec() throws JJournalException
+        {
+        int r = libJournal.sd_journal_get_realtime_usec(actualJournalHandle, nativeDataLengthOut);
         if (r != 0x00)
             throw new JJournalException(r);
-        return reusableLongLongByReference.longValue();
+        return nativeDataLengthOut.getLongLong(0x00); // uint64_t; fits into a Java long for the next few hundred millennia.
         }
 
     /**
@@ -622,134 +890,365 @@ public class Journal implements AutoCloseable
         LongLongByReference since = new LongLongByReference();
         LongLongByReference until = new LongLongByReference();
         int r = libJournal.sd_journal_get_cutoff_realtime_usec(actualJournalHandle, since, until);
-        if (r != 0x00)
+        // returns 1 on success, 0 if there are no suitable entries.
+        if (r < 0x00)
             throw new JJournalException(r);
+        if (r == 0x00)
+            throw new JJournalException(JOURNAL_HAS_NO_ENTRIES);
         return new Period(since.longValue(), until.longValue());
         }
 
+    //-----------------------------------------------------------------------------------------------------------------
+    /**
+     * read the monotonic timestamp of the current journal entry: its boot ID, and the microseconds since that boot started.
+     * Does not allocate; the target is overwritten.
+     *
+     * @param target the holder to fill
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException if things go wrong (e.g. no valid current entry)
+     */
+    public void readMonotonicTimestamp(final MonotonicTimestamp target) throws JJournalException
+        {
+        int r = libJournal.sd_journal_get_monotonic_usec(actualJournalHandle, nativeDataLengthOut, nativeBootIdOut);
+        if (r < 0x00)
+            throw new JJournalException(r);
+        target.set(qwordToUuidBits(nativeBootId.qwords[0].get()), qwordToUuidBits(nativeBootId.qwords[1].get()), nativeDataLengthOut.getLongLong(0x00));
+        return;
+        }
+
+    /**
+     * move to the first entry of the given boot which was logged at or after the given time since the boot started.
+     * Uses the native indexed seek on the monotonic clock, so neither filtering on _BOOT_ID nor
+     * scanning is needed; changes to the wall clock have no effect on it.
+     * Note this positions absolutely, independent of the current position.
+     *
+     * @param bootId           the boot ID, e.g. from readMonotonicTimestamp() or MonotonicTimestamp.parseBootId()
+     * @param timeSinceBoot    the earliest time since the start of the boot the move may stop at.
+     * @return true if we arrived at a matching entry; false if the journal has no entry of that boot at or after that time.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on severe problems.
+     */
+    public boolean moveToBootTime(final UUID bootId, final Duration timeSinceBoot) throws JJournalException
+        {
+        final long usec = Math.addExact(Math.multiplyExact(timeSinceBoot.getSeconds(), MILLION), timeSinceBoot.getNano()/1000);
+        return moveToBootTime(new MonotonicTimestamp(bootId, usec));
+        }
+
+    /**
+     * move to the first entry of a boot which was logged at or after a monotonic timestamp.
+     * See moveToBootTime(UUID, Duration).
+     *
+     * @param target boot ID and microseconds since the start of that boot
+     * @return true if we arrived at a matching entry; false if the journal has no entry of that boot at or after that time.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on severe problems.
+     */
+    public boolean moveToBootTime(final MonotonicTimestamp target) throws JJournalException
+        {
+        dataGeneration++;
+        int r = libJournal.sd_journal_seek_monotonic_usec(actualJournalHandle,
+                qwordToUuidBits(target.getBootIdMostSignificantBits()), qwordToUuidBits(target.getBootIdLeastSignificantBits()),
+                target.getMicroseconds());
+        if (r < 0x00)
+            throw new JJournalException(r);
+        // settle step: the seek itself does not select an entry.
+        r = libJournal.sd_journal_next(actualJournalHandle);
+        if (r == 0x00)
+            return false;
+        if (r < 0x00)
+            throw new JJournalException(r);
+        // past the end of the boot (or an unknown boot), the seek continues with whatever follows.
+        r = libJournal.sd_journal_get_monotonic_usec(actualJournalHandle, nativeDataLengthOut, nativeBootIdOut);
+        if (r < 0x00)
+            throw new JJournalException(r);
+        return (qwordToUuidBits(nativeBootId.qwords[0].get()) == target.getBootIdMostSignificantBits())
+                && (qwordToUuidBits(nativeBootId.qwords[1].get()) == target.getBootIdLeastSignificantBits())
+                && (Long.compareUnsigned(nativeDataLengthOut.getLongLong(0x00), target.getMicroseconds()) >= 0x00);
+        }
+
+    /**
+     * get the time window of a boot in the journal: the monotonic timestamps of its earliest and its latest entry.
+     * Does not allocate; the targets are overwritten.
+     *
+     * @param bootId the boot ID
+     * @param from   receives the timestamp of the earliest entry of that boot
+     * @param until  receives the timestamp of the latest entry of that boot
+     * @return true on success, false if the journal has no entries of that boot; the targets are unchanged then.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException if things go wrong
+     */
+    public boolean getBootTimeRange(final UUID bootId, final MonotonicTimestamp from, final MonotonicTimestamp until) throws JJournalException
+        {
+        final long high = bootId.getMostSignificantBits();
+        final long low = bootId.getLeastSignificantBits();
+        int r = libJournal.sd_journal_get_cutoff_monotonic_usec(actualJournalHandle, qwordToUuidBits(high), qwordToUuidBits(low), nativeDataLengthOut, nativeSecondLongOut);
+        // returns 1 on success, 0 if there are no entries of that boot.
+        if (r < 0x00)
+            throw new JJournalException(r);
+        if (r == 0x00)
+            return false;
+        from.set(high, low, nativeDataLengthOut.getLongLong(0x00));
+        until.set(high, low, nativeSecondLongOut.getLongLong(0x00));
+        return true;
+        }
+
+    /**
+     * list the boots found in the journal, with the first and last timestamps of each; the equivalent of "journalctl --list-boots".
+     * <br>
+     * The boot IDs are taken from the unique values of the _BOOT_ID field, the boundaries of each boot from
+     * the native monotonic cutoff and seek functions; so the cost depends on the number of boots, not the number of entries.
+     * The result is cached, and returned directly as long as the journal files, their time range and the filters are unchanged.
+     * Without filters, the cache is shared by all handles opened on the same journal files (the same flags, namespace,
+     * directory or file list); so e.g. the handles reopened for parallel reads do not enumerate the boots again.
+     * <br>
+     * With active filters, the boundaries are those of the matching entries; boots without matching entries are left out.
+     * Unless the cached list is returned, the current position in the journal is lost; reposition afterwards.
+     *
+     * @return unmodifiable list of the boots, oldest first.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException if things go wrong
+     */
+    public List<BootInfo> listBoots() throws JJournalException
+        {
+        final long usage = getBytesUsedByJournalFiles();
+        final LongLongByReference since = new LongLongByReference();
+        final LongLongByReference until = new LongLongByReference();
+        int r = libJournal.sd_journal_get_cutoff_realtime_usec(actualJournalHandle, since, until);
+        if (r < 0x00)
+            throw new JJournalException(r);
+        if (r == 0x00)
+            return Collections.emptyList();
+        final BootIndex cached = ((bootIndex == null) && !filtersActiveFlag) ? BootIndex.shared(fileSet) : bootIndex;
+        if ((cached != null) && cached.isFor(usage, since.longValue(), until.longValue()))
+            {
+            bootIndex = cached;
+            return cached.getBoots();
+            }
+
+        dataGeneration++;
+        final List<UUID> bootIds = readUniqueBootIds();
+        final MonotonicTimestamp from = new MonotonicTimestamp();
+        final MonotonicTimestamp to = new MonotonicTimestamp();
+        final List<BootInfo> boots = new ArrayList<>(bootIds.size());
+        for (UUID bootId : bootIds)
+            {
+            if (!getBootTimeRange(bootId, from, to))
+                continue;
+            // the first entry at or after the start, the last one at or before the end; filters may move both inwards.
+            if (!moveToBootTime(from))
+                continue;
+            readMonotonicTimestamp(from);
+            final long firstRealtime = readRealtimeUsec();
+            r = libJournal.sd_journal_seek_monotonic_usec(actualJournalHandle,
+                    qwordToUuidBits(to.getBootIdMostSignificantBits()), qwordToUuidBits(to.getBootIdLeastSignificantBits()),
+                    to.getMicroseconds() + 1);
+            if (r < 0x00)
+                throw new JJournalException(r);
+            r = libJournal.sd_journal_previous(actualJournalHandle);
+            if (r < 0x00)
+                throw new JJournalException(r);
+            readMonotonicTimestamp(to);
+            if ((r == 0x00) || !to.isFromBoot(bootId))
+                continue; // cannot happen once moveToBootTime() found an entry; unless the journal changed meanwhile.
+            boots.add(new BootInfo(bootId, 0x00, firstRealtime, readRealtimeUsec(), from.getMicroseconds(), to.getMicroseconds()));
+            }
+        boots.sort(Comparator.comparingLong(BootInfo::getFirstMicroseconds));
+        for (int i = 0; i < boots.size(); i++)
+            boots.set(i, boots.get(i).withOffset(i - boots.size() + 1));
+        bootIndex = new BootIndex(usage, since.longValue(), until.longValue(), Collections.unmodifiableList(boots));
+        if (!filtersActiveFlag)
+            BootIndex.share(fileSet, bootIndex);
+        return bootIndex.getBoots();
+        }
+
+    // the distinct values of _BOOT_ID, in no particular order. The enumeration ignores filters.
+    private List<UUID> readUniqueBootIds() throws JJournalException
+        {
+        final byte[] value = new byte[32]; // 32 hex digits
+        final List<UUID> bootIds = new ArrayList<>();
+        // a data threshold below the size of the values would cut them.
+        final long handleThreshold = getCachedDataThreshold();
+        final long required = JournalField.BOOT_ID.getCompiledField().getNameLength() + 1 + value.length;
+        final boolean raise = (handleThreshold > 0x00) && (handleThreshold < required);
+        if (raise)
+            libJournal.sd_journal_set_data_threshold(actualJournalHandle, required);
+        try
+            {
+            enumerateUnique(JournalField.BOOT_ID.getCompiledField(), 0x00, view ->
+                {
+                if (view.length() != value.length)
+                    return; // not a boot ID
+                view.copyTo(value, 0x00);
+                try
+                    {
+                    bootIds.add(MonotonicTimestamp.parseBootId(new String(value, StandardCharsets.US_ASCII)));
+                    }
+                catch (IllegalArgumentException notAnId)
+                    {
+                    // skip it; a corrupted entry can't be sought to anyhow.
+                    }
+                return;
+                });
+            }
+        finally
+            {
+            if (raise)
+                libJournal.sd_journal_set_data_threshold(actualJournalHandle, handleThreshold);
+            }
+        return bootIds;
+        }
+
+    // sd_id128_t qwords are the ID bytes in native order; UUID halves are big endian. The conversion is its own inverse.
+    private static long qwordToUuidBits(final long qword)
+        {
+        return NATIVE_LITTLE_ENDIAN ? Long.reverseBytes(qword) : qword;
+        }
+
 
     /**
      * move forward in the journal until a given time is matched.
+     * The target is located with the native indexed seek (sd_journal_seek_realtime_usec),
+     * so the cost does not depend on the distance travelled; the entry-by-entry walk is only used as fallback.
+     * Note this positions absolutely, independent of the current position.
      *
      * @param time the earliest instance the move may stop at.
      * @return true if we arrived at a match, false if we did not (e.g. too late).
      * @throws org.metabit.platform.interfacing.jjournal.JJournalException on severe problems.
-     *
-     * UNTESTED -- TODO: use seek instead, sd_journal_seek_realtime_usec
      */
     public boolean moveForwardUntilTime(final Instant time) throws JJournalException
         {
-        long targetTimeAsLong = (time.getEpochSecond() *Journal.MILLION) + time.getLong(ChronoField.MICRO_OF_SECOND);
-        LongLongByReference reusableLongLongByReference = new LongLongByReference();
-        int r;
-        do
+        dataGeneration++;
+        final long targetTimeAsLong = instantToMicroseconds(time);
+        if (seekRealtimeMicroseconds(targetTimeAsLong))
             {
-            r = libJournal.sd_journal_next(actualJournalHandle);
-            switch (r)
-                {
-                case 1: break; // all OK, as expected
-                case 0x00: return false; // hit end, stop
-                default: throw new JJournalException(r);
-                }
-            r = libJournal.sd_journal_get_realtime_usec(actualJournalHandle, reusableLongLongByReference);
-            if (r != 0x00)
+            // settle step: the seek itself does not select an entry; moving forward selects the first one at or after the target.
+            int r = libJournal.sd_journal_next(actualJournalHandle);
+            if (r == 0x00)
+                return false; // no entry at or after the requested time.
+            if (r < 0x00)
                 throw new JJournalException(r);
-            if ( reusableLongLongByReference.longValue() >=  targetTimeAsLong)
-                return true; // match found!
+            if (getTimestampAsMicrosecondsLong() >= targetTimeAsLong)
+                return true;
+            // timestamps are not ordered here (e.g. clock jumps, interleaved files) - continue walking from this position.
             }
-        while( r == 0x00);
-        return false; // no match found before end.
+        return moveForwardUntilTimeLinear(targetTimeAsLong);
         }
 
     /**
      * move backward in the journal until a given time is matched.
+     * Uses the native indexed seek, see moveForwardUntilTime().
      *
      * @param time the latest instance the move may stop at.
      *             consider moveBackwardUntilEarliestTime if you want the earliest entry
      * @return true if we arrived at a match, false if we did not (e.g. too late).
      * @throws org.metabit.platform.interfacing.jjournal.JJournalException on severe problems.
-     *
-     * UNTESTED -- TODO: use seek instead, sd_journal_seek_realtime_usec
      */
     public boolean moveBackwardUntilLatestTime(final Instant time) throws JJournalException
         {
-        long targetTimeAsLong = (time.getEpochSecond() *Journal.MILLION) + time.getLong(ChronoField.MICRO_OF_SECOND);
-        int r;
-        do
+        dataGeneration++;
+        final long targetTimeAsLong = instantToMicroseconds(time);
+        if (seekRealtimeMicroseconds(targetTimeAsLong))
             {
-            r = libJournal.sd_journal_get_realtime_usec (actualJournalHandle, reusableLongLongByReference);
-            if (r != 0x00)
+            // settle step backwards: the last entry at or before the target.
+            int r = libJournal.sd_journal_previous(actualJournalHandle);
+            if (r == 0x00)
+                return false; // no entry at or before the requested time.
+            if (r < 0x00)
                 throw new JJournalException(r);
-            if ( reusableLongLongByReference.longValue() <=  targetTimeAsLong)
-                return true; // match found!
-            r = libJournal.sd_journal_previous(actualJournalHandle);
+            if (getTimestampAsMicrosecondsLong() <= targetTimeAsLong)
+                return true;
             }
-        while( r > 0x00);
-        return false; // no match found before end.
+        return moveBackwardUntilLatestTimeLinear(targetTimeAsLong);
         }
 
     /**
-     * moveBackwardUntilEarliestTime move to the first
+     * moveBackwardUntilEarliestTime move to the first entry at or after the given time,
+     * that is, the earliest entry which is not before it.
+     * Uses the native indexed seek, see moveForwardUntilTime().
      *
      * @param time the earliest time acceptable
      * @return true if this function could achieve its goal, false if not.
      * @throws org.metabit.platform.interfacing.jjournal.JJournalException if there was an error, e.g. journal access failing.
-     *
-     * UNTESTED
      */
     public boolean moveBackwardUntilEarliestTime(final Instant time) throws JJournalException
         {
-        long targetTimeAsLong = (time.getEpochSecond() *Journal.MILLION) + time.getLong(ChronoField.MICRO_OF_SECOND);
+        dataGeneration++;
+        final long targetTimeAsLong = instantToMicroseconds(time);
+        if (seekRealtimeMicroseconds(targetTimeAsLong))
+            {
+            int r = libJournal.sd_journal_next(actualJournalHandle);
+            if (r == 0x00)
+                return false;
+            if (r < 0x00)
+                throw new JJournalException(r);
+            if (getTimestampAsMicrosecondsLong() >= targetTimeAsLong)
+                return true;
+            }
+        return moveBackwardUntilEarliestTimeLinear(targetTimeAsLong);
+        }
+
+    // seek to a realtime position. false if the native seek refused; the position is unchanged then.
+    private boolean seekRealtimeMicroseconds(final long usec)
+        {
+        return (libJournal.sd_journal_seek_realtime_usec(actualJournalHandle, usec) >= 0x00);
+        }
+
+    //--- linear fallbacks, walking entry by entry from the current position.
+    private boolean moveForwardUntilTimeLinear(final long targetTimeAsLong) throws JJournalException
+        {
         int r;
-        // --- first, find first match exactly as in moveBackwardUntilLatestTime
         do
             {
-            r = libJournal.sd_journal_get_realtime_usec (actualJournalHandle, reusableLongLongByReference);
-            if (r != 0x00)
-                throw new JJournalException(r);
-            if ( reusableLongLongByReference.longValue() >=  targetTimeAsLong)
-                break; // match found!
-            r = libJournal.sd_journal_previous(actualJournalHandle);
-            if (r != 0x00)
-                throw new JJournalException(r);
+            r = libJournal.sd_journal_next(actualJournalHandle);
+            switch (r)
+                {
+                case 1: break; // all OK, as expected
+                case 0x00: return false; // hit end, stop
+                default: throw new JJournalException(r);
+                }
+            if (getTimestampAsMicrosecondsLong() >= targetTimeAsLong)
+                return true; // match found!
             }
-        while( r > 0x00);
-        if (r == 0x00)
-            return false; // loop ended not because of match.
-        //--- now move back some more until we don't match anymore
+        while (r > 0x00);
+        return false; // no match found before end.
+        }
+
+    private boolean moveBackwardUntilLatestTimeLinear(final long targetTimeAsLong) throws JJournalException
+        {
+        int r;
         do
             {
-            r = libJournal.sd_journal_get_realtime_usec (actualJournalHandle, reusableLongLongByReference);
-            if (r != 0x00)
-                throw new JJournalException(r);
-            if ( reusableLongLongByReference.longValue() == targetTimeAsLong)
+            if (getTimestampAsMicrosecondsLong() <= targetTimeAsLong)
                 return true; // match found!
             r = libJournal.sd_journal_previous(actualJournalHandle);
-            if (r != 0x00)
+            if (r < 0x00)
                 throw new JJournalException(r);
             }
-        while( r > 0x00);
-        if (r == 0x00)
-            return false; // loop ended not because of match.
-        // and then exactly one step forward.
-        r = libJournal.sd_journal_next(actualJournalHandle);
-        if (r != 0x00)
-            throw new JJournalException(r);
-        return true; // no match found before end.
+        while (r > 0x00);
+        return false; // no match found before start.
         }
 
-    // our foreach in timerange-function...
-    // -- move to start
-    // -- move forward to start
-    // -- until we end the loop, perform a call for each entry
+    private boolean moveBackwardUntilEarliestTimeLinear(final long targetTimeAsLong) throws JJournalException
+        {
+        int r;
+        // step back past all entries at or after the target time
+        do
+            {
+            if (getTimestampAsMicrosecondsLong() < targetTimeAsLong)
+                break;
+            r = libJournal.sd_journal_previous(actualJournalHandle);
+            if (r < 0x00)
+                throw new JJournalException(r);
+            if (r == 0x00)
+                return true; // at the head, and the head entry itself is not before the target.
+            }
+        while (r > 0x00);
+        // we are on the last entry before the target now; the match is the next one at or after it.
+        return moveForwardUntilTimeLinear(targetTimeAsLong);
+        }
 
     /**
      * loop over journal entries within a given timeframe.
-     * note this does not do a moveToEarliest() by itself (anymore). It starts from current position.
+     * The start is located with the native indexed seek, see moveForwardUntilTime();
+     * from there on, the entries in the range are visited one by one.
      *
-     * @param startTime             the time of the first entry to operate on, from current position onward.
-     *                              "null" for: do not move.
-     *                              use moveToEarliest(); before calling this function if you want to start from the earliest entry.
+     * @param startTime             the time of the first entry to operate on.
+     *                              "null" for: do not move, start with the current entry.
      * @param endTime               the time of the first entry the range ended (that is, not processed anymore - one past last)
      *                              "null" for tail of journal.
      * @param limitCount            abort after this many entries having been processed.
@@ -762,55 +1261,518 @@ public class Journal implements AutoCloseable
      */
     public int foreachInTimerange(final Instant startTime, final Instant endTime, int limitCount, JournalConsumer<Journal, JJournalException> toBeCalledOnEachEntry) throws JJournalException
         {
-        // idea: or count entries, and return the count? ==0 would be empty.
         int r;
         int entriesProcessed = 0;
-        Period currentFirstAndLast;
-        if (startTime == null)
-            {
-            // ignore, do not move.
-            // previous behaviour:  moveToEarliest(); by default, move to first entry.-
-            }
-        else
+        if (startTime != null)
             {
             if (moveForwardUntilTime(startTime) == false)
                 throw new JJournalException(TIME_NOT_FOUND);
             }
-
-        long endTimeAsLong;
-        if (endTime == null)
-            {
-            // get current last journal entry time as default
-            LongLongByReference until = new LongLongByReference();
-            r = libJournal.sd_journal_get_cutoff_realtime_usec(actualJournalHandle, this.reusableLongLongByReference, until);
-            if (r != 0x00)
-                throw new JJournalException(r);
-            endTimeAsLong = until.longValue();
-            }
-        else
-            {
-            endTimeAsLong = (endTime.getEpochSecond() * MILLION) + endTime.getLong(ChronoField.MICRO_OF_SECOND);
-            }
+        final long endTimeAsLong = (endTime == null) ? Long.MAX_VALUE : instantToMicroseconds(endTime);
         // direction is fixed here
         do
             {
-            toBeCalledOnEachEntry.accept(this); // @TODO ponder additional error handling
-            r = libJournal.sd_journal_get_realtime_usec (actualJournalHandle, reusableLongLongByReference);
-            if (r != 0x00)
-                throw new JJournalException(r);
-            if ( reusableLongLongByReference.longValue() >=  endTimeAsLong)
+            if (getTimestampAsMicrosecondsLong() >= endTimeAsLong)
                 break; // end-time reached.
+            toBeCalledOnEachEntry.accept(this); // @TODO ponder additional error handling
             entriesProcessed++;
-            if (entriesProcessed >=  limitCount)
+            if (entriesProcessed >= limitCount)
                 return entriesProcessed;
+            dataGeneration++;
             r = libJournal.sd_journal_next(actualJournalHandle);
             if (r < 0x00)
                 throw new JJournalException(r);
             }
-        while( r > 0x00);
+        while (r > 0x00);
         return entriesProcessed;
         }
 
+    /**
+     * loop over the entries in a time range, reading time slices of it in parallel.
+     * <br>
+     * [startTime, endTime) is cut into the given number of slices of equal length. Each slice is read by a task on
+     * the executor, through a journal handle of its own, opened on the same journal files with the same flags,
+     * matches, and data threshold; the position of this journal is not changed.
+     * The consumer gets JournalEntry snapshots, and is called on the calling thread only, so it needs no
+     * synchronisation. Ordered, the entries arrive in timestamp order, as with foreachInTimerange(); read-ahead is
+     * limited to a fixed number of entries per slice. Unordered, the entries arrive as the slices deliver them,
+     * which suits aggregations: no slice waits for the ones before it.
+     * As with stream(), entries with timestamps out of order may be missed at the borders of the slices.
+     *
+     * @param startTime the earliest entry; null for the start of the journal.
+     * @param endTime   the end of the range, exclusive; null for the latest entry at the time of this call.
+     * @param slices    number of slices; e.g. the number of cores. The executor should be able to run that many tasks.
+     * @param executor  runs one task per slice, on threads other than the calling one. Executors which may run tasks
+     *                  on the calling thread, e.g. with ThreadPoolExecutor.CallerRunsPolicy, are not suitable.
+     * @param ordered   true for timestamp order, false for the order of arrival.
+     * @param consumer  called for each entry; throw JJournalException(CONSUMER_ENDING_LOOP) to end the loop early.
+     * @return number of entries processed
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on severe problems, also in one of the slices.
+     * @throws java.lang.IllegalStateException if the executor runs a task on the calling thread; it would wait for itself.
+     */
+    public int foreachInTimerangeParallel(final Instant startTime, final Instant endTime, final int slices, final Executor executor, final boolean ordered, final JournalConsumer<JournalEntry, JJournalException> consumer) throws JJournalException
+        {
+        if (slices < 1)
+            throw new IllegalArgumentException("at least one slice required");
+        final long[] range = realtimeRange(startTime, endTime);
+        if ((range == null) || (range[0x00] >= range[1]))
+            return 0x00;
+        return new TimeSlicedScan(reopener(), range[0x00], range[1], slices, ordered).run(executor, consumer);
+        }
+
+    /**
+     * loop over the entries matching a query, in a time range; the matches of this handle are restored afterwards.
+     * <br>
+     * Prefix and glob conditions are first resolved against the values of this journal (see JournalQuery.resolve()).
+     * The native part of the query takes the place of the matches of this handle during the loop (see applyFilter()),
+     * so libsystemd skips what it can; the current position is not restored. The residual part is checked on the raw field bytes of the remaining entries; only entries
+     * passing it are read into the JournalEntry passed to the consumer. The entry is reused; use snapshot() to keep it.
+     *
+     * @param query     the query
+     * @param startTime the earliest entry; null for the start of the journal.
+     * @param endTime   the end of the range, exclusive; null for no end.
+     * @param limitCount maximum number of entries to pass to the consumer
+     * @param consumer  called for each matching entry; throw JJournalException(CONSUMER_ENDING_LOOP) to end the loop early.
+     * @return number of entries passed to the consumer
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on severe problems.
+     */
+    public int foreachMatching(final JournalQuery query, final Instant startTime, final Instant endTime, final int limitCount, final JournalConsumer<JournalEntry, JJournalException> consumer) throws JJournalException
+        {
+        final JournalQuery resolved = query.resolve(this);
+        final List<byte[]> previousMatches = new ArrayList<>(filterLog);
+        applyFilter(resolved.getNativeFilter());
+        final long endTimeAsLong = (endTime == null) ? Long.MAX_VALUE : instantToMicroseconds(endTime);
+        final FieldView view = new FieldView();
+        final JournalEntry entry = new JournalEntry();
+        int delivered = 0x00;
+        try
+            {
+            boolean positionedOnEntry = false;
+            if (startTime == null)
+                moveToEarliest();
+            else if (moveForwardUntilTime(startTime))
+                positionedOnEntry = true;
+            else
+                return 0x00;
+            while (delivered < limitCount)
+                {
+                if (positionedOnEntry)
+                    positionedOnEntry = false;
+                else if (!moveToNext())
+                    break;
+                if (readRealtimeUsec() >= endTimeAsLong)
+                    break;
+                if (!resolved.testResidual(this, view))
+                    continue;
+                readEntry(entry);
+                consumer.accept(entry);
+                delivered++;
+                }
+            }
+        catch (JJournalException ex)
+            {
+            if (ex.getCode() != CONSUMER_ENDING_LOOP)
+                throw ex;
+            }
+        finally
+            {
+            filteringReset();
+            replayMatches(previousMatches);
+            }
+        return delivered;
+        }
+
+    //===============================================================================================================
+    // streams
+    /**
+     * all entries of the journal, as a Stream of JournalEntry snapshots.
+     * See stream(Instant, Instant) for details.
+     *
+     * @return a stream of entry snapshots; empty if the journal has no entries.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on severe problems.
+     */
+    public Stream<JournalEntry> stream() throws JJournalException
+        {
+        return stream(null, null);
+        }
+
+    /**
+     * the entries in a time range, as a Stream of JournalEntry snapshots.
+     * <br>
+     * The stream does not use this Journal handle. It reads through handles of its own, opened on the same journal
+     * files with the same flags, matches, and data threshold; so the position of this journal is not changed,
+     * and the stream may be consumed on other threads.
+     * Sequential streams deliver the entries in journal order. Parallel streams split the time range into parts,
+     * each read by a handle of its own, which starts with the realtime seek; so .parallel() scales over cores for
+     * large scans. As with foreachInTimerange(), a range ends at the first entry at or after its end; so entries
+     * with timestamps out of order (e.g. after the wall clock was set back) may be missed at the borders of the parts.
+     * <br>
+     * Close the stream if it is not consumed completely, e.g. after findFirst() or limit(); this closes its handles.
+     *
+     * @param startTime the earliest entry; null for the start of the journal.
+     * @param endTime   the end of the range, exclusive; null for the latest entry at the time of this call.
+     * @return a stream of entry snapshots; empty if the journal has no entries.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on severe problems.
+     */
+    public Stream<JournalEntry> stream(final Instant startTime, final Instant endTime) throws JJournalException
+        {
+        final long[] range = realtimeRange(startTime, endTime);
+        if (range == null)
+            return Stream.empty();
+        final JournalSpliterator spliterator = new JournalSpliterator(reopener(), range[0x00], range[1]);
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::closeAll);
+        }
+
+    // [from, to) in realtime microseconds, with the journal's own range for missing bounds; null if it has no entries.
+    private long[] realtimeRange(final Instant startTime, final Instant endTime) throws JJournalException
+        {
+        LongLongByReference since = new LongLongByReference();
+        LongLongByReference until = new LongLongByReference();
+        int r = libJournal.sd_journal_get_cutoff_realtime_usec(actualJournalHandle, since, until);
+        if (r < 0x00)
+            throw new JJournalException(r);
+        if (r == 0x00)
+            return null;
+        final long from = (startTime == null) ? since.longValue() : instantToMicroseconds(startTime);
+        final long to = (endTime == null) ? until.longValue() + 1 : instantToMicroseconds(endTime);
+        return new long[] { from, to };
+        }
+
+    /*
+     * a recipe for opening the same journal files again, with the same matches and data threshold,
+     * e.g. for reading on other threads. It takes copies; later changes to this journal do not affect it.
+     */
+    Supplier<Journal> reopener()
+        {
+        return reopener(opener);
+        }
+
+    /*
+     * a recipe for opening other journal files, with the matches and data threshold of this journal.
+     */
+    Supplier<Journal> reopener(final Supplier<Journal> open)
+        {
+        final List<byte[]> matches = new ArrayList<>(filterLog);
+        final long threshold = dataThresholdEnforced ? dataThreshold : 0x00;
+        return () ->
+            {
+            final Journal journal = open.get();
+            try
+                {
+                journal.replayMatches(matches);
+                if (threshold > 0x00)
+                    journal.setDataThreshold(threshold);
+                }
+            catch (RuntimeException ex)
+                {
+                journal.close();
+                throw ex;
+                }
+            return journal;
+            };
+        }
+
+    //===============================================================================================================
+    // unique values
+    /**
+     * loop over the distinct values a field has in the journal, e.g. all units in _SYSTEMD_UNIT.
+     * The values are taken from the field's hash table in the journal files, so the cost depends on the number of
+     * distinct values, not the number of entries; nothing is collected in memory.
+     * <br>
+     * The consumer gets a FieldView on each value, without copying. The view is valid during the call only.
+     * Values are in no particular order; a value present in several journal files may be delivered more than once.
+     * Filters are not taken into account. Values which cannot be read (e.g. unsupported compression) are skipped.
+     * The data threshold applies as for other reads.
+     * Do not read entry data, or start another enumeration, from within the consumer.
+     *
+     * @param field    the compiled field name, see CompiledField.of()
+     * @param consumer called for each value. To end the loop early, throw JJournalException(CONSUMER_ENDING_LOOP);
+     *                 this is not passed on.
+     * @return number of values passed to the consumer.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on errors, or exceptions from the consumer.
+     */
+    public int foreachUniqueValue(final CompiledField field, final JournalConsumer<FieldView, JJournalException> consumer) throws JJournalException
+        {
+        return enumerateUnique(field, dataThresholdEnforced ? dataThreshold : 0x00, consumer);
+        }
+
+    // the unique value loop. limit: length to cut the data at, including the header; 0 for none.
+    private int enumerateUnique(final CompiledField field, final long limit, final JournalConsumer<FieldView, JJournalException> consumer) throws JJournalException
+        {
+        final FieldView view = new FieldView();
+        final int headerLength = field.getNameLength() + 1;
+        int count = 0x00;
+        int r = libJournal.sd_journal_query_unique(actualJournalHandle, field.getNativeName());
+        if (r < 0x00)
+            throw new JJournalException(r);
+        libJournal.sd_journal_restart_unique(actualJournalHandle);
+        try
+            {
+            while (true)
+                {
+                dataGeneration++; // each call invalidates the data returned by the previous one
+                r = libJournal.sd_journal_enumerate_available_unique(actualJournalHandle, nativeDataPointerOut, nativeDataLengthOut);
+                if (r == 0x00)
+                    return count;
+                if (r < 0x00)
+                    throw new JJournalException(r);
+                long len = nativeDataLengthOut.getNativeLong(0x00);
+                if (len < headerLength)
+                    continue; // cut below the header by a tiny data threshold; nothing to show.
+                if ((limit > 0x00) && (len > limit))
+                    len = limit;
+                view.set(this, nativeDataPointerOut.getAddress(0x00), (int) len, headerLength, dataGeneration);
+                consumer.accept(view);
+                count++;
+                }
+            }
+        catch (JJournalException ex)
+            {
+            if (ex.getCode() == CONSUMER_ENDING_LOOP)
+                return count;
+            throw ex;
+            }
+        }
+
+    /**
+     * loop over the distinct values a field has in the journal.
+     * See foreachUniqueValue(CompiledField, JournalConsumer).
+     *
+     * @param field    the field
+     * @param consumer called for each value, with a view valid during the call only.
+     * @return number of values passed to the consumer.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on errors, or exceptions from the consumer.
+     */
+    public int foreachUniqueValue(final JournalField field, final JournalConsumer<FieldView, JJournalException> consumer) throws JJournalException
+        {
+        return foreachUniqueValue(field.getCompiledField(), consumer);
+        }
+
+    /**
+     * loop over the distinct values a field has in the journal.
+     * See foreachUniqueValue(CompiledField, JournalConsumer).
+     *
+     * @param fieldName the field name
+     * @param consumer  called for each value, with a view valid during the call only.
+     * @return number of values passed to the consumer.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on errors, or exceptions from the consumer;
+     *         FIELD_NAME_INVALID for invalid field names.
+     */
+    public int foreachUniqueValue(final String fieldName, final JournalConsumer<FieldView, JJournalException> consumer) throws JJournalException
+        {
+        return foreachUniqueValue(compiledField(fieldName), consumer);
+        }
+
+    /**
+     * loop over the distinct values a field has in the journal, decoded as Strings.
+     * See foreachUniqueValue(CompiledField, JournalConsumer); values cut by the data threshold end on a whole character.
+     *
+     * @param field    the compiled field name, see CompiledField.of()
+     * @param consumer called for each value.
+     * @return number of values passed to the consumer.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on errors, or exceptions from the consumer.
+     */
+    public int foreachUniqueValueAsString(final CompiledField field, final JournalConsumer<String, JJournalException> consumer) throws JJournalException
+        {
+        final long threshold = getCachedDataThreshold();
+        final int headerLength = field.getNameLength() + 1;
+        return foreachUniqueValue(field, view ->
+            {
+            final int len = view.length();
+            if (reusableByteBuffer.capacity() < len)
+                reusableByteBuffer = ByteBuffer.allocate(Integer.highestOneBit(len - 1) << 1);
+            final byte[] buffer = reusableByteBuffer.array();
+            view.copyTo(buffer, 0x00);
+            // a value as long as the threshold may have been cut, possibly within a character.
+            final int complete = ((threshold > 0x00) && (len + headerLength >= threshold)) ? completeUtf8Length(buffer, 0x00, len) : len;
+            consumer.accept(new String(buffer, 0x00, complete, journalCharset));
+            return;
+            });
+        }
+
+    /**
+     * loop over the distinct values a field has in the journal, decoded as Strings.
+     * See foreachUniqueValueAsString(CompiledField, JournalConsumer).
+     *
+     * @param field    the field
+     * @param consumer called for each value.
+     * @return number of values passed to the consumer.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on errors, or exceptions from the consumer.
+     */
+    public int foreachUniqueValueAsString(final JournalField field, final JournalConsumer<String, JJournalException> consumer) throws JJournalException
+        {
+        return foreachUniqueValueAsString(field.getCompiledField(), consumer);
+        }
+
+    /**
+     * loop over the distinct values a field has in the journal, decoded as Strings.
+     * See foreachUniqueValueAsString(CompiledField, JournalConsumer).
+     *
+     * @param fieldName the field name
+     * @param consumer  called for each value.
+     * @return number of values passed to the consumer.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on errors, or exceptions from the consumer;
+     *         FIELD_NAME_INVALID for invalid field names.
+     */
+    public int foreachUniqueValueAsString(final String fieldName, final JournalConsumer<String, JJournalException> consumer) throws JJournalException
+        {
+        return foreachUniqueValueAsString(compiledField(fieldName), consumer);
+        }
+
+    //===============================================================================================================
+    // follow mode
+    /**
+     * move to the next entry; at the end of the journal, wait for new entries to arrive.
+     * This is what "journalctl -f" does: the wait is on the journal's inotify file descriptor, so new entries are
+     * seen as soon as they have been written, and no CPU is used while idle.
+     * <br>
+     * The native wait cannot be interrupted. An interrupt of the calling thread is checked each time the journal changes,
+     * and ends the call, returning false, with the interrupt flag left set.
+     * For long waits that must be cancellable, use a limited timeout and loop, or JournalFollower.
+     *
+     * @param timeout maximum time to wait; null to wait indefinitely.
+     * @return true if we moved to the next entry, false if none arrived within the timeout.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on severe problems.
+     */
+    public boolean moveToNextOrWait(final Duration timeout) throws JJournalException
+        {
+        if (moveToNext())
+            return true;
+        final long start = System.nanoTime();
+        final long timeoutNanos = (timeout == null) ? Long.MAX_VALUE : saturatedNanos(timeout);
+        while (!Thread.currentThread().isInterrupted())
+            {
+            final long remainingNanos = timeoutNanos - (System.nanoTime() - start);
+            if (remainingNanos <= 0x00)
+                return false;
+            // round up, so we do not spin on sub-microsecond remainders.
+            waitForChanges((timeout == null) ? -1L : (remainingNanos + 999) / 1000);
+            if (moveToNext())
+                return true;
+            }
+        return false;
+        }
+
+    /**
+     * wait until the journal changes, or the timeout passes; then process the change.
+     * Honours the timeout from getWakeupTimeoutMicroseconds() internally, so it also works for journals
+     * on file systems without reliable inotify support.
+     * The first call sets up the change notification and returns immediately.
+     *
+     * @param timeout maximum time to wait; null to wait indefinitely.
+     * @return the kind of change; NOP on timeout.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on severe problems.
+     */
+    public WakeupEvent waitForChanges(final Duration timeout) throws JJournalException
+        {
+        return waitForChanges((timeout == null) ? -1L : saturatedNanos(timeout) / 1000);
+        }
+
+    // timeoutUsec: -1 for indefinitely, which is (uint64_t) -1 natively.
+    private WakeupEvent waitForChanges(final long timeoutUsec) throws JJournalException
+        {
+        final int r = libJournal.sd_journal_wait(actualJournalHandle, timeoutUsec);
+        dataGeneration++; // files may have been unmapped
+        if (r < 0x00)
+            throw new JJournalException(r);
+        return WakeupEvent.fromNative(r);
+        }
+
+    /**
+     * process changes signalled on the file descriptor, for use with your own event loop.
+     * Call after getFileDescriptor() became readable, or the timeout from getWakeupTimeoutMicroseconds() passed.
+     *
+     * @return the kind of change; NOP if there was none.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on severe problems.
+     */
+    public WakeupEvent processChanges() throws JJournalException
+        {
+        final int r = libJournal.sd_journal_process(actualJournalHandle);
+        dataGeneration++;
+        if (r < 0x00)
+            throw new JJournalException(r);
+        return WakeupEvent.fromNative(r);
+        }
+
+    /**
+     * the file descriptor signalling changes to the journal, for use with your own event loop (poll, epoll).
+     * It belongs to the Journal, and is closed with it.
+     *
+     * @return the file descriptor
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on severe problems.
+     */
+    public int getFileDescriptor() throws JJournalException
+        {
+        final int r = libJournal.sd_journal_get_fd(actualJournalHandle);
+        if (r < 0x00)
+            throw new JJournalException(r);
+        return r;
+        }
+
+    /**
+     * the poll() events to wait for on getFileDescriptor().
+     *
+     * @return the poll event mask, e.g. POLLIN (1)
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on severe problems.
+     */
+    public int getWakeupEvents() throws JJournalException
+        {
+        final int r = libJournal.sd_journal_get_events(actualJournalHandle);
+        if (r < 0x00)
+            throw new JJournalException(r);
+        return r;
+        }
+
+    /**
+     * the time at which processChanges() has to be called at the latest, even if the file descriptor did not signal.
+     * This is an absolute CLOCK_MONOTONIC value in microseconds; compare it with clock_gettime(CLOCK_MONOTONIC),
+     * not with System.nanoTime(), whose origin is unspecified.
+     *
+     * @return the CLOCK_MONOTONIC time in microseconds; -1 if there is no timeout.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on severe problems.
+     */
+    public long getWakeupTimeoutMicroseconds() throws JJournalException
+        {
+        final int r = libJournal.sd_journal_get_timeout(actualJournalHandle, nativeDataLengthOut);
+        if (r < 0x00)
+            throw new JJournalException(r);
+        return nativeDataLengthOut.getLongLong(0x00); // (uint64_t) -1 for none
+        }
+
+    /**
+     * check whether the file descriptor signals all changes by itself.
+     * If not, the timeout from getWakeupTimeoutMicroseconds() has to be honoured as well.
+     *
+     * @return true if polling on getFileDescriptor() alone is sufficient.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on severe problems.
+     */
+    public boolean hasReliableFileDescriptor() throws JJournalException
+        {
+        final int r = libJournal.sd_journal_reliable_fd(actualJournalHandle);
+        if (r < 0x00)
+            throw new JJournalException(r);
+        return (r > 0x00);
+        }
+
+    private static long saturatedNanos(final Duration duration)
+        {
+        if (duration.isNegative())
+            return 0x00;
+        try
+            {
+            return duration.toNanos();
+            }
+        catch (ArithmeticException tooLong)
+            {
+            return Long.MAX_VALUE;
+            }
+        }
+
+    static long instantToMicroseconds(final Instant time)
+        {
+        return (time.getEpochSecond() * MILLION) + time.getLong(ChronoField.MICRO_OF_SECOND);
+        }
+
     //===============================================================================================================
     // filtering
     /**
@@ -891,22 +1853,85 @@ public class Journal implements AutoCloseable
         }
 
 
-
-
-
-    // add the filter, but don't check the field name string.
-    private void filteringAddFilterExpressionExactMatchUnchecked(final String fieldName, final byte[] valueToMatch)  throws JJournalException
+
+
+
+    // add the filter, but don't check the field name string.
+    private void filteringAddFilterExpressionExactMatchUnchecked(final String fieldName, final byte[] valueToMatch)  throws JJournalException
+        {
+        final byte[] name = fieldName.getBytes(journalCharset);
+        final byte[] match = new byte[name.length + 1 + valueToMatch.length];
+        System.arraycopy(name, 0x00, match, 0x00, name.length);
+        match[name.length] = 0x3D; // '=' in ASCII
+        System.arraycopy(valueToMatch, 0x00, match, name.length + 1, valueToMatch.length);
+        addMatch(match);
+        return;
+        }
+
+    // add matches as recorded in filterLog, e.g. by an other handle.
+    private void replayMatches(final List<byte[]> matches) throws JJournalException
+        {
+        for (byte[] match : matches)
+            {
+            if (match == FILTER_LOG_OR)
+                filteringAddDisjunctionOperator();
+            else if (match == FILTER_LOG_AND)
+                filteringAddConjunctionOperator();
+            else
+                addMatch(match);
+            }
+        return;
+        }
+
+    // add a complete "FIELD=value" match, and record it for reopener().
+    private void addMatch(final byte[] match) throws JJournalException
+        {
+        addMatch(match, ByteBuffer.wrap(match));
+        return;
+        }
+
+    // the same, with the match given in a (possibly direct) buffer as well.
+    private void addMatch(final byte[] match, final ByteBuffer nativeMatch) throws JJournalException
         {
-        int combinedLength = fieldName.length() + 1 + valueToMatch.length;
-        ByteBuffer constructed = ByteBuffer.allocate(combinedLength);
-        constructed.put(fieldName.getBytes(journalCharset));
-        constructed.put((byte) 0x3D); // '=' in ASCII
-        constructed.put(valueToMatch);
-        constructed.flip(); // we *do* need to flip the buffer here.
-        int r = libJournal.sd_journal_add_match(actualJournalHandle, constructed, combinedLength);
+        int r = libJournal.sd_journal_add_match(actualJournalHandle, nativeMatch, match.length);
         if (r != 0x00)
             throw new JJournalException(r);
+        filterLog.add(match);
         filtersActiveFlag = true;
+        bootIndex = null;
+        return;
+        }
+
+    /**
+     * replace the filter list with a filter expression.
+     * <br>
+     * This resets the current matches, and adds those of the filter, in its compiled form; so it takes one native
+     * call per match and operator, without further allocations. The same filter may be applied to any number of
+     * handles, e.g. one per query. Matches added with filteringAdd* afterwards extend it as usual.
+     *
+     * @param filter the filter; JournalFilter.all() to remove all matches.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException if a native call fails; the filter list is reset then.
+     */
+    public void applyFilter(final JournalFilter filter) throws JJournalException
+        {
+        filteringReset();
+        try
+            {
+            for (int step = 0x00; step < filter.getStepCount(); step++)
+                {
+                if (filter.isConjunction(step))
+                    filteringAddConjunctionOperator();
+                else if (filter.isDisjunction(step))
+                    filteringAddDisjunctionOperator();
+                else
+                    addMatch(filter.getMatch(step), filter.getNativeMatch(step));
+                }
+            }
+        catch (JJournalException ex)
+            {
+            filteringReset();
+            throw ex;
+            }
         return;
         }
     /**
@@ -934,6 +1959,8 @@ public class Journal implements AutoCloseable
         int r = libJournal.sd_journal_add_disjunction(actualJournalHandle);
         if (r != 0x00)
             throw new JJournalException(r);
+        filterLog.add(FILTER_LOG_OR);
+        bootIndex = null;
         return;
         }
 
@@ -973,6 +2000,8 @@ public class Journal implements AutoCloseable
         int r = libJournal.sd_journal_add_conjunction(actualJournalHandle);
         if (r != 0x00)
             throw new JJournalException(r);
+        filterLog.add(FILTER_LOG_AND);
+        bootIndex = null;
         return;
         }
 
@@ -983,6 +2012,8 @@ public class Journal implements AutoCloseable
         {
         libJournal.sd_journal_flush_matches(actualJournalHandle);
         filtersActiveFlag = false;
+        filterLog.clear();
+        bootIndex = null;
         return;
         }
 
@@ -1000,12 +2031,27 @@ public class Journal implements AutoCloseable
      */
     public String readFieldAsString(final String fieldname) throws JJournalException, IllegalArgumentException
         {
-        ((java.nio.Buffer) this.reusableByteBuffer).clear();
-        validateFieldName(fieldname);
-        this.readDataToBuffer(fieldname,this.reusableByteBuffer);
-        final CharBuffer chardings = this.journalCharset.decode(reusableByteBuffer);
-        // now trim the FIELDNAME= intro bit
-        return chardings.toString().substring(fieldname.length() + 1);
+        final CompiledField field = compiledField(fieldname);
+        readToReusableBuffer(field, -1);
+        // decode without the FIELDNAME= intro bit
+        return decodeReusableBuffer(field.getNameLength() + 1);
+        }
+
+    /**
+     * read the beginning of a field as String.
+     * The data threshold is lowered for this read, so libsystemd does not decompress more than needed;
+     * longer values are cut, at a character boundary. Check isLastReadTruncated() to find out whether this happened.
+     *
+     * @param fieldname ID of the field to be read
+     * @param maxBytes  maximum number of value bytes to read (without field name or separating =)
+     * @return field contents, at most maxBytes long in UTF-8.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on failure - e.g. if the field does not exist
+     */
+    public String readFieldAsString(final String fieldname, final int maxBytes) throws JJournalException
+        {
+        final CompiledField field = compiledField(fieldname);
+        readToReusableBuffer(field, checkMaxBytes(maxBytes));
+        return decodeReusableBuffer(field.getNameLength() + 1);
         }
 
     /**
@@ -1019,15 +2065,21 @@ public class Journal implements AutoCloseable
      **/
     public byte[] readFieldAsByteArray(final String fieldname) throws JJournalException, IllegalArgumentException
         {
-        ((java.nio.Buffer) this.reusableByteBuffer).clear();
-        validateFieldName(fieldname);
-        this.readDataToBuffer(fieldname,this.reusableByteBuffer);
-        int headerLength = fieldname.length()+1;
-        int dataSize = ((java.nio.Buffer) this.reusableByteBuffer).limit() - headerLength;
-        byte[] newAllocation = new byte[dataSize];
-        System.arraycopy(((java.nio.Buffer) this.reusableByteBuffer).array(), headerLength, newAllocation, 0x00, dataSize);
-        /// ((java.nio.Buffer) this.reusableByteBuffer).get(newAllocation,headerLength,dataSize);
-        return newAllocation;
+        return readValueAsNewByteArray(compiledField(fieldname), -1);
+        }
+
+    /**
+     * read the beginning of a field as byte[].
+     * The data threshold is lowered for this read, see readFieldAsString(String, int).
+     *
+     * @param fieldname ID of the field to be read
+     * @param maxBytes  maximum number of value bytes to read
+     * @return a newly allocated byte array containing at most maxBytes of the field contents.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on failure - e.g. if the field does not exist
+     */
+    public byte[] readFieldAsByteArray(final String fieldname, final int maxBytes) throws JJournalException
+        {
+        return readValueAsNewByteArray(compiledField(fieldname), checkMaxBytes(maxBytes));
         }
 
     /**
@@ -1041,7 +2093,6 @@ public class Journal implements AutoCloseable
      */
     public void readFieldToByteArray(final String fieldname, ByteBuffer destinationBuffer) throws JJournalException, IllegalArgumentException
         {
-        ((java.nio.Buffer) this.reusableByteBuffer).clear();
         validateFieldName(fieldname);
         this.readDataToBuffer(fieldname,destinationBuffer);
         return;
@@ -1057,11 +2108,23 @@ public class Journal implements AutoCloseable
      */
     public String readFieldAsString(final JournalField field) throws JJournalException
         {
-        ((java.nio.Buffer) this.reusableByteBuffer).clear();
-        this.readDataToBuffer(field.getValue(),this.reusableByteBuffer);
-        final CharBuffer chardings = this.journalCharset.decode(reusableByteBuffer);
-        // now trim the FIELDNAME= intro bit
-        return chardings.toString().substring(field.getValue().length() + 1);
+        readToReusableBuffer(field.getCompiledField(), -1);
+        // decode without the FIELDNAME= intro bit
+        return decodeReusableBuffer(field.getValue().length() + 1);
+        }
+
+    /**
+     * read the beginning of a field as String, see readFieldAsString(String, int).
+     *
+     * @param field    ID of the field to be read
+     * @param maxBytes maximum number of value bytes to read
+     * @return field contents, at most maxBytes long in UTF-8.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on failure - e.g. if the field does not exist
+     */
+    public String readFieldAsString(final JournalField field, final int maxBytes) throws JJournalException
+        {
+        readToReusableBuffer(field.getCompiledField(), checkMaxBytes(maxBytes));
+        return decodeReusableBuffer(field.getValue().length() + 1);
         }
 
     /**
@@ -1074,14 +2137,73 @@ public class Journal implements AutoCloseable
      */
     public byte[] readFieldAsByteArray(final JournalField field) throws JJournalException
         {
-        ((java.nio.Buffer) this.reusableByteBuffer).clear();
-        this.readDataToBuffer(field.getValue(),this.reusableByteBuffer);
-        int headerLength = field.getValue().length()+1;
-        int dataSize = ((java.nio.Buffer) this.reusableByteBuffer).limit() - headerLength;
-        byte[] newAllocation = new byte[dataSize];
-        System.arraycopy(((java.nio.Buffer) this.reusableByteBuffer).array(), headerLength, newAllocation, 0x00, dataSize);
-        /// ((java.nio.Buffer) this.reusableByteBuffer).get(newAllocation,headerLength,dataSize);
-        return newAllocation;
+        return readValueAsNewByteArray(field.getCompiledField(), -1);
+        }
+
+    /**
+     * read the beginning of a field as byte[], see readFieldAsByteArray(String, int).
+     *
+     * @param field    ID of the field to be read
+     * @param maxBytes maximum number of value bytes to read
+     * @return a newly allocated byte array containing at most maxBytes of the field contents.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on failure - e.g. if the field does not exist
+     */
+    public byte[] readFieldAsByteArray(final JournalField field, final int maxBytes) throws JJournalException
+        {
+        return readValueAsNewByteArray(field.getCompiledField(), checkMaxBytes(maxBytes));
+        }
+
+    /**
+     * read a field as String, by pre-encoded field name.
+     * This is the cheapest way to read fields with names not covered by JournalField.
+     *
+     * @param field the compiled field name, see CompiledField.of()
+     * @return field contents (without field name or separating =)
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on failure - e.g. if the field does not exist
+     */
+    public String readFieldAsString(final CompiledField field) throws JJournalException
+        {
+        readToReusableBuffer(field, -1);
+        return decodeReusableBuffer(field.getNameLength() + 1);
+        }
+
+    /**
+     * read the beginning of a field as String, by pre-encoded field name; see readFieldAsString(String, int).
+     *
+     * @param field    the compiled field name, see CompiledField.of()
+     * @param maxBytes maximum number of value bytes to read
+     * @return field contents, at most maxBytes long in UTF-8.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on failure - e.g. if the field does not exist
+     */
+    public String readFieldAsString(final CompiledField field, final int maxBytes) throws JJournalException
+        {
+        readToReusableBuffer(field, checkMaxBytes(maxBytes));
+        return decodeReusableBuffer(field.getNameLength() + 1);
+        }
+
+    /**
+     * read a field as byte[], by pre-encoded field name.
+     *
+     * @param field the compiled field name, see CompiledField.of()
+     * @return a newly allocated byte array containing the field contents.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on failure - e.g. if the field does not exist
+     */
+    public byte[] readFieldAsByteArray(final CompiledField field) throws JJournalException
+        {
+        return readValueAsNewByteArray(field, -1);
+        }
+
+    /**
+     * read the beginning of a field as byte[], by pre-encoded field name; see readFieldAsByteArray(String, int).
+     *
+     * @param field    the compiled field name, see CompiledField.of()
+     * @param maxBytes maximum number of value bytes to read
+     * @return a newly allocated byte array containing at most maxBytes of the field contents.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on failure - e.g. if the field does not exist
+     */
+    public byte[] readFieldAsByteArray(final CompiledField field, final int maxBytes) throws JJournalException
+        {
+        return readValueAsNewByteArray(field, checkMaxBytes(maxBytes));
         }
 
     /**
@@ -1094,11 +2216,8 @@ public class Journal implements AutoCloseable
      */
     public String readFieldAsStringRaw(JournalField field) throws JJournalException
         {
-        ((java.nio.Buffer) this.reusableByteBuffer).clear();
-        this.readDataToBuffer(field.getValue(),this.reusableByteBuffer);
-        // proper conversion to String as follows:
-        final CharBuffer chardings = this.journalCharset.decode(reusableByteBuffer);
-        return chardings.toString();
+        readToReusableBuffer(field.getCompiledField(), -1);
+        return decodeReusableBuffer(0x00);
         }
 
     /**
@@ -1155,6 +2274,8 @@ public class Journal implements AutoCloseable
      * Lower level access; you have to take care of the buffer, conversion etc. yourself.
      * This is suitable for accessing binary data.
      * The easier way in most cases is to use readFieldAsString().
+     * For access without copying, see readFieldView().
+     * Once a data threshold has been set via setDataThreshold(), the data is cut at it.
      *
      * @param fieldName the name of the field to be read, as String
      * @param buffer the ByteBuffer to read the data into. You have to allocate and prepare (e.g. clear, flip etc) the buffer yourself.
@@ -1164,36 +2285,149 @@ public class Journal implements AutoCloseable
         {
         if (buffer.hasArray() ==  false)
             throw new JJournalException(NEED_BUFFER_WITH_BYTE_ARRAY); // that is, one that is allcoated not DIRECT
-        int ret;
-        final IntByReference datalength = new IntByReference();
-        // OK, pointer by reference looks about right - and works.
-        PointerByReference messageBuffer = new PointerByReference();
-        ret = libJournal.sd_journal_get_data(actualJournalHandle, fieldName, messageBuffer, datalength);
-        if (ret != 0x00)
-            {
-            switch (-ret)
-                {
-                case 2: throw new JJournalException(FIELD_EMPTY);
-                case 22: throw new JJournalException(NO_SUCH_FIELD);
-                case 99: throw new JJournalException(OOB);
-                }
-            throw new JJournalException(ret);
-            }
+        final int len = fetchDataLimited(compiledField(fieldName), -1);
         // now get the actual data out of it.
-        Pointer ptr = messageBuffer.getValue();
-        final Integer len = datalength.getValue();
         byte[] byteBuffer = buffer.array();
         if (byteBuffer.length < len)
             {
             // we might want to know how small exactly...
             throw new JJournalException(BUFFER_TOO_SMALL); // let's find a more elegant way later.
             }
-        ptr.get(0L, byteBuffer, 0x00, len);
-        buffer.position(0x00);
-        buffer.limit(len);
+        absoluteMemory.get(nativeDataPointerOut.getAddress(0x00), byteBuffer, 0x00, len);
+        ((java.nio.Buffer) buffer).position(0x00);
+        ((java.nio.Buffer) buffer).limit(len);
+        return;
+        }
+
+    /**
+     * read a field as zero-copy view on the journal's own memory.
+     * The field contents are not copied into the Java heap; the view points into the
+     * read-only memory map libsystemd provides.
+     * <p>
+     * The view is valid only until the cursor moves, or the next field is read from this Journal
+     * (this includes readEntry() and reading into another view). With assertions enabled (-ea),
+     * every access to a stale view fails with an AssertionError; without, it is undefined.
+     * </p>
+     *
+     * @param fieldName the name of the field to be read, as String
+     * @param view      view object to point at the field. Reuse it for consecutive reads.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on failure - e.g. if the field does not exist
+     */
+    public void readFieldView(final String fieldName, final FieldView view) throws JJournalException
+        {
+        readFieldView(compiledField(fieldName), view);
+        return;
+        }
+
+    /**
+     * read a field as zero-copy view on the journal's own memory.
+     * See readFieldView(String, FieldView) for the validity rules.
+     *
+     * @param field the field to be read
+     * @param view  view object to point at the field. Reuse it for consecutive reads.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on failure - e.g. if the field does not exist
+     */
+    public void readFieldView(final JournalField field, final FieldView view) throws JJournalException
+        {
+        readFieldView(field.getCompiledField(), view);
+        return;
+        }
+
+    /**
+     * read a field as zero-copy view on the journal's own memory, by pre-encoded field name.
+     * See readFieldView(String, FieldView) for the validity rules.
+     *
+     * @param field the compiled field name, see CompiledField.of()
+     * @param view  view object to point at the field. Reuse it for consecutive reads.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on failure - e.g. if the field does not exist
+     */
+    public void readFieldView(final CompiledField field, final FieldView view) throws JJournalException
+        {
+        final int len = fetchDataLimited(field, -1);
+        view.set(this, nativeDataPointerOut.getAddress(0x00), len, field.getNameLength() + 1, dataGeneration);
+        return;
+        }
+
+    // the same, for query evaluation: false if the entry does not have the field. The value is cut at an enforced threshold.
+    boolean readFieldViewIfPresent(final CompiledField field, final FieldView view) throws JJournalException
+        {
+        final int len = fetchDataIfPresent(field);
+        if (len < 0x00)
+            return false;
+        view.set(this, nativeDataPointerOut.getAddress(0x00), Math.max(len, field.getNameLength() + 1), field.getNameLength() + 1, dataGeneration);
+        return true;
+        }
+
+    // for FieldView validity checks
+    int getDataGeneration()
+        { return dataGeneration; }
+
+    // for zero-copy access to native memory, by address.
+    static Pointer getAbsoluteMemory()
+        { return absoluteMemory; }
+
+    // the C library, for JournalFollower's poll loop; loaded on first use. Not for the read paths: it needs JNR-FFI stubs.
+    static NativeLibC getLibC()
+        {
+        NativeLibC c = libC;
+        if (c == null)
+            {
+            c = LibraryLoader.create(NativeLibC.class).failImmediately().load("c");
+            libC = c;
+            }
+        return c;
+        }
+
+    /**
+     * set the data threshold for this journal handle.
+     * libsystemd uses the threshold as a hint for how much of each field the caller is interested in;
+     * it does not decompress compressed fields beyond it. This library additionally cuts all data
+     * it copies or views at the threshold, once it has been set explicitly.
+     * Use isLastReadTruncated() to detect affected values.
+     * <p>
+     * The threshold applies to the complete "FIELD=value" data, the field name included.
+     * The libsystemd default is 64 KiB.
+     * </p>
+     *
+     * @param bytes maximum number of bytes per field; 0 for unlimited.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on failure
+     */
+    public void setDataThreshold(final long bytes) throws JJournalException
+        {
+        if (bytes < 0x00)
+            throw new IllegalArgumentException("threshold must not be negative");
+        int r = libJournal.sd_journal_set_data_threshold(actualJournalHandle, bytes);
+        if (r < 0x00)
+            throw new JJournalException(r);
+        dataThreshold = bytes;
+        dataThresholdEnforced = (bytes > 0x00);
         return;
         }
 
+    /**
+     * get the current data threshold of this journal handle.
+     *
+     * @return maximum number of bytes per field; 0 for unlimited.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on failure
+     */
+    public long getDataThreshold() throws JJournalException
+        {
+        int r = libJournal.sd_journal_get_data_threshold(actualJournalHandle, nativeDataLengthOut);
+        if (r < 0x00)
+            throw new JJournalException(r);
+        return nativeDataLengthOut.getNativeLong(0x00);
+        }
+
+    /**
+     * check whether the most recent field read returned a value which was cut short,
+     * either by the data threshold or by a per-read limit.
+     * For values exactly at the limit, this reports true, since they may have been cut.
+     *
+     * @return true if the value read may be incomplete.
+     */
+    public boolean isLastReadTruncated()
+        { return lastReadTruncated; }
+
     /**
      * how long is that field anyhow?
      *
@@ -1203,20 +2437,192 @@ public class Journal implements AutoCloseable
      */
     public int getDataSize(final String fieldName) throws JJournalException
         {
-        final IntByReference datalength = new IntByReference();
-        PointerByReference messageBuffer = new PointerByReference(); // necessary though ignored
-        int ret = libJournal.sd_journal_get_data(actualJournalHandle, fieldName, messageBuffer, datalength);
+        return fetchData(compiledField(fieldName));
+        }
+
+    /**
+     * how long is that field anyhow?
+     *
+     * @param field field to check for its length, pre-encoded
+     * @return the size of the field, in bytes.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on errors, e.g. if the field does not exist, or being on an invalid position.
+     */
+    public int getDataSize(final CompiledField field) throws JJournalException
+        {
+        return fetchData(field);
+        }
+
+    /*
+     * the native part of every data read. On success, nativeDataPointerOut holds the address of the data
+     * within the journal's read-only memory map, valid until the next data read or cursor movement.
+     * @return length of the data, including the FIELDNAME= header.
+     */
+    private int fetchData(final CompiledField field) throws JJournalException
+        {
+        dataGeneration++; // any previous pointer into journal data may be stale now.
+        final int ret = libJournal.sd_journal_get_data(actualJournalHandle, field.getNativeName(), nativeDataPointerOut, nativeDataLengthOut);
         if (ret != 0x00)
             {
             switch (-ret)
                 {
-                case 99:
-                    throw new JJournalException(JJournalException.ErrorCodes.OOB);
-                default:
-                    throw new JJournalException(ret);
+                case 2: throw new JJournalException(FIELD_EMPTY);
+                case 22: throw new JJournalException(NO_SUCH_FIELD);
+                case 99: throw new JJournalException(OOB);
+                }
+            throw new JJournalException(ret);
+            }
+        return (int) nativeDataLengthOut.getNativeLong(0x00);
+        }
+
+    /*
+     * data read honouring the data threshold.
+     * @param maxValueBytes per-read limit for the value; the native threshold is set to match for this read. -1 for none.
+     * @return number of data bytes to use, including the FIELDNAME= header. Sets lastReadTruncated.
+     */
+    private int fetchDataLimited(final CompiledField field, final int maxValueBytes) throws JJournalException
+        {
+        final int len;
+        final long limit;
+        if (maxValueBytes < 0x00)
+            {
+            len = fetchData(field);
+            // an explicitly set threshold is enforced; otherwise, it is only used to detect native truncation.
+            limit = dataThresholdEnforced ? dataThreshold : 0x00;
+            lastReadTruncated = (len >= getCachedDataThreshold()) && (getCachedDataThreshold() > 0x00);
+            }
+        else
+            {
+            limit = (long) field.getNameLength() + 1 + maxValueBytes;
+            final long handleThreshold = getCachedDataThreshold();
+            libJournal.sd_journal_set_data_threshold(actualJournalHandle, limit);
+            try
+                {
+                len = fetchData(field);
+                }
+            finally
+                {
+                libJournal.sd_journal_set_data_threshold(actualJournalHandle, handleThreshold);
                 }
+            lastReadTruncated = (len >= limit);
             }
-        return datalength.getValue();
+        if ((limit > 0x00) && (len > limit))
+            {
+            lastReadTruncated = true;
+            return (int) limit;
+            }
+        return len;
+        }
+
+    /*
+     * the compiled form of a field name given as String: predefined fields use their JournalField instance,
+     * other names are compiled once per Journal and kept in a small cache.
+     * @throws JJournalException FIELD_NAME_INVALID for invalid names
+     */
+    private CompiledField compiledField(final String fieldName) throws JJournalException
+        {
+        final JournalField predefined = JournalField.find(fieldName);
+        if (predefined != null)
+            return predefined.getCompiledField();
+        CompiledField compiled = adHocFields.get(fieldName);
+        if (compiled == null)
+            {
+            compiled = CompiledField.of(fieldName); // validates
+            if (adHocFields.size() >= AD_HOC_FIELD_CACHE_SIZE)
+                adHocFields.clear(); // arbitrary names from outside; don't let them pile up.
+            adHocFields.put(fieldName, compiled);
+            }
+        return compiled;
+        }
+
+    private static int checkMaxBytes(final int maxBytes)
+        {
+        if (maxBytes < 0x00)
+            throw new IllegalArgumentException("maxBytes must not be negative");
+        return maxBytes;
+        }
+
+    private long getCachedDataThreshold() throws JJournalException
+        {
+        if (dataThreshold < 0x00)
+            dataThreshold = getDataThreshold();
+        return dataThreshold;
+        }
+
+    // read field data into the reusable buffer, growing it as required.
+    private void readToReusableBuffer(final CompiledField field, final int maxValueBytes) throws JJournalException
+        {
+        final int len = fetchDataLimited(field, maxValueBytes);
+        if (reusableByteBuffer.capacity() < len)
+            reusableByteBuffer = ByteBuffer.allocate(Integer.highestOneBit(len - 1) << 1);
+        absoluteMemory.get(nativeDataPointerOut.getAddress(0x00), reusableByteBuffer.array(), 0x00, len);
+        ((java.nio.Buffer) reusableByteBuffer).position(0x00);
+        ((java.nio.Buffer) reusableByteBuffer).limit(len);
+        return;
+        }
+
+    // copy a field value, without its header, straight from native memory into a new array of exactly the right size.
+    private byte[] readValueAsNewByteArray(final CompiledField field, final int maxValueBytes) throws JJournalException
+        {
+        final int len = fetchDataLimited(field, maxValueBytes);
+        final int headerLength = field.getNameLength() + 1;
+        final byte[] newAllocation = new byte[len - headerLength];
+        absoluteMemory.get(nativeDataPointerOut.getAddress(0x00) + headerLength, newAllocation, 0x00, newAllocation.length);
+        return newAllocation;
+        }
+
+    // decode the reusable buffer contents from offset on; the String is the only allocation.
+    private String decodeReusableBuffer(final int offset)
+        {
+        final byte[] data = this.reusableByteBuffer.array();
+        int length = ((java.nio.Buffer) this.reusableByteBuffer).limit() - offset;
+        if (lastReadTruncated)
+            length = completeUtf8Length(data, offset, length);
+        return decode(data, offset, length);
+        }
+
+    // length without a trailing multibyte UTF-8 sequence cut short by truncation.
+    static int completeUtf8Length(final byte[] data, final int offset, final int length)
+        {
+        // walk back over continuation bytes (10xxxxxx) to the last lead byte
+        int lead = offset + length - 1;
+        while ((lead >= offset) && (lead > offset + length - 4) && ((data[lead] & 0xC0) == 0x80))
+            lead--;
+        if (lead < offset)
+            return length;
+        final int b = data[lead] & 0xFF;
+        final int sequenceLength = (b >= 0xF0) ? 4 : (b >= 0xE0) ? 3 : (b >= 0xC0) ? 2 : 1;
+        final int available = offset + length - lead;
+        return (available < sequenceLength) ? (lead - offset) : length;
+        }
+
+    /*
+     * decode bytes to String. pure 7-bit ASCII - by far the most common case in journals - takes the
+     * ISO-8859-1 path, which is a plain widening copy; everything else goes through the journal charset.
+     */
+    String decode(final byte[] data, final int offset, final int length)
+        {
+        final int end = offset + length;
+        for (int i = offset; i < end; i++)
+            {
+            if (data[i] < 0x00)
+                return new String(data, offset, length, this.journalCharset);
+            }
+        return new String(data, offset, length, StandardCharsets.ISO_8859_1);
+        }
+
+    /**
+     * read the syslog priority of the current entry as a number, without decoding a String.
+     *
+     * @return 0 (emergency) to 7 (debug); -1 if the entry has no PRIORITY field, or not a valid one.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException exception on severe errors
+     */
+    public int readPriority() throws JJournalException
+        {
+        final CompiledField field = JournalField.PRIORITY.getCompiledField();
+        if (fetchDataIfPresent(field) != field.getNameLength() + 2) // "PRIORITY=" and a single digit
+            return -1;
+        final int digit = absoluteMemory.getByte(nativeDataPointerOut.getAddress(0x00) + field.getNameLength() + 1) - '0';
+        return ((digit >= 0x00) && (digit <= 7)) ? digit : -1;
         }
 
     /**
@@ -1317,10 +2723,17 @@ public class Journal implements AutoCloseable
      */
     public static void validateFieldName(final String journalField) throws JJournalException
         {
-        if (JOURNAL_FIELD_NAME_REGEXP.matcher(journalField).matches())
-            return;
-        else
+        // equivalent to JOURNAL_FIELD_NAME_REGEXP; checked by hand since a regexp Matcher is allocated on each use.
+        final int length = journalField.length();
+        if ((length < 1) || (length > 255))
             throw new JJournalException(FIELD_NAME_INVALID);
+        for (int i = 0; i < length; i++)
+            {
+            final char c = journalField.charAt(i);
+            if (!(((c >= 'A') && (c <= 'Z')) || ((c >= '0') && (c <= '9')) || (c == '_')))
+                throw new JJournalException(FIELD_NAME_INVALID);
+            }
+        return;
         }
 
 
@@ -1335,38 +2748,90 @@ public class Journal implements AutoCloseable
 
     /*
     loading the underlying native library, and initialising required handles.
+    The implementation of NativeJournal is chosen by NativeBackend, depending on the Java version.
      */
     static void loadLib()
+        {
+        libJournal = NativeBackend.load(LIB_NAME);
+        if (libJournal == null)
+            throw new RuntimeException("required library libsystemd could not be found in library paths. please make sure it is installed.");
+        runtime = Runtime.getSystemRuntime(); // the same for JNR-FFI libraries, and what the other backends use for memory.
+        absoluteMemory = runtime.getMemoryManager().newPointer(0L);
+        return;
+        }
+
+    /*
+     * load the JNR-FFI implementation of NativeJournal. Available on all Java versions.
+     * @return the library interface, or null if the library could not be loaded.
+     */
+    static NativeJournal loadJnrLibrary(final String libraryName)
         {
         Map<LibraryOption, Object> libraryOptions = new HashMap<>();
         libraryOptions.put(LibraryOption.LoadNow, true); // load immediately instead of lazily (ie on first use)
         libraryOptions.put(LibraryOption.IgnoreError, true); // calls shouldn't save last errno after call -- turn on only during debugging
-        libJournal = LibraryLoader.loadLibrary(
+        return LibraryLoader.loadLibrary(
                 NativeJournal.class,
                 libraryOptions,
-                LIB_NAME
+                libraryName
                 );
+        }
+
+    /**
+     * name of the native access implementation in use.
+     * "jnr" for JNR-FFI, the default; "ffm" for the java.lang.foreign API of Java 22 and later,
+     * selected with the system property org.metabit.jjournal.backend=ffm where the jar contains it.
+     * <br>
+     * For short-lived processes, org.metabit.jjournal.backend=jffi selects "jffi": bindings written
+     * ahead of time against the jffi layer below JNR-FFI, bound per function on first use.
+     * This avoids the stub class generation of JNR-FFI, which dominates startup time,
+     * and keeps all classes archivable for AppCDS.
+     *
+     * @return the backend name
+     */
+    public static String getNativeBackendName()
+        {
         if (libJournal == null)
-            throw new RuntimeException("required library libsystemd could not be found in library paths. please make sure it is installed.");
-        runtime = Runtime.getRuntime(libJournal);
-        return;
+            loadLib();
+        return NativeBackend.getName(libJournal);
         }
 
     /** Constant <code>LIB_NAME="systemd"</code> */
     public static final String LIB_NAME = "systemd"; // the journal library has been merged with the systemd library years ago.
     static final int MILLION = 1000000; // for time unit conversions
+    private static final boolean NATIVE_LITTLE_ENDIAN = (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN);
+    private static final int DEFAULT_PREFETCH_POOL_SIZE = 4;
 
     static final Pattern JOURNAL_FIELD_NAME_REGEXP = Pattern.compile("^([\\p{Digit}\\p{Upper}_]{1,255})$"); // 1 to 255 uppercase letters, digits, or underscores
     private static NativeJournal libJournal; // library handle is shared among instances. no locking since this handle is atomic in read and write. @CHECK
     /** Constant <code>runtime</code> */
     protected static Runtime runtime;
+    // pointer at address 0; offsets on it are absolute addresses. Lets us read native data without a Pointer object per read.
+    private static Pointer absoluteMemory;
+    private static volatile NativeLibC libC;
     private AddressByReference journalHandle;
     private Address actualJournalHandle;
     private boolean filtersActiveFlag;
     private ByteBuffer reusableByteBuffer; // final, definitely not static
-    private final LongLongByReference reusableLongLongByReference = new LongLongByReference();
     private final PointerByReference reusablePointerByReference = new PointerByReference();
+    private Pointer nativeDataPointerOut; // const void **data of sd_journal_get_data() and relatives
+    private Pointer nativeDataLengthOut;  // size_t *length of sd_journal_get_data() and relatives
+    private Pointer nativeSecondLongOut;  // second uint64_t out-parameter, e.g. of the cutoff functions
+    private Pointer nativeBootIdOut;      // sd_id128_t *ret_boot_id
+    private JNRFFI_SD_ID128_T nativeBootId; // view on nativeBootIdOut
+    private BootIndex bootIndex; // cached result of listBoots(); null if invalid
+    private byte[] headerScratch; // for matching field names on raw data
+    private int dataGeneration; // incremented whenever pointers into journal data may become stale; see FieldView
+    private long dataThreshold = -1; // cached native data threshold; -1 if not known yet.
+    private boolean dataThresholdEnforced; // set explicitly via setDataThreshold(), so copies are cut at it too.
+    private boolean lastReadTruncated;
+    private final Map<String, CompiledField> adHocFields = new HashMap<>(); // field names not in JournalField, see compiledField()
+    private static final int AD_HOC_FIELD_CACHE_SIZE = 256;
     private Charset journalCharset; // static, final
+    private Supplier<Journal> opener; // opens the same journal files again, see reopener()
+    private String fileSet; // identifies the journal files opened, for caches shared between handles; see BootIndex
+    private final List<byte[]> filterLog = new ArrayList<>(); // the matches added, in order, with the two markers below
+    private static final byte[] FILTER_LOG_OR = new byte[0x00]; // compared by identity; a match is never empty
+    private static final byte[] FILTER_LOG_AND = new byte[0x00];
     private ZoneOffset journalTimeZoneOffset = ZoneOffset.UTC; //@TODO add accessor to allow changing this.
 
 }
@@ -0,0 +1,290 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import jnr.ffi.Pointer;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * all fields of one journal entry, as read by Journal.readEntry().
+ * <br>
+ * The instance is meant to be reused: each read overwrites the previous contents,
+ * and the internal storage only grows, so reading many entries into the same object
+ * does not allocate once it has reached the size of the largest entry.
+ * Fields are stored in raw "FIELD=value" form, back to back in one byte array;
+ * Strings are created only when asked for.
+ * <br>
+ * Journal entries may contain the same field more than once; all occurrences are kept, in journal order.
+ * Values are subject to the data threshold of the journal handle they were read with.
+ *
+ * @author jwilkes
+ * @version $Id: $Id
+ */
+public class JournalEntry
+{
+    private static final int INITIAL_ARENA_SIZE = 4096;
+    private static final int INITIAL_FIELD_CAPACITY = 32;
+
+    private byte[] arena;
+    private int arenaUsed;
+    private int[] fieldOffset;      // start of "FIELD=value" within the arena
+    private int[] fieldNameLength;  // length of FIELD, without the '='
+    private int[] fieldLength;      // length of "FIELD=value"
+    private int fieldCount;
+    private long realtimeUsec;
+    private Charset charset = StandardCharsets.UTF_8;
+
+    /**
+     * create an empty entry, for use with Journal.readEntry().
+     */
+    public JournalEntry()
+        {
+        arena = new byte[INITIAL_ARENA_SIZE];
+        fieldOffset = new int[INITIAL_FIELD_CAPACITY];
+        fieldNameLength = new int[INITIAL_FIELD_CAPACITY];
+        fieldLength = new int[INITIAL_FIELD_CAPACITY];
+        }
+
+    // copy constructor for snapshot(), with storage trimmed to the contents.
+    private JournalEntry(final JournalEntry source)
+        {
+        final int capacity = Math.max(source.fieldCount, 1);
+        arena = Arrays.copyOf(source.arena, source.arenaUsed);
+        arenaUsed = source.arenaUsed;
+        fieldOffset = Arrays.copyOf(source.fieldOffset, capacity);
+        fieldNameLength = Arrays.copyOf(source.fieldNameLength, capacity);
+        fieldLength = Arrays.copyOf(source.fieldLength, capacity);
+        fieldCount = source.fieldCount;
+        realtimeUsec = source.realtimeUsec;
+        charset = source.charset;
+        }
+
+    /**
+     * an independent copy of this entry, with storage just large enough for its contents.
+     * Use it to keep an entry read into a reused instance, e.g. to pass it on to other threads.
+     *
+     * @return a new entry with the same fields and timestamp
+     */
+    public JournalEntry snapshot()
+        {
+        return new JournalEntry(this);
+        }
+
+    /**
+     * number of fields stored.
+     *
+     * @return the field count; 0 for an empty entry.
+     */
+    public int getFieldCount()
+        { return fieldCount; }
+
+    /**
+     * the realtime timestamp of the entry.
+     *
+     * @return microseconds since the epoch, see Journal.getTimestampAsMicrosecondsLong()
+     */
+    public long getTimestampAsMicrosecondsLong()
+        { return realtimeUsec; }
+
+    /**
+     * name of the field at a given position.
+     *
+     * @param index 0 to getFieldCount()-1
+     * @return the field name
+     */
+    public String getFieldName(final int index)
+        {
+        checkIndex(index);
+        return new String(arena, fieldOffset[index], fieldNameLength[index], StandardCharsets.US_ASCII);
+        }
+
+    /**
+     * value of the field at a given position, as String.
+     *
+     * @param index 0 to getFieldCount()-1
+     * @return the field contents (without field name or separating =)
+     */
+    public String getValueAsString(final int index)
+        {
+        checkIndex(index);
+        return new String(arena, getValueOffset(index), getValueLength(index), charset);
+        }
+
+    /**
+     * value of the field at a given position, as newly allocated byte array.
+     *
+     * @param index 0 to getFieldCount()-1
+     * @return a copy of the field contents
+     */
+    public byte[] getValueAsByteArray(final int index)
+        {
+        checkIndex(index);
+        final int start = getValueOffset(index);
+        return Arrays.copyOfRange(arena, start, start + getValueLength(index));
+        }
+
+    /**
+     * first position of a field.
+     *
+     * @param fieldName name of the field
+     * @return its index, or -1 if the entry does not contain the field.
+     */
+    public int indexOf(final String fieldName)
+        {
+        final int nameLength = fieldName.length();
+        for (int i = 0; i < fieldCount; i++)
+            {
+            if (fieldNameLength[i] != nameLength)
+                continue;
+            final int offset = fieldOffset[i];
+            int k = 0;
+            while ((k < nameLength) && (arena[offset + k] == fieldName.charAt(k)))
+                k++;
+            if (k == nameLength)
+                return i;
+            }
+        return -1;
+        }
+
+    /**
+     * first position of a field.
+     *
+     * @param field the field
+     * @return its index, or -1 if the entry does not contain the field.
+     */
+    public int indexOf(final JournalField field)
+        { return indexOf(field.getValue()); }
+
+    /**
+     * read a field as String.
+     *
+     * @param fieldName name of the field
+     * @return the field contents, or null if the entry does not contain the field.
+     */
+    public String getFieldAsString(final String fieldName)
+        {
+        final int index = indexOf(fieldName);
+        return (index < 0) ? null : getValueAsString(index);
+        }
+
+    /**
+     * read a field as String.
+     *
+     * @param field the field
+     * @return the field contents, or null if the entry does not contain the field.
+     */
+    public String getFieldAsString(final JournalField field)
+        { return getFieldAsString(field.getValue()); }
+
+    //--- raw access, for processing without copies or Strings.
+
+    /**
+     * the internal storage all fields are kept in. Only valid until the next read into this entry.
+     *
+     * @return the byte array backing this entry; do not modify.
+     */
+    public byte[] getRawData()
+        { return arena; }
+
+    /**
+     * start of a field value within getRawData().
+     *
+     * @param index 0 to getFieldCount()-1
+     * @return offset of the first value byte
+     */
+    public int getValueOffset(final int index)
+        {
+        checkIndex(index);
+        return fieldOffset[index] + fieldNameLength[index] + 1;
+        }
+
+    /**
+     * length of a field value within getRawData().
+     *
+     * @param index 0 to getFieldCount()-1
+     * @return number of value bytes
+     */
+    public int getValueLength(final int index)
+        {
+        checkIndex(index);
+        return fieldLength[index] - fieldNameLength[index] - 1;
+        }
+
+    /**
+     * remove all contents. The allocated storage is kept for reuse.
+     */
+    public void clear()
+        {
+        fieldCount = 0;
+        arenaUsed = 0;
+        realtimeUsec = 0;
+        }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+        {
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fieldCount; i++)
+            {
+            sb.append(new String(arena, fieldOffset[i], fieldLength[i], charset)).append('\n');
+            }
+        return sb.toString();
+        }
+
+    //--- filling, by Journal.
+
+    void setTimestamp(final long realtimeUsec)
+        { this.realtimeUsec = realtimeUsec; }
+
+    void setCharset(final Charset charset)
+        { this.charset = charset; }
+
+    /*
+     * append one "FIELD=value" data item, copied from native memory.
+     * @param memory pointer used for absolute addressing
+     * @param address native address of the data
+     * @param length data length in bytes
+     * @param nameLength length of the FIELD part; -1 to have it determined here.
+     */
+    void append(final Pointer memory, final long address, final int length, int nameLength)
+        {
+        ensureCapacity(length);
+        memory.get(address, arena, arenaUsed, length);
+        if (nameLength < 0)
+            {
+            nameLength = 0;
+            while ((nameLength < length) && (arena[arenaUsed + nameLength] != '='))
+                nameLength++;
+            if (nameLength == length)
+                return; // not a FIELD=value item; skip it.
+            }
+        fieldOffset[fieldCount] = arenaUsed;
+        fieldNameLength[fieldCount] = nameLength;
+        fieldLength[fieldCount] = length;
+        fieldCount++;
+        arenaUsed += length;
+        return;
+        }
+
+    private void ensureCapacity(final int additionalBytes)
+        {
+        if (arenaUsed + additionalBytes > arena.length)
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaUsed + additionalBytes));
+        if (fieldCount == fieldOffset.length)
+            {
+            final int newCapacity = fieldOffset.length * 2;
+            fieldOffset = Arrays.copyOf(fieldOffset, newCapacity);
+            fieldNameLength = Arrays.copyOf(fieldNameLength, newCapacity);
+            fieldLength = Arrays.copyOf(fieldLength, newCapacity);
+            }
+        }
+
+    private void checkIndex(final int index)
+        {
+        if ((index < 0) || (index >= fieldCount))
+            throw new IndexOutOfBoundsException("field index " + index + " of " + fieldCount);
+        }
+}
+//___EOF___
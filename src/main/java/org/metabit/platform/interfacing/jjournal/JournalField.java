@@ -301,6 +301,7 @@ public enum JournalField
 
     private final DataType type;
     private final String value;
+    private volatile CompiledField compiledField; // created on first use
 
 
     JournalField(final String value, DataType type)
@@ -329,6 +330,30 @@ public enum JournalField
         return type;
         }
 
+    /**
+     * get the field name pre-encoded for native calls.
+     * Created on first use, then kept.
+     *
+     * @return the compiled field.
+     */
+    CompiledField getCompiledField()
+        {
+        CompiledField tmp = compiledField;
+        if (tmp == null)
+            {
+            // concurrent first uses may compile twice; the instances are equivalent.
+            tmp = CompiledField.compile(value);
+            compiledField = tmp;
+            }
+        return tmp;
+        }
+
+    // lookup without exception, for internal use.
+    static JournalField find(final String fieldName)
+        {
+        return reverseMap.get(fieldName);
+        }
+
     /**
      * lookup a field by provided journal field name.
      * use this, not valueOf() to map strings back to enums
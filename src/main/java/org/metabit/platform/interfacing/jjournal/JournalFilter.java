@@ -0,0 +1,547 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * an immutable filter expression over exact field matches, for Journal.applyFilter().
+ * <br>
+ * Build it from match() leaves with and()/or() (or allOf()/anyOf()); nesting is free. On construction,
+ * the expression is normalised to the form libsystemd evaluates: an AND of OR groups, each OR group consisting of
+ * terms which AND matches of different fields, while matches of the same field within a term form an implicit OR.
+ * Repeated matches on the same field are folded into such implicit ORs, duplicates are dropped, and single-term
+ * groups on different fields are merged into one term. An OR of filters with several groups each is distributed,
+ * which grows multiplicatively.
+ * <br>
+ * The normalised form is compiled once into a sequence of "FIELD=value" matches in direct buffers, so applying
+ * the filter to a handle is a series of native calls without allocations or encoding. Instances are thread-safe,
+ * and may be shared and applied to any number of handles; keep them for queries which are run repeatedly.
+ * String values are encoded in UTF-8.
+ *
+ * @author jwilkes
+ * @version $Id: $Id
+ */
+public final class JournalFilter
+{
+    private static final byte[] CONJUNCTION = new byte[0x00]; // markers in the compiled sequence, compared by identity
+    private static final byte[] DISJUNCTION = new byte[0x00];
+    private static final JournalFilter ALL = new JournalFilter(Collections.emptyList());
+    private static final JournalFilter[][] PRIORITY_RANGES = priorityRanges(); // [most severe][least severe], shared
+
+    // the normal form: AND over groups, OR over the terms of a group, AND over the fields of a term, OR over the values of a field.
+    private final List<List<Map<String, Set<Match>>>> groups;
+    // compiled: the matches in the order to add, with the CONJUNCTION and DISJUNCTION markers in between.
+    private final byte[][] sequence;
+    private final ByteBuffer[] nativeMatches;
+    private final Map<String, CompiledField> compiledFields = new HashMap<>(); // for matches(); names are validated
+
+    private JournalFilter(final List<List<Map<String, Set<Match>>>> groups)
+        {
+        this.groups = groups;
+        final List<byte[]> steps = new ArrayList<>();
+        int totalLength = 0x00;
+        for (List<Map<String, Set<Match>>> group : groups)
+            {
+            if (!steps.isEmpty())
+                steps.add(CONJUNCTION);
+            boolean firstTerm = true;
+            for (Map<String, Set<Match>> term : group)
+                {
+                if (!firstTerm)
+                    steps.add(DISJUNCTION);
+                firstTerm = false;
+                for (String fieldName : term.keySet())
+                    compiledFields.computeIfAbsent(fieldName, CompiledField::of); // shares the instances of predefined fields
+                for (Set<Match> values : term.values())
+                    for (Match match : values)
+                        {
+                        steps.add(match.bytes);
+                        totalLength += match.bytes.length;
+                        }
+                }
+            }
+        this.sequence = steps.toArray(new byte[0x00][]);
+        // all matches in one native block, sliced.
+        this.nativeMatches = new ByteBuffer[sequence.length];
+        final ByteBuffer block = ByteBuffer.allocateDirect(Math.max(totalLength, 1));
+        for (int i = 0; i < sequence.length; i++)
+            {
+            if ((sequence[i] == CONJUNCTION) || (sequence[i] == DISJUNCTION))
+                continue;
+            final int start = block.position();
+            block.put(sequence[i]);
+            final ByteBuffer slice = block.duplicate();
+            slice.position(start);
+            slice.limit(block.position());
+            nativeMatches[i] = slice.slice();
+            }
+        }
+
+    //--- leaves
+
+    /**
+     * a match on a predefined field.
+     *
+     * @param field the field
+     * @param value value to match exactly
+     * @return the filter
+     */
+    public static JournalFilter match(final JournalField field, final String value)
+        {
+        return leaf(field.getValue(), value.getBytes(StandardCharsets.UTF_8));
+        }
+
+    /**
+     * a match on a predefined field, with a binary value.
+     *
+     * @param field the field
+     * @param value value to match exactly
+     * @return the filter
+     */
+    public static JournalFilter match(final JournalField field, final byte[] value)
+        {
+        return leaf(field.getValue(), value.clone());
+        }
+
+    /**
+     * a match on an arbitrary field.
+     *
+     * @param fieldName the field name; 0-9, A-Z and _ only.
+     * @param value     value to match exactly
+     * @return the filter
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException FIELD_NAME_INVALID if the name is not a valid field name
+     */
+    public static JournalFilter match(final String fieldName, final String value) throws JJournalException
+        {
+        Journal.validateFieldName(fieldName);
+        return leaf(fieldName, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+    /**
+     * a match on an arbitrary field, with a binary value.
+     *
+     * @param fieldName the field name; 0-9, A-Z and _ only.
+     * @param value     value to match exactly
+     * @return the filter
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException FIELD_NAME_INVALID if the name is not a valid field name
+     */
+    public static JournalFilter match(final String fieldName, final byte[] value) throws JJournalException
+        {
+        Journal.validateFieldName(fieldName);
+        return leaf(fieldName, value.clone());
+        }
+
+    /**
+     * a match on any of a set of values of a predefined field, e.g. a few units; one native OR group.
+     *
+     * @param field  the field
+     * @param values the values to match exactly; at least one.
+     * @return the filter
+     * @throws java.lang.IllegalArgumentException if no value is given.
+     */
+    public static JournalFilter oneOf(final JournalField field, final String... values)
+        {
+        if (values.length == 0x00)
+            throw new IllegalArgumentException("at least one value required");
+        final Set<Match> matches = new LinkedHashSet<>();
+        for (String value : values)
+            matches.add(new Match(field.getValue(), value.getBytes(StandardCharsets.UTF_8)));
+        return valueSet(field.getValue(), matches);
+        }
+
+    /**
+     * a match on any of a set of values of an arbitrary field; one native OR group.
+     *
+     * @param fieldName the field name; 0-9, A-Z and _ only.
+     * @param values    the values to match exactly; at least one.
+     * @return the filter
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException FIELD_NAME_INVALID if the name is not a valid field name
+     * @throws java.lang.IllegalArgumentException if no value is given.
+     */
+    public static JournalFilter oneOf(final String fieldName, final String... values) throws JJournalException
+        {
+        Journal.validateFieldName(fieldName);
+        if (values.length == 0x00)
+            throw new IllegalArgumentException("at least one value required");
+        final Set<Match> matches = new LinkedHashSet<>();
+        for (String value : values)
+            matches.add(new Match(fieldName, value.getBytes(StandardCharsets.UTF_8)));
+        return valueSet(fieldName, matches);
+        }
+
+    /**
+     * entries with a syslog priority in a range, e.g. 0 to 4 for "warning and more severe".
+     * PRIORITY has eight values only, so this is a single native OR group of exact matches,
+     * which combines with other fields in one term.
+     *
+     * @param mostSevere  the lowest number, 0 (emergency) or more
+     * @param leastSevere the highest number, up to 7 (debug)
+     * @return the filter
+     * @throws java.lang.IllegalArgumentException if the range is not within 0 to 7.
+     */
+    public static JournalFilter priorityRange(final int mostSevere, final int leastSevere)
+        {
+        if ((mostSevere < 0x00) || (leastSevere > 7) || (mostSevere > leastSevere))
+            throw new IllegalArgumentException("priority range must be within 0 to 7");
+        return PRIORITY_RANGES[mostSevere][leastSevere];
+        }
+
+    /**
+     * the filter which matches all entries; applying it removes all matches.
+     *
+     * @return the empty filter
+     */
+    public static JournalFilter all()
+        { return ALL; }
+
+    //--- combinations
+
+    /**
+     * entries matching all of the filters.
+     *
+     * @param filters the filters to combine; none for all().
+     * @return the combined filter
+     */
+    public static JournalFilter allOf(final JournalFilter... filters)
+        {
+        JournalFilter result = ALL;
+        for (JournalFilter filter : filters)
+            result = result.and(filter);
+        return result;
+        }
+
+    /**
+     * entries matching any of the filters.
+     *
+     * @param filters the filters to combine; at least one.
+     * @return the combined filter
+     * @throws java.lang.IllegalArgumentException if no filter is given; there is no native form for "nothing".
+     */
+    public static JournalFilter anyOf(final JournalFilter... filters)
+        {
+        if (filters.length == 0x00)
+            throw new IllegalArgumentException("at least one filter required");
+        JournalFilter result = filters[0x00];
+        for (int i = 1; i < filters.length; i++)
+            result = result.or(filters[i]);
+        return result;
+        }
+
+    /**
+     * entries matching this filter and the other.
+     *
+     * @param other the other filter
+     * @return the combined filter
+     */
+    public JournalFilter and(final JournalFilter other)
+        {
+        if (groups.isEmpty())
+            return other;
+        if (other.groups.isEmpty())
+            return this;
+        final List<List<Map<String, Set<Match>>>> combined = new ArrayList<>(groups);
+        combined.addAll(other.groups);
+        return new JournalFilter(normaliseGroups(combined));
+        }
+
+    /**
+     * entries matching this filter or the other.
+     *
+     * @param other the other filter
+     * @return the combined filter
+     */
+    public JournalFilter or(final JournalFilter other)
+        {
+        if (groups.isEmpty() || other.groups.isEmpty())
+            return ALL;
+        // single groups just join their terms. Otherwise, distribute:
+        // (A1 & A2) | (B1 & B2) = (A1 | B1) & (A1 | B2) & (A2 | B1) & (A2 | B2)
+        final List<List<Map<String, Set<Match>>>> distributed = new ArrayList<>(groups.size() * other.groups.size());
+        for (List<Map<String, Set<Match>>> left : groups)
+            for (List<Map<String, Set<Match>>> right : other.groups)
+                {
+                final List<Map<String, Set<Match>>> terms = new ArrayList<>(left);
+                terms.addAll(right);
+                distributed.add(terms);
+                }
+        return new JournalFilter(normaliseGroups(distributed));
+        }
+
+    //--- inspection
+
+    /**
+     * whether this filter matches all entries.
+     *
+     * @return true for the empty filter.
+     */
+    public boolean isAll()
+        { return groups.isEmpty(); }
+
+    /**
+     * number of matches in the compiled form.
+     *
+     * @return the number of native match calls applying this filter takes.
+     */
+    public int getMatchCount()
+        {
+        int count = 0x00;
+        for (ByteBuffer match : nativeMatches)
+            if (match != null)
+                count++;
+        return count;
+        }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(final Object o)
+        {
+        if (this == o)
+            return true;
+        if (!(o instanceof JournalFilter))
+            return false;
+        return groups.equals(((JournalFilter) o).groups);
+        }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode()
+        { return groups.hashCode(); }
+
+    /**
+     * the normalised form, e.g. "(A=1 | B=2) &amp; C=3", with same-field ORs as "F=(x|y)".
+     *
+     * @return a readable representation
+     */
+    @Override
+    public String toString()
+        {
+        if (groups.isEmpty())
+            return "*";
+        final StringBuilder sb = new StringBuilder();
+        for (List<Map<String, Set<Match>>> group : groups)
+            {
+            if (sb.length() > 0x00)
+                sb.append(" & ");
+            final boolean parenthesise = (groups.size() > 1) && (group.size() > 1);
+            if (parenthesise)
+                sb.append('(');
+            for (int t = 0; t < group.size(); t++)
+                {
+                if (t > 0x00)
+                    sb.append(" | ");
+                int f = 0x00;
+                for (Map.Entry<String, Set<Match>> field : group.get(t).entrySet())
+                    {
+                    if (f++ > 0x00)
+                        sb.append(" + ");
+                    sb.append(field.getKey()).append('=');
+                    if (field.getValue().size() > 1)
+                        sb.append('(');
+                    int v = 0x00;
+                    for (Match match : field.getValue())
+                        {
+                        if (v++ > 0x00)
+                            sb.append('|');
+                        sb.append(new String(match.bytes, match.valueOffset, match.bytes.length - match.valueOffset, StandardCharsets.UTF_8));
+                        }
+                    if (field.getValue().size() > 1)
+                        sb.append(')');
+                    }
+                }
+            if (parenthesise)
+                sb.append(')');
+            }
+        return sb.toString();
+        }
+
+    //--- for Journal.applyFilter()
+
+    // the steps in the order to add: a conjunction, a disjunction, or a match.
+    int getStepCount()
+        { return sequence.length; }
+
+    boolean isConjunction(final int step)
+        { return sequence[step] == CONJUNCTION; }
+
+    boolean isDisjunction(final int step)
+        { return sequence[step] == DISJUNCTION; }
+
+    // the "FIELD=value" bytes, as recorded for reopening.
+    byte[] getMatch(final int step)
+        { return sequence[step]; }
+
+    // the same bytes in native memory; shared, so only to be read.
+    ByteBuffer getNativeMatch(final int step)
+        { return nativeMatches[step]; }
+
+    // evaluate the normal form on the current entry of a journal, as libsystemd would; for queries mixing in residual conditions.
+    boolean matches(final Journal journal, final FieldView view) throws JJournalException
+        {
+        for (List<Map<String, Set<Match>>> group : groups)
+            {
+            boolean groupMatched = false;
+            for (Map<String, Set<Match>> term : group)
+                {
+                boolean termMatched = true;
+                for (Map.Entry<String, Set<Match>> field : term.entrySet())
+                    {
+                    if (!journal.readFieldViewIfPresent(compiledFields.get(field.getKey()), view) || !anyValueEquals(field.getValue(), view))
+                        {
+                        termMatched = false;
+                        break;
+                        }
+                    }
+                if (termMatched)
+                    {
+                    groupMatched = true;
+                    break;
+                    }
+                }
+            if (!groupMatched)
+                return false;
+            }
+        return true;
+        }
+
+    private static boolean anyValueEquals(final Set<Match> values, final FieldView view)
+        {
+        for (Match match : values)
+            if (match.valueEquals(view))
+                return true;
+        return false;
+        }
+
+    //--- normalisation
+
+    private static JournalFilter valueSet(final String fieldName, final Set<Match> matches)
+        {
+        final Map<String, Set<Match>> term = new LinkedHashMap<>();
+        term.put(fieldName, Collections.unmodifiableSet(matches));
+        return new JournalFilter(Collections.singletonList(Collections.singletonList(Collections.unmodifiableMap(term))));
+        }
+
+    private static JournalFilter[][] priorityRanges()
+        {
+        final JournalFilter[][] ranges = new JournalFilter[8][8];
+        for (int from = 0x00; from < 8; from++)
+            for (int to = from; to < 8; to++)
+                {
+                final String[] digits = new String[to - from + 1];
+                for (int p = from; p <= to; p++)
+                    digits[p - from] = Integer.toString(p);
+                ranges[from][to] = oneOf(JournalField.PRIORITY, digits);
+                }
+        return ranges;
+        }
+
+    private static JournalFilter leaf(final String fieldName, final byte[] value)
+        {
+        final Map<String, Set<Match>> term = new LinkedHashMap<>();
+        term.put(fieldName, Collections.singleton(new Match(fieldName, value)));
+        return new JournalFilter(Collections.singletonList(Collections.singletonList(Collections.unmodifiableMap(term))));
+        }
+
+    // AND over groups: normalise each group, drop duplicates, and merge single-term groups on different fields.
+    private static List<List<Map<String, Set<Match>>>> normaliseGroups(final List<List<Map<String, Set<Match>>>> input)
+        {
+        final Set<List<Map<String, Set<Match>>>> unique = new LinkedHashSet<>();
+        for (List<Map<String, Set<Match>>> group : input)
+            unique.add(normaliseGroup(group));
+        final List<List<Map<String, Set<Match>>>> result = new ArrayList<>(unique.size());
+        Map<String, Set<Match>> merged = null;
+        int mergedIndex = -1;
+        for (List<Map<String, Set<Match>>> group : unique)
+            {
+            if (group.size() == 1)
+                {
+                final Map<String, Set<Match>> term = group.get(0x00);
+                if (merged == null)
+                    {
+                    merged = new LinkedHashMap<>(term);
+                    mergedIndex = result.size();
+                    result.add(group);
+                    continue;
+                    }
+                if (merged.entrySet().containsAll(term.entrySet()))
+                    continue; // already required by the merged term
+                if (Collections.disjoint(merged.keySet(), term.keySet()))
+                    {
+                    merged.putAll(term);
+                    result.set(mergedIndex, Collections.singletonList(Collections.unmodifiableMap(new LinkedHashMap<>(merged))));
+                    continue;
+                    }
+                }
+            result.add(group);
+            }
+        return Collections.unmodifiableList(result);
+        }
+
+    // OR over terms: drop duplicates, and fold terms on a single field into one term per field.
+    private static List<Map<String, Set<Match>>> normaliseGroup(final List<Map<String, Set<Match>>> terms)
+        {
+        final Map<String, Set<Match>> singleField = new LinkedHashMap<>();
+        final Set<Map<String, Set<Match>>> others = new LinkedHashSet<>();
+        for (Map<String, Set<Match>> term : terms)
+            {
+            if (term.size() == 1)
+                {
+                final Map.Entry<String, Set<Match>> field = term.entrySet().iterator().next();
+                singleField.computeIfAbsent(field.getKey(), k -> new LinkedHashSet<>()).addAll(field.getValue());
+                }
+            else
+                others.add(term);
+            }
+        final List<Map<String, Set<Match>>> result = new ArrayList<>(singleField.size() + others.size());
+        for (Map.Entry<String, Set<Match>> field : singleField.entrySet())
+            result.add(Collections.singletonMap(field.getKey(), Collections.unmodifiableSet(field.getValue())));
+        result.addAll(others);
+        return Collections.unmodifiableList(result);
+        }
+
+    // a "FIELD=value" match, with equality on the bytes.
+    private static final class Match
+    {
+        private final byte[] bytes;
+        private final int valueOffset;
+        private final int hash;
+
+        Match(final String fieldName, final byte[] value)
+            {
+            final byte[] name = fieldName.getBytes(StandardCharsets.US_ASCII);
+            bytes = new byte[name.length + 1 + value.length];
+            System.arraycopy(name, 0x00, bytes, 0x00, name.length);
+            bytes[name.length] = '=';
+            System.arraycopy(value, 0x00, bytes, name.length + 1, value.length);
+            valueOffset = name.length + 1;
+            hash = Arrays.hashCode(bytes);
+            }
+
+        boolean valueEquals(final FieldView view)
+            {
+            if (view.length() != bytes.length - valueOffset)
+                return false;
+            for (int i = valueOffset; i < bytes.length; i++)
+                if (view.byteAt(i - valueOffset) != bytes[i])
+                    return false;
+            return true;
+            }
+
+        @Override
+        public boolean equals(final Object o)
+            { return (o instanceof Match) && Arrays.equals(bytes, ((Match) o).bytes); }
+
+        @Override
+        public int hashCode()
+            { return hash; }
+    }
+}
+//___EOF___
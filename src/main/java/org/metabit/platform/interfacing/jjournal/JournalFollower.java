@@ -0,0 +1,449 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import jnr.ffi.Memory;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+
+import static org.metabit.platform.interfacing.jjournal.JJournalException.ErrorCodes.CONSUMER_ENDING_LOOP;
+
+/**
+ * follows many journals with a single thread.
+ * <br>
+ * The change notification file descriptors of all followed journals are watched by one poll() loop.
+ * Only journals whose descriptor signalled (or whose native timeout passed) are processed; when new entries
+ * have arrived, a batch task is passed to the executor, which calls the consumer for each new entry.
+ * While its batch runs, a journal is not watched; so no Journal is ever used by two threads at once,
+ * and the consumers of one journal are called one after the other.
+ * Thousands of followed journals cost the loop thread plus what the executor uses for the batches.
+ * Note each Journal holds an inotify instance of its own; the per-user limit for these
+ * (fs.inotify.max_user_instances, often 128) may have to be raised for many journals.
+ * <br>
+ * Delivery starts with the entry after the current position of the journal when follow() is called;
+ * e.g. call moveToLatest() before, to get new entries only.
+ * A followed Journal must not be used otherwise, nor closed, until it has been unfollowed;
+ * once unfollow() has returned, the follower does not touch it anymore.
+ *
+ * @author jwilkes
+ * @version $Id: $Id
+ */
+public final class JournalFollower implements AutoCloseable
+{
+    private static final int MAX_ENTRIES_PER_BATCH = 1024; // then the batch is re-queued, so other journals get their turn
+    private static volatile NativeLibC libC;
+
+    private final Executor executor;
+    private final BiConsumer<Journal, RuntimeException> errorHandler;
+    private final Map<Journal, Followed> followed = new ConcurrentHashMap<>();
+    private final Queue<Followed> toArm = new ConcurrentLinkedQueue<>(); // new ones, and those done with a batch
+    private final Pointer wakeupValue;
+    private final Pointer timespec; // for clock_gettime(); loop thread only
+    private int wakeupFd; // eventfd; -1 once closed. guarded by this.
+    private volatile boolean running = true;
+    private final Thread loopThread;
+    // the following are used by the loop thread only
+    private final List<Followed> armed = new ArrayList<>();
+    private Pointer pollFds;
+    private int pollFdCapacity;
+
+    /**
+     * create a follower, and start its thread.
+     * Exceptions thrown by consumers are passed on from the batch task, to the executor.
+     *
+     * @param executor runs the batches; e.g. a small thread pool, or virtual threads.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException if the native setup fails.
+     */
+    public JournalFollower(final Executor executor) throws JJournalException
+        {
+        this(executor, null);
+        }
+
+    /**
+     * create a follower, and start its thread.
+     *
+     * @param executor     runs the batches; e.g. a small thread pool, or virtual threads.
+     * @param errorHandler called with the journal and the exception if a consumer, or the journal, fails;
+     *                     the journal is unfollowed then. Called with journal null if the follower itself fails.
+     *                     null to pass exceptions on from the batch task, to the executor.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException if the native setup fails.
+     */
+    public JournalFollower(final Executor executor, final BiConsumer<Journal, RuntimeException> errorHandler) throws JJournalException
+        {
+        this.executor = executor;
+        this.errorHandler = errorHandler;
+        final NativeLibC c = libC();
+        wakeupFd = c.eventfd(0x00, NativeLibC.EFD_NONBLOCK | NativeLibC.EFD_CLOEXEC);
+        if (wakeupFd < 0x00)
+            throw new JJournalException(-Runtime.getRuntime(c).getLastError());
+        wakeupValue = Memory.allocateDirect(Runtime.getRuntime(c), 8);
+        timespec = Memory.allocateDirect(Runtime.getRuntime(c), 2L * Runtime.getRuntime(c).longSize());
+        loopThread = new Thread(this::loop, "jjournal-follower");
+        loopThread.setDaemon(true);
+        loopThread.start();
+        }
+
+    /**
+     * start following a journal.
+     *
+     * @param journal  the journal, positioned before the first entry to deliver.
+     * @param consumer called for each new entry, with the journal positioned on it.
+     *                 To stop following, throw JJournalException(CONSUMER_ENDING_LOOP).
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException if the journal's change notification cannot be set up.
+     * @throws java.lang.IllegalStateException if the journal is followed already, or the follower has been closed.
+     */
+    public void follow(final Journal journal, final JournalConsumer<Journal, JJournalException> consumer) throws JJournalException
+        {
+        if (!running)
+            throw new IllegalStateException("follower closed");
+        final Followed entry = new Followed(journal, consumer, journal.getFileDescriptor());
+        if (followed.putIfAbsent(journal, entry) != null)
+            throw new IllegalStateException("journal is followed already");
+        // entries may have arrived before the change notification was set up; so start with a batch.
+        dispatch(entry);
+        return;
+        }
+
+    /**
+     * stop following a journal.
+     * If a batch is running for it, this waits until the batch has completed its current entry.
+     * May be called from within the consumer.
+     *
+     * @param journal the journal
+     * @return true if it was followed.
+     */
+    public boolean unfollow(final Journal journal)
+        {
+        final Followed entry = followed.remove(journal);
+        if (entry == null)
+            return false;
+        entry.cancelled = true; // seen by a running batch before its next entry
+        synchronized (entry)
+            {
+            // wait for the running batch, if any, to end.
+            }
+        wakeup();
+        return true;
+        }
+
+    /**
+     * number of journals followed.
+     *
+     * @return the count
+     */
+    public int getFollowedCount()
+        { return followed.size(); }
+
+    /**
+     * stop the follower thread, and unfollow all journals. The journals are not closed.
+     * Batches still running complete their current entry, then end.
+     */
+    @Override
+    public void close()
+        {
+        running = false;
+        for (Followed entry : followed.values())
+            entry.cancelled = true;
+        followed.clear();
+        wakeup();
+        try
+            {
+            loopThread.join();
+            }
+        catch (InterruptedException ex)
+            {
+            Thread.currentThread().interrupt();
+            }
+        synchronized (this)
+            {
+            if (wakeupFd >= 0x00)
+                libC.close(wakeupFd);
+            wakeupFd = -1;
+            }
+        return;
+        }
+
+    //--- the poll loop
+
+    private void loop()
+        {
+        boolean armedChanged = true;
+        while (running)
+            {
+            Followed entry;
+            while ((entry = toArm.poll()) != null)
+                {
+                if (!tryArm(entry))
+                    continue;
+                armed.add(entry);
+                armedChanged = true;
+                }
+            if (armed.removeIf(f -> f.cancelled))
+                armedChanged = true;
+            if (armedChanged)
+                fillPollFds();
+            armedChanged = false;
+
+            final int r = libC.poll(pollFds, armed.size() + 1, pollTimeoutMillis());
+            if (r < 0x00)
+                {
+                final int errno = Runtime.getRuntime(libC).getLastError();
+                if (errno == NativeLibC.EINTR)
+                    continue;
+                running = false;
+                fail(null, new JJournalException(-errno));
+                break;
+                }
+            if (pollFds.getShort(NativeLibC.POLLFD_REVENTS_OFFSET) != 0x00)
+                libC.read(wakeupFd, wakeupValue, 8); // reset the eventfd counter
+
+            // process the journals which signalled, or whose timeout passed; hand off those with changes.
+            final long now = monotonicMicros();
+            int kept = 0x00;
+            for (int i = 0; i < armed.size(); i++)
+                {
+                entry = armed.get(i);
+                final short revents = pollFds.getShort((long) (i + 1) * NativeLibC.POLLFD_SIZE + NativeLibC.POLLFD_REVENTS_OFFSET);
+                if ((revents == 0x00) && ((entry.deadline < 0x00) || (entry.deadline > now)))
+                    {
+                    armed.set(kept++, entry);
+                    continue;
+                    }
+                if (processChanges(entry))
+                    armed.set(kept++, entry);
+                }
+            if (kept != armed.size())
+                {
+                armed.subList(kept, armed.size()).clear();
+                armedChanged = true;
+                }
+            }
+        return;
+        }
+
+    // get ready to watch a journal. false if it failed.
+    private boolean tryArm(final Followed entry)
+        {
+        synchronized (entry)
+            {
+            if (entry.cancelled)
+                return false;
+            try
+                {
+                entry.deadline = entry.journal.getWakeupTimeoutMicroseconds();
+                return true;
+                }
+            catch (RuntimeException ex)
+                {
+                failed(entry, ex);
+                return false;
+                }
+            }
+        }
+
+    // process the changes of a signalled journal; false if it was handed off, or failed.
+    private boolean processChanges(final Followed entry)
+        {
+        synchronized (entry)
+            {
+            if (entry.cancelled)
+                return false;
+            try
+                {
+                if (entry.journal.processChanges() == WakeupEvent.NOP)
+                    {
+                    entry.deadline = entry.journal.getWakeupTimeoutMicroseconds();
+                    return true;
+                    }
+                }
+            catch (RuntimeException ex)
+                {
+                failed(entry, ex);
+                return false;
+                }
+            }
+        dispatch(entry);
+        return false;
+        }
+
+    private void fillPollFds()
+        {
+        final int count = armed.size() + 1;
+        if (count > pollFdCapacity)
+            {
+            pollFdCapacity = Math.max(count, pollFdCapacity * 2);
+            pollFds = Memory.allocateDirect(Runtime.getRuntime(libC), (long) pollFdCapacity * NativeLibC.POLLFD_SIZE);
+            }
+        setPollFd(0x00, wakeupFd);
+        for (int i = 0; i < armed.size(); i++)
+            setPollFd(i + 1, armed.get(i).fd);
+        return;
+        }
+
+    private void setPollFd(final int index, final int fd)
+        {
+        final long offset = (long) index * NativeLibC.POLLFD_SIZE;
+        pollFds.putInt(offset, fd);
+        pollFds.putShort(offset + NativeLibC.POLLFD_EVENTS_OFFSET, NativeLibC.POLLIN);
+        pollFds.putShort(offset + NativeLibC.POLLFD_REVENTS_OFFSET, (short) 0x00);
+        return;
+        }
+
+    // the earliest native timeout of the watched journals; -1 if there is none.
+    private int pollTimeoutMillis()
+        {
+        long earliest = Long.MAX_VALUE;
+        for (Followed entry : armed)
+            {
+            if ((entry.deadline >= 0x00) && (entry.deadline < earliest))
+                earliest = entry.deadline;
+            }
+        if (earliest == Long.MAX_VALUE)
+            return -1;
+        final long remainingMicros = earliest - monotonicMicros();
+        if (remainingMicros <= 0x00)
+            return 0x00;
+        return (int) Math.min(Integer.MAX_VALUE, (remainingMicros + 999) / 1000);
+        }
+
+    // CLOCK_MONOTONIC in microseconds, the clock of the native timeouts. System.nanoTime() has an unspecified origin.
+    private long monotonicMicros()
+        {
+        if (libC.clock_gettime(NativeLibC.CLOCK_MONOTONIC, timespec) != 0x00)
+            return 0x00; // cannot fail for CLOCK_MONOTONIC on Linux; if it did, all deadlines would count as pending.
+        final int longSize = Runtime.getRuntime(libC).longSize();
+        return timespec.getNativeLong(0x00) * 1000000L + timespec.getNativeLong(longSize) / 1000;
+        }
+
+    //--- batches, on the executor
+
+    private void dispatch(final Followed entry)
+        {
+        try
+            {
+            executor.execute(entry);
+            }
+        catch (RuntimeException rejected)
+            {
+            failed(entry, rejected);
+            }
+        return;
+        }
+
+    // the batch is done; watch the journal again.
+    private void rearm(final Followed entry)
+        {
+        toArm.add(entry);
+        wakeup();
+        return;
+        }
+
+    private synchronized void wakeup()
+        {
+        if (wakeupFd < 0x00)
+            return;
+        wakeupValue.putLong(0x00, 1L);
+        libC.write(wakeupFd, wakeupValue, 8);
+        return;
+        }
+
+    private void failed(final Followed entry, final RuntimeException ex)
+        {
+        entry.cancelled = true;
+        followed.remove(entry.journal, entry);
+        fail(entry.journal, ex);
+        return;
+        }
+
+    private void fail(final Journal journal, final RuntimeException ex)
+        {
+        if (errorHandler != null)
+            errorHandler.accept(journal, ex);
+        else if (Thread.currentThread() != loopThread)
+            throw ex; // to the executor, or the caller of follow()
+        else
+            executor.execute(() -> { throw ex; }); // the loop thread must go on; pass it to the executor as well.
+        return;
+        }
+
+    private static NativeLibC libC()
+        {
+        NativeLibC c = libC;
+        if (c == null)
+            {
+            c = Journal.getLibC();
+            libC = c;
+            }
+        return c;
+        }
+
+    private final class Followed implements Runnable
+    {
+        final Journal journal;
+        final JournalConsumer<Journal, JJournalException> consumer;
+        final int fd;
+        volatile boolean cancelled;
+        long deadline = -1; // CLOCK_MONOTONIC microseconds for processChanges() at the latest; -1 for none. loop thread only.
+
+        Followed(final Journal journal, final JournalConsumer<Journal, JJournalException> consumer, final int fd)
+            {
+            this.journal = journal;
+            this.consumer = consumer;
+            this.fd = fd;
+            }
+
+        // one batch: the new entries of the journal.
+        @Override
+        public void run()
+            {
+            boolean more = false;
+            synchronized (this)
+                {
+                try
+                    {
+                    int count = 0x00;
+                    while (!cancelled && journal.moveToNext())
+                        {
+                        consumer.accept(journal);
+                        if (++count >= MAX_ENTRIES_PER_BATCH)
+                            {
+                            more = true; // there may be more; continue in a new task.
+                            break;
+                            }
+                        }
+                    }
+                catch (JJournalException ex)
+                    {
+                    if (ex.getCode() != CONSUMER_ENDING_LOOP)
+                        {
+                        failed(this, ex);
+                        return;
+                        }
+                    cancelled = true;
+                    followed.remove(journal, this);
+                    return;
+                    }
+                catch (RuntimeException ex)
+                    {
+                    failed(this, ex);
+                    return;
+                    }
+                }
+            if (cancelled)
+                return;
+            if (more)
+                dispatch(this);
+            else
+                rearm(this);
+            return;
+            }
+    }
+}
+//___EOF___
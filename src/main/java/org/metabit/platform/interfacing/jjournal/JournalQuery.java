@@ -0,0 +1,548 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.metabit.platform.interfacing.jjournal.JJournalException.ErrorCodes.CONSUMER_ENDING_LOOP;
+
+/**
+ * an immutable query predicate, split into a native filter and a residual predicate; see Journal.foreachMatching().
+ * <br>
+ * Exact matches (equalTo(), matching(), priorityRange()) can be evaluated by libsystemd; substring and regular
+ * expression conditions (contains(), search()) cannot. On construction, the query is split: the native part is pushed down as a JournalFilter, so only entries
+ * passing it are read at all, and the residual part is evaluated on the raw field bytes of those entries, through
+ * FieldView, without decoding Strings. Only entries passing both are read completely.
+ * <br>
+ * AND distributes over both parts. An OR with residual branches is evaluated completely as residual; if all its
+ * branches have native parts, their OR is still pushed down, as a superset. NOT is residual.
+ * <br>
+ * Prefix and glob conditions (startsWith(), glob()) are resolved against a journal before use: the distinct values of
+ * the field are enumerated from the journal's field index, and those matching become a native OR of exact matches.
+ * If more values match than the expansion limit of the condition, it stays residual. Journal.foreachMatching()
+ * does this itself; see resolve().
+ * Residual conditions see values as cut by an enforced data threshold; and an entry without the field never matches
+ * a condition on it. Needles and values given as String are encoded in UTF-8.
+ *
+ * @author jwilkes
+ * @version $Id: $Id
+ */
+public final class JournalQuery
+{
+    private final JournalFilter pushdown;  // what the native matcher can do; JournalFilter.all() if nothing
+    private final JournalQuery residual;   // what is left to check per entry; null if nothing
+    private final Evaluation evaluation;   // the complete predicate, on raw bytes
+    private final String description;
+    private final Binder binder;           // resolves prefix and glob conditions for a journal; null if there are none
+
+    /** number of values a prefix or glob condition may expand to by default, before it is left residual. */
+    public static final int DEFAULT_EXPANSION_LIMIT = 64;
+
+    // evaluation on the current entry of a journal; the view is scratch space.
+    interface Evaluation
+    {
+        boolean test(Journal journal, FieldView view) throws JJournalException;
+    }
+
+    // the query with prefix and glob conditions expanded for a journal.
+    private interface Binder
+    {
+        JournalQuery bind(Journal journal) throws JJournalException;
+    }
+
+    private JournalQuery(final JournalFilter pushdown, final JournalQuery residual, final Evaluation evaluation, final String description, final Binder binder)
+        {
+        this.pushdown = pushdown;
+        this.residual = residual;
+        this.evaluation = evaluation;
+        this.description = description;
+        this.binder = binder;
+        }
+
+    // a condition the native matcher cannot do: residual as a whole.
+    private JournalQuery(final Evaluation evaluation, final String description, final Binder binder)
+        {
+        this.pushdown = JournalFilter.all();
+        this.residual = this;
+        this.evaluation = evaluation;
+        this.description = description;
+        this.binder = binder;
+        }
+
+    private static JournalQuery residualLeaf(final Evaluation evaluation, final String description)
+        {
+        return new JournalQuery(evaluation, description, null);
+        }
+
+    //--- native leaves
+
+    /**
+     * entries matching a filter expression; pushed down completely.
+     *
+     * @param filter the filter
+     * @return the query
+     */
+    public static JournalQuery matching(final JournalFilter filter)
+        {
+        return new JournalQuery(filter, null, filter::matches, filter.toString(), null);
+        }
+
+    /**
+     * entries with a field equal to a value; pushed down.
+     *
+     * @param field the field
+     * @param value value to match exactly
+     * @return the query
+     */
+    public static JournalQuery equalTo(final JournalField field, final String value)
+        {
+        return matching(JournalFilter.match(field, value));
+        }
+
+    /**
+     * entries with a syslog priority in a range, e.g. 0 to 4 for "warning and more severe"; pushed down.
+     *
+     * @param mostSevere  the lowest number, 0 (emergency) or more
+     * @param leastSevere the highest number, up to 7 (debug)
+     * @return the query
+     * @throws java.lang.IllegalArgumentException if the range is not within 0 to 7.
+     */
+    public static JournalQuery priorityRange(final int mostSevere, final int leastSevere)
+        {
+        return matching(JournalFilter.priorityRange(mostSevere, leastSevere));
+        }
+
+    //--- residual leaves
+
+    /**
+     * entries with a field containing a byte sequence, e.g. a word in MESSAGE.
+     *
+     * @param field  the field
+     * @param needle the text to look for
+     * @return the query
+     */
+    public static JournalQuery contains(final JournalField field, final String needle)
+        {
+        return search(field, FieldSearch.forSubstrings(needle));
+        }
+
+    /**
+     * entries with a field matching a FieldSearch, e.g. any of several words, or a regular expression, in MESSAGE.
+     *
+     * @param field  the field
+     * @param search the search, applied to the raw bytes of the value
+     * @return the query
+     */
+    public static JournalQuery search(final JournalField field, final FieldSearch search)
+        {
+        final CompiledField compiled = field.getCompiledField();
+        return residualLeaf((journal, view) -> journal.readFieldViewIfPresent(compiled, view) && search.matches(view),
+                field.getValue() + "~" + search);
+        }
+
+    /**
+     * entries with a field starting with a byte sequence, e.g. a unit name prefix.
+     * Expanded to exact matches on resolve(), up to DEFAULT_EXPANSION_LIMIT values.
+     *
+     * @param field  the field
+     * @param prefix the start to look for
+     * @return the query
+     */
+    public static JournalQuery startsWith(final JournalField field, final String prefix)
+        {
+        return startsWith(field, prefix, DEFAULT_EXPANSION_LIMIT);
+        }
+
+    /**
+     * entries with a field starting with a byte sequence, e.g. a unit name prefix.
+     *
+     * @param field  the field
+     * @param prefix the start to look for
+     * @param expansionLimit maximum number of values to expand to on resolve(); 0 to leave the condition residual.
+     * @return the query
+     */
+    public static JournalQuery startsWith(final JournalField field, final String prefix, final int expansionLimit)
+        {
+        return valuePattern(field, ValuePattern.prefix(prefix.getBytes(StandardCharsets.UTF_8)), expansionLimit, field.getValue() + "~" + prefix + "*");
+        }
+
+    /**
+     * entries with a field matching a glob pattern, e.g. "nginx@*.service" on _SYSTEMD_UNIT.
+     * '*' matches any sequence, '?' any single character; a backslash makes the next character literal.
+     * Expanded to exact matches on resolve(), up to DEFAULT_EXPANSION_LIMIT values.
+     *
+     * @param field   the field
+     * @param pattern the glob pattern, matched against the whole value
+     * @return the query
+     */
+    public static JournalQuery glob(final JournalField field, final String pattern)
+        {
+        return glob(field, pattern, DEFAULT_EXPANSION_LIMIT);
+        }
+
+    /**
+     * entries with a field matching a glob pattern; see glob(JournalField, String).
+     *
+     * @param field   the field
+     * @param pattern the glob pattern, matched against the whole value
+     * @param expansionLimit maximum number of values to expand to on resolve(); 0 to leave the condition residual.
+     * @return the query
+     */
+    public static JournalQuery glob(final JournalField field, final String pattern, final int expansionLimit)
+        {
+        return valuePattern(field, ValuePattern.glob(pattern), expansionLimit, field.getValue() + "~" + pattern);
+        }
+
+    //--- combinations
+
+    /**
+     * entries matching all of the queries.
+     *
+     * @param queries the queries; none for all entries.
+     * @return the combined query
+     */
+    public static JournalQuery allOf(final JournalQuery... queries)
+        {
+        JournalFilter combinedPushdown = JournalFilter.all();
+        JournalQuery combinedResidual = null;
+        for (JournalQuery query : queries)
+            {
+            combinedPushdown = combinedPushdown.and(query.pushdown);
+            if (query.residual != null)
+                combinedResidual = (combinedResidual == null) ? query.residual : bothOf(combinedResidual, query.residual);
+            }
+        final Evaluation[] parts = evaluations(queries);
+        return new JournalQuery(combinedPushdown, combinedResidual, (journal, view) ->
+            {
+            for (Evaluation part : parts)
+                if (!part.test(journal, view))
+                    return false;
+            return true;
+            }, join(queries, " & "), needsBinding(queries) ? journal -> allOf(bindAll(queries, journal)) : null);
+        }
+
+    /**
+     * entries matching any of the queries.
+     *
+     * @param queries the queries; at least one.
+     * @return the combined query
+     * @throws java.lang.IllegalArgumentException if no query is given.
+     */
+    public static JournalQuery anyOf(final JournalQuery... queries)
+        {
+        if (queries.length == 0x00)
+            throw new IllegalArgumentException("at least one query required");
+        boolean anyResidual = false;
+        boolean allPushedDown = true;
+        final JournalFilter[] pushdowns = new JournalFilter[queries.length];
+        for (int i = 0; i < queries.length; i++)
+            {
+            anyResidual |= (queries[i].residual != null);
+            allPushedDown &= !queries[i].pushdown.isAll();
+            pushdowns[i] = queries[i].pushdown;
+            }
+        final Evaluation[] parts = evaluations(queries);
+        final Evaluation any = (journal, view) ->
+            {
+            for (Evaluation part : parts)
+                if (part.test(journal, view))
+                    return true;
+            return false;
+            };
+        final String text = "(" + join(queries, " | ") + ")";
+        final JournalFilter superset = allPushedDown ? JournalFilter.anyOf(pushdowns) : JournalFilter.all();
+        final Binder binder = needsBinding(queries) ? journal -> anyOf(bindAll(queries, journal)) : null;
+        if (!anyResidual)
+            return new JournalQuery(superset, null, any, text, binder);
+        return new JournalQuery(superset, residualLeaf(any, text), any, text, binder); // the superset is checked again, but cheaply
+        }
+
+    /**
+     * entries not matching a query; evaluated as residual.
+     *
+     * @param query the query to negate
+     * @return the negated query
+     */
+    public static JournalQuery not(final JournalQuery query)
+        {
+        final Evaluation inner = query.evaluation;
+        return new JournalQuery((journal, view) -> !inner.test(journal, view), "!(" + query + ")",
+                (query.binder == null) ? null : journal -> not(query.resolve(journal)));
+        }
+
+    /**
+     * entries matching this query and the other.
+     *
+     * @param other the other query
+     * @return the combined query
+     */
+    public JournalQuery and(final JournalQuery other)
+        { return allOf(this, other); }
+
+    /**
+     * entries matching this query or the other.
+     *
+     * @param other the other query
+     * @return the combined query
+     */
+    public JournalQuery or(final JournalQuery other)
+        { return anyOf(this, other); }
+
+    //--- the split
+
+    /**
+     * the part of the query libsystemd evaluates.
+     *
+     * @return the native filter; JournalFilter.all() if nothing can be pushed down.
+     */
+    public JournalFilter getNativeFilter()
+        { return pushdown; }
+
+    /**
+     * whether entries passing the native filter need to be checked further.
+     *
+     * @return true if there is a residual predicate.
+     */
+    public boolean hasResidual()
+        { return residual != null; }
+
+    /**
+     * the query, in a readable form; "~" marks residual conditions.
+     *
+     * @return the description
+     */
+    @Override
+    public String toString()
+        { return description; }
+
+    /**
+     * the query with its prefix and glob conditions expanded for a journal: each becomes a native OR of the values
+     * of the field in the journal which match, or stays residual if there are more than its expansion limit.
+     * Values written later are not included; resolve again for long-running reads.
+     *
+     * @param journal the journal whose values are used; its position and matches are not changed.
+     * @return the resolved query; this query if there is nothing to resolve.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException if enumerating the values fails.
+     */
+    public JournalQuery resolve(final Journal journal) throws JJournalException
+        {
+        return (binder == null) ? this : binder.bind(journal);
+        }
+
+    // check the current entry against the residual predicate; the native filter is assumed to have been applied.
+    boolean testResidual(final Journal journal, final FieldView view) throws JJournalException
+        {
+        return (residual == null) || residual.evaluation.test(journal, view);
+        }
+
+    // check the current entry against the complete predicate.
+    boolean test(final Journal journal, final FieldView view) throws JJournalException
+        {
+        return evaluation.test(journal, view);
+        }
+
+    private static JournalQuery bothOf(final JournalQuery a, final JournalQuery b)
+        {
+        final Evaluation first = a.evaluation;
+        final Evaluation second = b.evaluation;
+        return residualLeaf((journal, view) -> first.test(journal, view) && second.test(journal, view), a + " & " + b);
+        }
+
+    // a prefix or glob condition; residual, until resolved.
+    private static JournalQuery valuePattern(final JournalField field, final ValuePattern pattern, final int expansionLimit, final String description)
+        {
+        if (expansionLimit < 0x00)
+            throw new IllegalArgumentException("expansion limit must not be negative");
+        final CompiledField compiled = field.getCompiledField();
+        final Evaluation evaluation = (journal, view) -> journal.readFieldViewIfPresent(compiled, view) && pattern.matches(view);
+        return new JournalQuery(evaluation, description, journal ->
+            {
+            final List<byte[]> values = expand(journal, compiled, pattern, expansionLimit);
+            if (values == null)
+                return residualLeaf(evaluation, description);
+            if (values.isEmpty())
+                values.add(pattern.literal()); // matches the pattern, so no entry has it: a native "nothing".
+            JournalFilter expanded = null;
+            for (byte[] value : values)
+                {
+                final JournalFilter match = JournalFilter.match(field, value);
+                expanded = (expanded == null) ? match : expanded.or(match);
+                }
+            return matching(expanded);
+            });
+        }
+
+    // the distinct values of a field which match; null if there are more than the limit, or some may have been cut.
+    private static List<byte[]> expand(final Journal journal, final CompiledField field, final ValuePattern pattern, final int limit) throws JJournalException
+        {
+        if (limit == 0x00)
+            return null;
+        final long threshold = journal.getDataThreshold();
+        final List<byte[]> values = new ArrayList<>();
+        final Set<String> seen = new HashSet<>(); // values may be delivered once per journal file
+        final boolean[] exceeded = new boolean[1];
+        journal.foreachUniqueValue(field, view ->
+            {
+            if (!pattern.matches(view))
+                return;
+            if ((values.size() >= limit) || ((threshold > 0x00) && (field.getNameLength() + 1 + view.length() >= threshold)))
+                {
+                exceeded[0x00] = true;
+                throw new JJournalException(CONSUMER_ENDING_LOOP);
+                }
+            final byte[] value = new byte[view.length()];
+            view.copyTo(value, 0x00);
+            if (seen.add(new String(value, StandardCharsets.ISO_8859_1)))
+                values.add(value);
+            });
+        return exceeded[0x00] ? null : values;
+        }
+
+    private static boolean needsBinding(final JournalQuery[] queries)
+        {
+        for (JournalQuery query : queries)
+            if (query.binder != null)
+                return true;
+        return false;
+        }
+
+    private static JournalQuery[] bindAll(final JournalQuery[] queries, final Journal journal) throws JJournalException
+        {
+        final JournalQuery[] bound = new JournalQuery[queries.length];
+        for (int i = 0; i < queries.length; i++)
+            bound[i] = queries[i].resolve(journal);
+        return bound;
+        }
+
+    private static Evaluation[] evaluations(final JournalQuery[] queries)
+        {
+        final Evaluation[] parts = new Evaluation[queries.length];
+        for (int i = 0; i < queries.length; i++)
+            parts[i] = queries[i].evaluation;
+        return parts;
+        }
+
+    private static String join(final JournalQuery[] queries, final String separator)
+        {
+        final StringBuilder sb = new StringBuilder();
+        for (JournalQuery query : queries)
+            {
+            if (sb.length() > 0x00)
+                sb.append(separator);
+            sb.append(query.description);
+            }
+        return sb.toString();
+        }
+
+    /*
+     * a glob pattern on raw value bytes, compiled to tokens: a byte value, ANY_CHARACTER, or ANY_SEQUENCE.
+     * '?' skips one UTF-8 encoded character, not one byte.
+     */
+    private static final class ValuePattern
+    {
+        private static final int ANY_SEQUENCE = -1;
+        private static final int ANY_CHARACTER = -2;
+        private final int[] tokens;
+
+        private ValuePattern(final int[] tokens)
+            { this.tokens = tokens; }
+
+        static ValuePattern prefix(final byte[] prefix)
+            {
+            final int[] tokens = new int[prefix.length + 1];
+            for (int i = 0; i < prefix.length; i++)
+                tokens[i] = prefix[i] & 0xFF;
+            tokens[prefix.length] = ANY_SEQUENCE;
+            return new ValuePattern(tokens);
+            }
+
+        static ValuePattern glob(final String pattern)
+            {
+            final byte[] bytes = pattern.getBytes(StandardCharsets.UTF_8);
+            final int[] tokens = new int[bytes.length];
+            int count = 0x00;
+            for (int i = 0; i < bytes.length; i++)
+                {
+                switch (bytes[i])
+                    {
+                    case '*':
+                        if ((count == 0x00) || (tokens[count - 1] != ANY_SEQUENCE)) // "**" is "*"
+                            tokens[count++] = ANY_SEQUENCE;
+                        break;
+                    case '?':
+                        tokens[count++] = ANY_CHARACTER;
+                        break;
+                    case '\\':
+                        if (i + 1 < bytes.length)
+                            i++;
+                        tokens[count++] = bytes[i] & 0xFF;
+                        break;
+                    default:
+                        tokens[count++] = bytes[i] & 0xFF;
+                    }
+                }
+            return new ValuePattern(Arrays.copyOf(tokens, count));
+            }
+
+        // a value which matches the pattern: the pattern itself, with the wildcards taken literally.
+        byte[] literal()
+            {
+            final byte[] literal = new byte[tokens.length];
+            for (int i = 0; i < tokens.length; i++)
+                literal[i] = (byte) ((tokens[i] == ANY_SEQUENCE) ? '*' : (tokens[i] == ANY_CHARACTER) ? '?' : tokens[i]);
+            return literal;
+            }
+
+        // wildcard matching with backtracking to the most recent '*' only, which is linear for most patterns.
+        boolean matches(final FieldView view)
+            {
+            final int length = view.length();
+            int t = 0x00;
+            int v = 0x00;
+            int starToken = -1;
+            int starValue = 0x00;
+            while (v < length)
+                {
+                if ((t < tokens.length) && (tokens[t] == ANY_CHARACTER))
+                    {
+                    v = nextCharacter(view, v, length);
+                    t++;
+                    }
+                else if ((t < tokens.length) && (tokens[t] == (view.byteAt(v) & 0xFF)))
+                    {
+                    v++;
+                    t++;
+                    }
+                else if ((t < tokens.length) && (tokens[t] == ANY_SEQUENCE))
+                    {
+                    starToken = t++;
+                    starValue = v;
+                    }
+                else if (starToken >= 0x00)
+                    {
+                    t = starToken + 1;
+                    starValue = nextCharacter(view, starValue, length);
+                    v = starValue;
+                    }
+                else
+                    return false;
+                }
+            while ((t < tokens.length) && (tokens[t] == ANY_SEQUENCE))
+                t++;
+            return t == tokens.length;
+            }
+
+        // skip a UTF-8 lead byte and its continuation bytes.
+        private static int nextCharacter(final FieldView view, final int offset, final int length)
+            {
+            int next = offset + 1;
+            while ((next < length) && ((view.byteAt(next) & 0xC0) == 0x80))
+                next++;
+            return next;
+            }
+    }
+}
+//___EOF___
@@ -0,0 +1,133 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * the Spliterator behind Journal.stream(): the entries in a realtime range [from, to), read through a handle of its own.
+ * <br>
+ * trySplit() halves the time range, as long as traversal has not started; each part opens its own handle when it
+ * starts, and locates its first entry with the realtime seek. The size estimate is the length of the time range,
+ * which is not an entry count, but gives the stream framework the ratios it needs to split evenly.
+ * All parts of a stream share one set of open handles, so closing the stream closes those not read to the end.
+ *
+ * @author jwilkes
+ * @version $Id: $Id
+ */
+final class JournalSpliterator implements Spliterator<JournalEntry>
+{
+    private static final long MINIMUM_PART_MICROSECONDS = Journal.MILLION; // parts shorter than this are not split further
+
+    private final Supplier<Journal> opener;
+    private final Set<Journal> openJournals; // shared by all parts of the stream
+    private long from;
+    private final long to;
+    private boolean started;
+    private boolean positionedOnEntry; // the initial seek has selected an entry not delivered yet
+    private Journal journal; // null before the start, and after the end
+    private JournalEntry scratch;
+
+    JournalSpliterator(final Supplier<Journal> opener, final long from, final long to)
+        {
+        this(opener, ConcurrentHashMap.newKeySet(), from, to);
+        }
+
+    private JournalSpliterator(final Supplier<Journal> opener, final Set<Journal> openJournals, final long from, final long to)
+        {
+        this.opener = opener;
+        this.openJournals = openJournals;
+        this.from = from;
+        this.to = to;
+        }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean tryAdvance(final Consumer<? super JournalEntry> action)
+        {
+        if (!started)
+            start();
+        if (journal == null)
+            return false;
+        while (true)
+            {
+            if (positionedOnEntry)
+                positionedOnEntry = false;
+            else if (!journal.moveToNext())
+                break;
+            final long timestamp = journal.getTimestampAsMicrosecondsLong();
+            if (timestamp >= to)
+                break;
+            if (timestamp < from)
+                continue; // out of order; it belongs to an earlier part.
+            journal.readEntry(scratch);
+            action.accept(scratch.snapshot());
+            return true;
+            }
+        end();
+        return false;
+        }
+
+    /** {@inheritDoc} */
+    @Override
+    public Spliterator<JournalEntry> trySplit()
+        {
+        if (started || (to - from < 2 * MINIMUM_PART_MICROSECONDS))
+            return null;
+        final long middle = from + (to - from) / 2;
+        final JournalSpliterator prefix = new JournalSpliterator(opener, openJournals, from, middle);
+        from = middle;
+        return prefix;
+        }
+
+    /** {@inheritDoc} */
+    @Override
+    public long estimateSize()
+        {
+        return (journal == null && started) ? 0x00 : Math.max(to - from, 0x00);
+        }
+
+    /** {@inheritDoc} */
+    @Override
+    public int characteristics()
+        {
+        return ORDERED | NONNULL;
+        }
+
+    // close the handles of all parts which have not been read to the end.
+    void closeAll()
+        {
+        for (Journal open : openJournals)
+            open.close();
+        openJournals.clear();
+        return;
+        }
+
+    private void start()
+        {
+        started = true;
+        if (from >= to)
+            return;
+        journal = opener.get();
+        openJournals.add(journal);
+        scratch = new JournalEntry();
+        if (journal.moveForwardUntilTime(Instant.ofEpochSecond(from / Journal.MILLION, from % Journal.MILLION * 1000)))
+            positionedOnEntry = true;
+        else
+            end();
+        return;
+        }
+
+    private void end()
+        {
+        openJournals.remove(journal);
+        journal.close();
+        journal = null;
+        scratch = null;
+        return;
+        }
+}
+//___EOF___
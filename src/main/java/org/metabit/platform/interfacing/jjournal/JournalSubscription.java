@@ -0,0 +1,232 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * demand-driven reading of one journal, for one subscriber; the engine behind JournalPublisher.
+ * <br>
+ * The cursor is advanced only while there is outstanding demand; when the subscriber stops requesting,
+ * the native cursor stays where it is, and nothing is buffered. Each entry is mapped and handed
+ * to the sink right away, on an executor thread; at most one such task runs at any time,
+ * so the Journal is never used by two threads at once, and the sink gets its calls one after the other.
+ * The Journal is opened on first demand, and closed on completion, error, or cancel.
+ * <br>
+ * Kept free of java.util.concurrent.Flow, so it compiles for Java 8; the Flow adapter is in src/main/java9.
+ *
+ * @param <T> the type of items delivered
+ * @author jwilkes
+ * @version $Id: $Id
+ */
+final class JournalSubscription<T> implements Runnable
+{
+    // how long a following subscription waits for changes at once, before checking for cancel.
+    static final Duration FOLLOW_WAIT = Duration.ofMillis(250);
+
+    /**
+     * the receiving end, in the order of the reactive streams signals.
+     *
+     * @param <T> the type of items delivered
+     */
+    interface Sink<T>
+    {
+        void onNext(T item);
+        void onError(Throwable failure);
+        void onComplete();
+    }
+
+    private final Supplier<Journal> opener;
+    private final Function<Journal, ? extends T> mapper;
+    private final Instant startTime;
+    private final long endTimeAsLong;
+    private final boolean follow;
+    private final Executor executor;
+    private final Sink<? super T> sink;
+
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger pendingRuns = new AtomicInteger();
+    private volatile boolean cancelled;
+    private volatile Throwable invalidRequest;
+    // the following are used from within run() only
+    private Journal journal;
+    private boolean positionedOnEntry; // the seek to startTime has selected an entry not delivered yet
+    private boolean done;
+
+    JournalSubscription(final Supplier<Journal> opener, final Function<Journal, ? extends T> mapper, final Instant startTime, final Instant endTime, final boolean follow, final Executor executor, final Sink<? super T> sink)
+        {
+        this.opener = opener;
+        this.mapper = mapper;
+        this.startTime = startTime;
+        this.endTimeAsLong = (endTime == null) ? Long.MAX_VALUE : Journal.instantToMicroseconds(endTime);
+        this.follow = follow;
+        this.executor = executor;
+        this.sink = sink;
+        }
+
+    /**
+     * add demand. May be called from any thread, also from within the sink.
+     *
+     * @param n number of additional items; must be positive.
+     */
+    void request(final long n)
+        {
+        if (n <= 0x00)
+            {
+            invalidRequest = new IllegalArgumentException("non-positive request: "+n);
+            cancelled = true;
+            }
+        else
+            demand.getAndUpdate(d -> (d + n < 0x00) ? Long.MAX_VALUE : d + n); // saturating, as the spec demands
+        schedule();
+        return;
+        }
+
+    /**
+     * stop delivery. The journal is closed on the executor, once a running task has completed its current entry.
+     */
+    void cancel()
+        {
+        cancelled = true;
+        schedule();
+        return;
+        }
+
+    private void schedule()
+        {
+        if (pendingRuns.getAndIncrement() != 0x00)
+            return; // a run is active, and will see the change.
+        try
+            {
+            executor.execute(this);
+            }
+        catch (RejectedExecutionException ex)
+            {
+            // no thread to close the journal on; it is not shared, so doing it here is safe.
+            cancelled = true;
+            finish();
+            sink.onError(ex);
+            }
+        return;
+        }
+
+    /** {@inheritDoc} */
+    @Override
+    public void run()
+        {
+        int missed = 1;
+        do
+            {
+            drain();
+            missed = pendingRuns.addAndGet(-missed);
+            }
+        while (missed != 0x00);
+        return;
+        }
+
+    private void drain()
+        {
+        if (done)
+            return;
+        if (cancelled)
+            {
+            finish();
+            if (invalidRequest != null)
+                sink.onError(invalidRequest);
+            return;
+            }
+        try
+            {
+            if (journal == null)
+                open();
+            while (demand.get() > 0x00)
+                {
+                if (!advance())
+                    {
+                    if (!cancelled) // end of the range, or of the journal when not following
+                        {
+                        finish();
+                        sink.onComplete();
+                        }
+                    return;
+                    }
+                final T next = mapper.apply(journal);
+                if (cancelled)
+                    return;
+                demand.decrementAndGet();
+                // exceptions from the subscriber itself are not reported back to it; they go to the executor.
+                try
+                    {
+                    sink.onNext(next);
+                    }
+                catch (RuntimeException ex)
+                    {
+                    cancelled = true;
+                    finish();
+                    throw ex;
+                    }
+                if (cancelled)
+                    return;
+                }
+            return;
+            }
+        catch (RuntimeException ex)
+            {
+            if (done)
+                throw ex; // from the subscriber, see above
+            finish();
+            sink.onError(ex);
+            }
+        return;
+        }
+
+    private void open()
+        {
+        journal = opener.get();
+        if (startTime == null)
+            return;
+        if (journal.moveForwardUntilTime(startTime))
+            positionedOnEntry = true;
+        else if (follow)
+            journal.moveToLatest(); // nothing there yet; wait for it.
+        return;
+        }
+
+    // move to the next entry to deliver; false at the end of the range, or on cancel while waiting.
+    private boolean advance()
+        {
+        if (positionedOnEntry)
+            positionedOnEntry = false;
+        else
+            {
+            while (!journal.moveToNext())
+                {
+                if (!follow)
+                    return false;
+                // holds the executor thread while waiting; it is released as soon as the demand is met.
+                do
+                    {
+                    if (cancelled)
+                        return false;
+                    }
+                while (journal.waitForChanges(FOLLOW_WAIT) == WakeupEvent.NOP);
+                }
+            }
+        return (journal.getTimestampAsMicrosecondsLong() < endTimeAsLong);
+        }
+
+    private void finish()
+        {
+        done = true;
+        if (journal != null)
+            journal.close();
+        journal = null;
+        return;
+        }
+}
+//___EOF___
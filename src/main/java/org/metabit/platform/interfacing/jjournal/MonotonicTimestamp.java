@@ -0,0 +1,155 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * the monotonic timestamp of a journal entry: the boot it was logged in, and the microseconds since that boot started.
+ * Unlike the realtime timestamp, it is not affected by changes to the wall clock.
+ * <br>
+ * This is a reusable holder; Journal.readMonotonicTimestamp() overwrites its contents without allocating.
+ * The boot ID is kept as the two halves of a UUID, in the byte order of its usual text form
+ * (the 32 hex digits found in the _BOOT_ID field).
+ *
+ * @author jwilkes
+ * @version $Id: $Id
+ */
+public final class MonotonicTimestamp
+{
+    private long bootIdHigh;
+    private long bootIdLow;
+    private long microseconds;
+
+    /**
+     * create an empty holder, to be filled by Journal.readMonotonicTimestamp().
+     */
+    public MonotonicTimestamp()
+        {
+        }
+
+    /**
+     * create a timestamp, e.g. as target for Journal.moveToBootTime().
+     *
+     * @param bootId       the boot ID
+     * @param microseconds microseconds since the start of that boot
+     */
+    public MonotonicTimestamp(final UUID bootId, final long microseconds)
+        {
+        set(bootId.getMostSignificantBits(), bootId.getLeastSignificantBits(), microseconds);
+        }
+
+    void set(final long bootIdHigh, final long bootIdLow, final long microseconds)
+        {
+        this.bootIdHigh = bootIdHigh;
+        this.bootIdLow = bootIdLow;
+        this.microseconds = microseconds;
+        return;
+        }
+
+    /**
+     * microseconds since the start of the boot.
+     *
+     * @return the monotonic timestamp in microseconds
+     */
+    public long getMicroseconds()
+        { return microseconds; }
+
+    /**
+     * time since the start of the boot.
+     *
+     * @return the monotonic timestamp as Duration
+     */
+    public Duration getSinceBoot()
+        { return Duration.ofSeconds(microseconds/Journal.MILLION, microseconds%Journal.MILLION*1000); }
+
+    /**
+     * the boot ID.
+     *
+     * @return the boot ID as UUID; a new object on each call.
+     */
+    public UUID getBootId()
+        { return new UUID(bootIdHigh, bootIdLow); }
+
+    /**
+     * the first 8 bytes of the boot ID, as in UUID.getMostSignificantBits().
+     *
+     * @return the upper half of the boot ID
+     */
+    public long getBootIdMostSignificantBits()
+        { return bootIdHigh; }
+
+    /**
+     * the last 8 bytes of the boot ID, as in UUID.getLeastSignificantBits().
+     *
+     * @return the lower half of the boot ID
+     */
+    public long getBootIdLeastSignificantBits()
+        { return bootIdLow; }
+
+    /**
+     * check the boot ID, without allocating.
+     *
+     * @param bootId the boot ID to compare with
+     * @return true if this timestamp is from the given boot
+     */
+    public boolean isFromBoot(final UUID bootId)
+        {
+        return (bootId.getMostSignificantBits() == bootIdHigh) && (bootId.getLeastSignificantBits() == bootIdLow);
+        }
+
+    /**
+     * check the boot ID against another timestamp, without allocating.
+     *
+     * @param other the other timestamp
+     * @return true if both timestamps are from the same boot, so their microseconds can be compared.
+     */
+    public boolean isSameBoot(final MonotonicTimestamp other)
+        {
+        return (other.bootIdHigh == bootIdHigh) && (other.bootIdLow == bootIdLow);
+        }
+
+    /**
+     * the boot ID in the form used by the journal, 32 lowercase hex digits without dashes.
+     *
+     * @return the boot ID as String, e.g. for matching on the _BOOT_ID field
+     */
+    public String getBootIdAsString()
+        {
+        return toHex(bootIdHigh) + toHex(bootIdLow);
+        }
+
+    /**
+     * parse a boot ID, either in the form used by the journal (32 hex digits), or in UUID form (with dashes).
+     *
+     * @param bootId the boot ID as String, e.g. the value of a _BOOT_ID field
+     * @return the boot ID as UUID
+     * @throws java.lang.IllegalArgumentException if the String is not a valid ID.
+     */
+    public static UUID parseBootId(final String bootId)
+        {
+        if (bootId.length() != 32)
+            return UUID.fromString(bootId);
+        try
+            {
+            return new UUID(Long.parseUnsignedLong(bootId.substring(0x00, 16), 16), Long.parseUnsignedLong(bootId.substring(16), 16));
+            }
+        catch (NumberFormatException invalid)
+            {
+            throw new IllegalArgumentException("invalid ID: "+bootId, invalid);
+            }
+        }
+
+    private static String toHex(final long value)
+        {
+        final String digits = Long.toHexString(value);
+        return "0000000000000000".substring(digits.length()) + digits;
+        }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString()
+        {
+        return getBootIdAsString()+"+"+microseconds+"us";
+        }
+}
+//___EOF___
@@ -0,0 +1,45 @@
+package org.metabit.platform.interfacing.jjournal;
+
+/**
+ * selection of the NativeJournal implementation.
+ * This is the variant for Java 8 to 21, which uses JNR-FFI, or on request its
+ * startup-friendly variant without generated stubs (JffiNativeJournal).
+ * The multi-release jar contains a variant for Java 22 and later in META-INF/versions/22,
+ * which can use the java.lang.foreign API instead, on request; see src/main/java22.
+ *
+ * @author jwilkes
+ * @version $Id: $Id
+ */
+final class NativeBackend
+{
+    /** system property to choose the backend: "jnr", "jffi" or "ffm". */
+    static final String BACKEND_PROPERTY = "org.metabit.jjournal.backend";
+    static final String JNR = "jnr";
+    static final String JFFI = "jffi";
+    static final String FFM = "ffm";
+
+    private NativeBackend()
+        {
+        }
+
+    /*
+     * load the native library.
+     * @return the library interface, or null if the library could not be loaded.
+     */
+    static NativeJournal load(final String libraryName)
+        {
+        if (JFFI.equals(System.getProperty(BACKEND_PROPERTY)))
+            {
+            final NativeJournal library = JffiNativeJournal.load(libraryName);
+            if (library != null)
+                return library;
+            }
+        return Journal.loadJnrLibrary(libraryName);
+        }
+
+    static String getName(final NativeJournal library)
+        {
+        return (library instanceof JffiNativeJournal) ? JFFI : JNR;
+        }
+}
+//___EOF___
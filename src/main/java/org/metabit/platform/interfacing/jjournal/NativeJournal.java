@@ -6,6 +6,7 @@ import jnr.ffi.annotations.In;
 import jnr.ffi.annotations.Out;
 import jnr.ffi.byref.*;
 import jnr.ffi.types.size_t;
+import jnr.ffi.types.u_int64_t;
 
 import java.nio.ByteBuffer;
 
@@ -136,6 +137,40 @@ public interface NativeJournal
      * @return a int
      */
     int sd_journal_query_unique(Address handle, String field); // --  not tested yet
+    /**
+     * <p>sd_journal_query_unique, with the field name as NUL-terminated string in native memory.</p>
+     *
+     * @param handle a {@link jnr.ffi.Address} object
+     * @param field a {@link jnr.ffi.Pointer} to the NUL-terminated field name
+     * @return a int
+     */
+    int sd_journal_query_unique(@In Address handle, @In Pointer field);
+    /**
+     * <p>sd_journal_enumerate_unique, with the out-parameters in preallocated native memory.</p>
+     * The data is "FIELD=value", and only valid until the next call on the handle.
+     *
+     * @param handle a {@link jnr.ffi.Address} object
+     * @param data a {@link jnr.ffi.Pointer} to native memory receiving the const void* to the data
+     * @param length a {@link jnr.ffi.Pointer} to native memory receiving the size_t length
+     * @return a int; positive if a value was returned, 0 at the end.
+     */
+    int sd_journal_enumerate_unique(@In Address handle, @Out Pointer data, @Out Pointer length);
+    /**
+     * <p>sd_journal_enumerate_available_unique, with the out-parameters in preallocated native memory.</p>
+     * Like sd_journal_enumerate_unique, but skips values it cannot read (e.g. unsupported compression) instead of failing.
+     *
+     * @param handle a {@link jnr.ffi.Address} object
+     * @param data a {@link jnr.ffi.Pointer} to native memory receiving the const void* to the data
+     * @param length a {@link jnr.ffi.Pointer} to native memory receiving the size_t length
+     * @return a int; positive if a value was returned, 0 at the end.
+     */
+    int sd_journal_enumerate_available_unique(@In Address handle, @Out Pointer data, @Out Pointer length);
+    /**
+     * <p>sd_journal_restart_unique.</p>
+     *
+     * @param handle a {@link jnr.ffi.Address} object
+     */
+    void sd_journal_restart_unique(@In Address handle);
 
 // ------ move in a journal ------
     /* returns number of entries advanced/set back on success or a negative errno-style error code.
@@ -221,6 +256,17 @@ public interface NativeJournal
      */
     int sd_journal_get_cursor(@In Address handle, @Out PointerByReference cursorPointerReadOnly);
 
+  /*
+   * free memory libsystemd allocated for the caller, e.g. the cursor strings.
+   * free() is in libc, and found through the dependencies of libsystemd; so no second library is needed.
+   */
+    /**
+     * <p>free(3).</p>
+     *
+     * @param ptr a {@link jnr.ffi.Pointer} to memory allocated by malloc(), or null
+     */
+    void free(@In Pointer ptr);
+
   /*
    * test whether the current position matches a provided cursor.
    */
@@ -251,31 +297,61 @@ public interface NativeJournal
      */
     int sd_journal_get_data(@In Address handle, @In String field, @Out PointerByReference data, @Out @size_t IntByReference length); // const void **data, size_t *l
 
+    /**
+     * <p>sd_journal_get_data, with out-parameters in preallocated native memory.</p>
+     *
+     * @param handle a {@link jnr.ffi.Address} object
+     * @param field a {@link java.lang.String} object
+     * @param data a {@link jnr.ffi.Pointer} to native memory of address size, receiving the data pointer
+     * @param length a {@link jnr.ffi.Pointer} to native memory of size_t size, receiving the data length
+     * @return a int
+     */
+    int sd_journal_get_data(@In Address handle, @In String field, @Out Pointer data, @Out Pointer length); // const void **data, size_t *l
+
+    /**
+     * <p>sd_journal_get_data, with the field name pre-encoded in native memory, see CompiledField.</p>
+     *
+     * @param handle a {@link jnr.ffi.Address} object
+     * @param field a {@link jnr.ffi.Pointer} to a NUL-terminated field name
+     * @param data a {@link jnr.ffi.Pointer} to native memory of pointer size, receiving the data address
+     * @param length a {@link jnr.ffi.Pointer} to native memory of size_t size, receiving the data length
+     * @return a int
+     */
+    int sd_journal_get_data(@In Address handle, @In Pointer field, @Out Pointer data, @Out Pointer length); // const void **data, size_t *l
+    // the out-parameters are passed as preallocated native memory; ByReference objects would be allocated and marshalled on every call.
+
+    /*
+     * enumerate all data fields of the current entry, one per call. 1 on success, 0 after the last one, negative on error.
+     * "The returned data is in a read-only memory map and is only valid until the next invocation of sd_journal_get_data() or sd_journal_enumerate_data()"
+     */
     /**
      * <p>sd_journal_enumerate_data.</p>
      *
-     * @param handle a {@link jnr.ffi.byref.AddressByReference} object
-     * @param data a {@link jnr.ffi.byref.PointerByReference} object
-     * @param length a {@link jnr.ffi.byref.IntByReference} object
+     * @param handle a {@link jnr.ffi.Address} object
+     * @param data a {@link jnr.ffi.Pointer} to native memory of address size, receiving the data pointer
+     * @param length a {@link jnr.ffi.Pointer} to native memory of size_t size, receiving the data length
      * @return a int
      */
-    int sd_journal_enumerate_data(@In AddressByReference handle, @Out PointerByReference data, @Out @size_t IntByReference length);// const void **data, size_t *l  -  not tested yet
+    int sd_journal_enumerate_data(@In Address handle, @Out Pointer data, @Out Pointer length); // const void **data, size_t *l
 
+    /*
+     * as sd_journal_enumerate_data(), but skipping fields which cannot be read (e.g. unsupported compression) instead of failing.
+     */
     /**
      * <p>sd_journal_enumerate_available_data.</p>
      *
-     * @param handle a {@link jnr.ffi.byref.AddressByReference} object
-     * @param data a {@link jnr.ffi.byref.PointerByReference} object
-     * @param length a {@link jnr.ffi.byref.IntByReference} object
+     * @param handle a {@link jnr.ffi.Address} object
+     * @param data a {@link jnr.ffi.Pointer} to native memory of address size, receiving the data pointer
+     * @param length a {@link jnr.ffi.Pointer} to native memory of size_t size, receiving the data length
      * @return an int
      */
-    int sd_journal_enumerate_available_data(@In AddressByReference handle, @Out  PointerByReference data, @Out @size_t IntByReference length); // const void **data, size_t *l  -  not tested yet
+    int sd_journal_enumerate_available_data(@In Address handle, @Out Pointer data, @Out Pointer length); // const void **data, size_t *l
     /**
      * <p>sd_journal_restart_data.</p>
      *
-     * @param handle a {@link jnr.ffi.byref.AddressByReference} object
+     * @param handle a {@link jnr.ffi.Address} object
      */
-    void sd_journal_restart_data(@In AddressByReference handle);  // -  not tested yet
+    void sd_journal_restart_data(@In Address handle);
 
 
 
@@ -314,6 +390,14 @@ public interface NativeJournal
    * @return a int
    */
   int sd_journal_get_realtime_usec(@In Address handle, @Out LongLongByReference time); // uint64_t *ret -- or should we use ByReference<u_int64_t> ?
+  /**
+   * <p>sd_journal_get_realtime_usec, with the out-parameter in preallocated native memory.</p>
+   *
+   * @param handle a {@link jnr.ffi.Address} object
+   * @param time a {@link jnr.ffi.Pointer} to 8 bytes of native memory, receiving the uint64_t timestamp
+   * @return a int
+   */
+  int sd_journal_get_realtime_usec(@In Address handle, @Out Pointer time);
 
   /*
    * move journal position (see: cursor) to a given timestamp.
@@ -327,23 +411,74 @@ public interface NativeJournal
    * <p>sd_journal_seek_realtime_usec.</p>
    *
    * @param handle a {@link jnr.ffi.Address} object
-   * @param usec a {@link java.lang.Long} object
+   * @param usec a long
    * @return a int
    */
-  int sd_journal_seek_realtime_usec(@In Address handle, @In Long usec);
+  int sd_journal_seek_realtime_usec(@In Address handle, @In long usec); // primitive, to avoid boxing on every seek
 
 
-  /* the "monotonic" functions are relating to the boot journal / boot perspective.
-     we're not handling these yet.
-    int sd_journal_get_monotonic_usec(@In Address handle, NativeLongByReference ret, LongLongByReference ret_boot_id); // uint64_t *ret, sd_id128_t *ret_boot_id);
-//  int sd_journal_get_monotonic_usec(@In Address handle, NativeLongByReference ret, LongLongByReference ret_boot_id); // uint64_t *ret, sd_id128_t *ret_boot_id);
-    int sd_journal_seek_monotonic_usec(Address handle, sd_id128_t boot_id, u_int64_t usec);
-//  int sd_journal_seek_monotonic_usec(Address handle, sd_id128_t boot_id, u_int64_t usec);
-    int sd_journal_get_cutoff_monotonic_usec(@In Address handle, const sd_id128_t boot_id,@Out LongLongByReference from, @Out LongLongByReference to);
-// int sd_journal_get_cutoff_monotonic_usec(Address handle, const sd_id128_t boot_id, uint64_t *from, uint64_t *to);
-*/
-    // int sd_journal_set_data_threshold(@In Address handle, @In size_t sz);
-    //int sd_journal_get_data_threshold(@In Address handle, @Out ByReference<size_t> sz); // will this work out-of-the-box?
+  /* the "monotonic" functions are relating to the boot journal / boot perspective:
+     timestamps are microseconds since the start of the boot identified by the sd_id128_t boot ID.
+
+     sd_id128_t is a 16 byte union of uint8_t[16] and uint64_t[2], passed by value. On the supported
+     64 bit ABIs (x86-64 SysV, AArch64, ppc64le) such an argument is passed exactly like two consecutive
+     uint64_t arguments, so it is mapped to the two qwords here, in native byte order (see JNRFFI_SD_ID128_T).
+     https://www.freedesktop.org/software/systemd/man/sd_journal_get_monotonic_usec.html
+   */
+  /**
+   * <p>sd_journal_get_monotonic_usec, with the out-parameters in preallocated native memory.</p>
+   *
+   * @param handle a {@link jnr.ffi.Address} object
+   * @param usec a {@link jnr.ffi.Pointer} to 8 bytes of native memory, receiving the uint64_t timestamp
+   * @param bootId a {@link jnr.ffi.Pointer} to 16 bytes of native memory, receiving the sd_id128_t boot ID
+   * @return a int
+   */
+  int sd_journal_get_monotonic_usec(@In Address handle, @Out Pointer usec, @Out Pointer bootId);
+  /**
+   * <p>sd_journal_seek_monotonic_usec.</p>
+   *
+   * @param handle a {@link jnr.ffi.Address} object
+   * @param bootIdQword0 first uint64_t of the sd_id128_t boot ID, in native byte order
+   * @param bootIdQword1 second uint64_t of the sd_id128_t boot ID, in native byte order
+   * @param usec a long
+   * @return a int
+   */
+  int sd_journal_seek_monotonic_usec(@In Address handle, @In @u_int64_t long bootIdQword0, @In @u_int64_t long bootIdQword1, @In @u_int64_t long usec);
+  /**
+   * <p>sd_journal_get_cutoff_monotonic_usec.</p>
+   *
+   * @param handle a {@link jnr.ffi.Address} object
+   * @param bootIdQword0 first uint64_t of the sd_id128_t boot ID, in native byte order
+   * @param bootIdQword1 second uint64_t of the sd_id128_t boot ID, in native byte order
+   * @param from a {@link jnr.ffi.Pointer} to 8 bytes of native memory, receiving the earliest timestamp
+   * @param to a {@link jnr.ffi.Pointer} to 8 bytes of native memory, receiving the latest timestamp
+   * @return a int
+   */
+  int sd_journal_get_cutoff_monotonic_usec(@In Address handle, @In @u_int64_t long bootIdQword0, @In @u_int64_t long bootIdQword1, @Out Pointer from, @Out Pointer to);
+
+    /*
+     * "sd_journal_set_data_threshold() may be used to change the data field size threshold for data returned by
+     * sd_journal_get_data(), sd_journal_enumerate_data() and sd_journal_enumerate_unique(). This threshold is a hint only:
+     * it indicates that the client program is interested only in the initial parts of the data fields,
+     * up to the threshold in size -- but the library might still return larger data objects."
+     * The default is 64K; 0 for unlimited.
+     */
+    /**
+     * <p>sd_journal_set_data_threshold.</p>
+     *
+     * @param handle a {@link jnr.ffi.Address} object
+     * @param sz a long
+     * @return a int
+     */
+    int sd_journal_set_data_threshold(@In Address handle, @In @size_t long sz);
+    /**
+     * <p>sd_journal_get_data_threshold.</p>
+     *
+     * @param handle a {@link jnr.ffi.Address} object
+     * @param sz a {@link jnr.ffi.Pointer} to native memory of size_t size
+     * @return a int
+     */
+    int sd_journal_get_data_threshold(@In Address handle, @Out Pointer sz);
 
 
     /**
@@ -378,22 +513,59 @@ public interface NativeJournal
 
 
 
-/*
-    @Out @size_t IntByReference  int sd_journal_enumerate_unique(Address handle, const void **data, size_t *l);
-    @Out @size_t IntByReference  int sd_journal_enumerate_available_unique(Address handle, const void **data, size_t *l);
-    void sd_journal_restart_unique(Address handle);
-//    for turning the sd_id128_t into an UUID use "UUID uuid = new UUID(high, low);" on two longs.
-*/
 
 // ---- syncs and waits ----
-/*
-    int sd_journal_get_fd(Address handle);
-    int sd_journal_get_events(Address handle);
-     int sd_journal_get_timeout(@In Address handle, @Out LongLongByReference timeout_usec); //     int sd_journal_get_timeout(Address handle, uint64_t *timeout_usec);
+    /*
+     * "sd_journal_get_fd() returns a file descriptor that may be asynchronously polled in an external event loop
+     * and is signaled as soon as the journal changes, because new entries or files were added, rotation took place,
+     * or files have been deleted, and similar." (inotify based)
+     * https://www.freedesktop.org/software/systemd/man/sd_journal_get_fd.html
+     */
+    /**
+     * <p>sd_journal_get_fd.</p>
+     *
+     * @param handle a {@link jnr.ffi.Address} object
+     * @return the file descriptor, or a negative error code
+     */
+    int sd_journal_get_fd(@In Address handle);
+    /**
+     * <p>sd_journal_get_events.</p>
+     *
+     * @param handle a {@link jnr.ffi.Address} object
+     * @return the poll() event mask to wait for on the file descriptor, or a negative error code
+     */
+    int sd_journal_get_events(@In Address handle);
+    /**
+     * <p>sd_journal_get_timeout, with the out-parameter in preallocated native memory.</p>
+     *
+     * @param handle a {@link jnr.ffi.Address} object
+     * @param timeoutUsec a {@link jnr.ffi.Pointer} to 8 bytes of native memory, receiving the uint64_t CLOCK_MONOTONIC
+     *                    time at which to call sd_journal_process() at the latest; (uint64_t) -1 for none.
+     * @return a int
+     */
+    int sd_journal_get_timeout(@In Address handle, @Out Pointer timeoutUsec);
+    /**
+     * <p>sd_journal_process.</p>
+     *
+     * @param handle a {@link jnr.ffi.Address} object
+     * @return SD_JOURNAL_NOP (0), SD_JOURNAL_APPEND (1), SD_JOURNAL_INVALIDATE (2), or a negative error code
+     */
     int sd_journal_process(@In Address handle);
-    int sd_journal_wait(@In  Address handle, u_int64_t timeout_usec); //!! not a pointer. So, LongLong -- that may be trickier...
-    int sd_journal_reliable_fd(Address handle);
-*/
+    /**
+     * <p>sd_journal_wait. Blocks the calling thread.</p>
+     *
+     * @param handle a {@link jnr.ffi.Address} object
+     * @param timeoutUsec maximum time to wait, in microseconds; (uint64_t) -1 to wait indefinitely
+     * @return SD_JOURNAL_NOP (0), SD_JOURNAL_APPEND (1), SD_JOURNAL_INVALIDATE (2), or a negative error code
+     */
+    int sd_journal_wait(@In Address handle, @In @u_int64_t long timeoutUsec);
+    /**
+     * <p>sd_journal_reliable_fd.</p>
+     *
+     * @param handle a {@link jnr.ffi.Address} object
+     * @return positive if the file descriptor signals all changes by itself, 0 if the timeout has to be honoured too
+     */
+    int sd_journal_reliable_fd(@In Address handle);
 /* ---- catalog ----
    catalog functionality: these are an ID system to look up further information on messages, using a template pattern and external files.
    not sure how much this is in use.
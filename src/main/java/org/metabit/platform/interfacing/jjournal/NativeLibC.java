@@ -0,0 +1,102 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import jnr.ffi.Pointer;
+import jnr.ffi.annotations.In;
+import jnr.ffi.annotations.Out;
+import jnr.ffi.annotations.SaveError;
+import jnr.ffi.types.size_t;
+import jnr.ffi.types.ssize_t;
+
+/*
+ *  declared public for technical reasons in JNR FFI (superinterface access).
+ *  internal stub interface for the native access.
+ */
+
+/**
+ * <p>the few libc functions needed besides libsystemd; e.g. for JournalFollower to wait on the file descriptors of many journals at once.
+ * internal library use only</p>
+ *
+ * @author jwilkes
+ * @version $Id: $Id
+ */
+@SuppressWarnings({"javadoc","unused"}) // this is an internal interface, javadoc processing not intended
+public interface NativeLibC
+{
+    /** size of struct pollfd { int fd; short events; short revents; } - the same layout on all Linux platforms. */
+    int POLLFD_SIZE = 8;
+    /** offset of pollfd.events */
+    int POLLFD_EVENTS_OFFSET = 4;
+    /** offset of pollfd.revents */
+    int POLLFD_REVENTS_OFFSET = 6;
+    /** poll event: data to read */
+    short POLLIN = 0x0001;
+    /** errno: interrupted system call */
+    int EINTR = 4;
+    /** errno: try again */
+    int EAGAIN = 11;
+    /** eventfd flag, == O_NONBLOCK */
+    int EFD_NONBLOCK = 0x800;
+    /** eventfd flag, == O_CLOEXEC */
+    int EFD_CLOEXEC = 0x80000;
+    /** clock id; the clock of the sd_journal_get_timeout() deadlines */
+    int CLOCK_MONOTONIC = 1;
+
+    /**
+     * <p>poll(2).</p>
+     *
+     * @param fds array of struct pollfd in native memory
+     * @param nfds number of entries (nfds_t, an unsigned long)
+     * @param timeout in milliseconds; -1 for none
+     * @return number of ready entries; 0 on timeout, -1 on error
+     */
+    @SaveError
+    int poll(@In @Out Pointer fds, @In @size_t long nfds, @In int timeout);
+
+    /**
+     * <p>eventfd(2), used to wake up the poll loop.</p>
+     *
+     * @param initval initial counter value
+     * @param flags EFD_ flags
+     * @return the file descriptor, or -1 on error
+     */
+    @SaveError
+    int eventfd(@In int initval, @In int flags);
+
+    /**
+     * <p>read(2).</p>
+     *
+     * @param fd the file descriptor
+     * @param buf native memory to read into
+     * @param count number of bytes
+     * @return number of bytes read, or -1 on error
+     */
+    @ssize_t long read(@In int fd, @Out Pointer buf, @In @size_t long count);
+
+    /**
+     * <p>write(2).</p>
+     *
+     * @param fd the file descriptor
+     * @param buf native memory to write from
+     * @param count number of bytes
+     * @return number of bytes written, or -1 on error
+     */
+    @ssize_t long write(@In int fd, @In Pointer buf, @In @size_t long count);
+
+    /**
+     * <p>close(2).</p>
+     *
+     * @param fd the file descriptor
+     * @return 0, or -1 on error
+     */
+    int close(@In int fd);
+
+    /**
+     * <p>clock_gettime(2).</p>
+     *
+     * @param clockid e.g. CLOCK_MONOTONIC
+     * @param tp struct timespec { time_t tv_sec; long tv_nsec; } in native memory, two native longs on Linux
+     * @return 0, or -1 on error
+     */
+    int clock_gettime(@In int clockid, @Out Pointer tp);
+}
+//___EOF___
@@ -0,0 +1,223 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * reads a journal on a dedicated thread, ahead of the consumer; see Journal.prefetchBatches().
+ * <br>
+ * The reader thread fills EntryBatch instances from a fixed pool with Journal.readBatch(), and hands them over
+ * through a lock-free single-producer single-consumer queue. The consumer returns each batch to the pool when it
+ * moves on to the next; so the native reads overlap with the processing of the previous batches, and the throughput
+ * approaches the slower of the two rather than their sum. Nothing is allocated per batch once the pool is warm.
+ * <br>
+ * Iteration follows the usual rules, with one addition: a batch returned by next() is valid until the following
+ * call of hasNext() or next(), after which it is refilled. Use snapshot copies of values to keep them longer.
+ * While the reader is open, the journal handle belongs to the reader thread; do not use it elsewhere, and close
+ * the reader before the journal. Not thread-safe; use one consumer thread.
+ *
+ * @author jwilkes
+ * @version $Id: $Id
+ */
+public final class PrefetchingBatchReader implements Iterator<EntryBatch>, AutoCloseable
+{
+    private final Journal journal;
+    private final FieldProjection projection;
+    private final int batchSize;
+    private final SpscQueue<EntryBatch> filled; // reader thread to consumer
+    private final SpscQueue<EntryBatch> free;   // consumer to reader thread
+    private final Thread readerThread;
+    private volatile Thread consumerThread; // the thread waiting in hasNext(), to be woken by the reader
+    private volatile boolean stopped;
+    private volatile boolean finished; // set by the reader after its last batch
+    private volatile RuntimeException failure;
+    private EntryBatch current; // handed out by next(); recycled on the following call
+    private EntryBatch ahead;   // taken by hasNext(), not handed out yet
+
+    PrefetchingBatchReader(final Journal journal, final FieldProjection projection, final int batchSize, final int poolSize, final boolean withCursors)
+        {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("batchSize must be positive");
+        if (poolSize < 2)
+            throw new IllegalArgumentException("at least two batches required, to overlap reading and processing");
+        this.journal = journal;
+        this.projection = projection;
+        this.batchSize = batchSize;
+        this.filled = new SpscQueue<>(poolSize);
+        this.free = new SpscQueue<>(poolSize);
+        for (int i = 0; i < poolSize; i++)
+            free.offer(new EntryBatch(withCursors));
+        this.readerThread = new Thread(this::readLoop, "jjournal-prefetch");
+        this.readerThread.setDaemon(true);
+        this.readerThread.start();
+        }
+
+    /**
+     * whether there is another batch. Blocks until the reader thread has read it, or reached the end.
+     *
+     * @return true if next() will return a batch.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException if the reader thread failed, or the wait was interrupted.
+     */
+    @Override
+    public boolean hasNext()
+        {
+        recycleCurrent();
+        if (ahead != null)
+            return true;
+        if (consumerThread != Thread.currentThread())
+            consumerThread = Thread.currentThread();
+        while (!stopped)
+            {
+            final boolean done = finished; // read before the poll, so a batch offered before the end is not missed
+            ahead = filled.poll();
+            if (ahead != null)
+                return true;
+            if (done)
+                {
+                final RuntimeException ex = failure;
+                if (ex != null)
+                    throw ex;
+                return false;
+                }
+            LockSupport.park(this);
+            if (Thread.interrupted())
+                {
+                Thread.currentThread().interrupt();
+                throw new JJournalException(-4); // EINTR
+                }
+            }
+        return false;
+        }
+
+    /**
+     * the next batch; valid until the following call of hasNext() or next().
+     *
+     * @return a non-empty batch
+     * @throws java.util.NoSuchElementException at the end.
+     */
+    @Override
+    public EntryBatch next()
+        {
+        if (!hasNext())
+            throw new NoSuchElementException();
+        current = ahead;
+        ahead = null;
+        return current;
+        }
+
+    /**
+     * stop the reader thread, and wait for it. The journal may be used again afterwards;
+     * it is positioned after the last batch read, which may be ahead of the last batch consumed.
+     */
+    @Override
+    public void close()
+        {
+        stopped = true;
+        LockSupport.unpark(readerThread);
+        boolean interrupted = false;
+        while (readerThread.isAlive())
+            {
+            try
+                {
+                readerThread.join();
+                }
+            catch (InterruptedException ex)
+                {
+                interrupted = true;
+                }
+            }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        current = null;
+        ahead = null;
+        return;
+        }
+
+    private void recycleCurrent()
+        {
+        if (current != null)
+            {
+            free.offer(current); // cannot fail: the queues hold the whole pool
+            current = null;
+            LockSupport.unpark(readerThread);
+            }
+        return;
+        }
+
+    // runs on the reader thread.
+    private void readLoop()
+        {
+        try
+            {
+            while (!stopped)
+                {
+                final EntryBatch batch = free.poll();
+                if (batch == null)
+                    {
+                    LockSupport.park(this); // the consumer holds the whole pool
+                    continue;
+                    }
+                if (journal.readBatch(batch, batchSize, projection) == 0x00)
+                    break;
+                filled.offer(batch);
+                LockSupport.unpark(consumerThread);
+                }
+            }
+        catch (RuntimeException ex)
+            {
+            failure = ex;
+            }
+        finally
+            {
+            finished = true;
+            LockSupport.unpark(consumerThread);
+            }
+        return;
+        }
+
+    /*
+     * bounded single-producer single-consumer queue on a ring buffer.
+     * head is written by the consumer only, tail by the producer only. The slots are published by the volatile
+     * index writes; at one offer per batch, the full fence costs nothing, and it keeps the wakeups simple.
+     */
+    private static final class SpscQueue<E>
+    {
+        private final Object[] ring;
+        private final int mask;
+        private final AtomicLong head = new AtomicLong();
+        private final AtomicLong tail = new AtomicLong();
+
+        SpscQueue(final int minimumCapacity)
+            {
+            final int capacity = Integer.highestOneBit(Math.max(minimumCapacity, 2) * 2 - 1); // next power of two
+            ring = new Object[capacity];
+            mask = capacity - 1;
+            }
+
+        boolean offer(final E element)
+            {
+            final long t = tail.get();
+            if (t - head.get() == ring.length)
+                return false;
+            ring[(int) t & mask] = element;
+            tail.set(t + 1);
+            return true;
+            }
+
+        @SuppressWarnings("unchecked")
+        E poll()
+            {
+            final long h = head.get();
+            if (h == tail.get())
+                return null;
+            final int index = (int) h & mask;
+            final E element = (E) ring[index];
+            ring[index] = null;
+            head.set(h + 1);
+            return element;
+            }
+    }
+}
+//___EOF___
@@ -0,0 +1,404 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.metabit.platform.interfacing.jjournal.JJournalException.ErrorCodes.CONSUMER_ENDING_LOOP;
+import static org.metabit.platform.interfacing.jjournal.JJournalException.ErrorCodes.FAILED_TO_OPEN;
+
+/**
+ * reads a set of journal files in parallel, one handle and one task per file, and merges their entries into one
+ * sequence, ordered by realtime timestamp.
+ * <br>
+ * Where time slicing (foreachInTimerangeParallel) does not help, because most entries are in one large active file,
+ * this spreads the reading over the files instead; throughput grows with the number of files.
+ * The files are merged on the calling thread with a heap (a k-way merge): by realtime timestamp; for equal
+ * timestamps by sequence ID, so entries written by the same journald stay together, then by sequence number,
+ * then in the order of the file list. Within each file, the file's own order is kept.
+ * Entries present in more than one file (e.g. a file and its copy) are delivered once per file.
+ * <br>
+ * Each file task reads ahead a fixed number of entries; memory is bounded by that, times the number of files.
+ * The executor must run the file tasks on other threads: a task run on the calling thread would block on its full
+ * queue, waiting for itself. This is detected, and ends the read with an IllegalStateException.
+ *
+ * @author jwilkes
+ * @version $Id: $Id
+ */
+public final class ShardedJournalReader
+{
+    /** where journald keeps the volatile journal files, one subdirectory per machine ID. */
+    public static final String RUNTIME_JOURNAL_DIRECTORY = "/run/log/journal";
+    /** where journald keeps the persistent journal files, one subdirectory per machine ID. */
+    public static final String PERSISTENT_JOURNAL_DIRECTORY = "/var/log/journal";
+
+    private static final int QUEUE_CAPACITY = 1024; // entries per file in flight
+    private static final long OFFER_WAIT_MILLISECONDS = 100; // file tasks re-check for the end of the read this often
+    private static final Item END_OF_FILE = new Item(null, 0x00, 0x00, 0x00, 0x00);
+
+    private final List<String> files;
+    private Journal filterSource;
+
+    /**
+     * create a reader for the given journal files.
+     *
+     * @param files journal files, with paths.
+     */
+    public ShardedJournalReader(final List<String> files)
+        {
+        if (files == null)
+            throw new IllegalArgumentException();
+        this.files = Collections.unmodifiableList(new ArrayList<>(files));
+        }
+
+    /**
+     * create a reader for all journal files found in a directory, and in its subdirectories one level down;
+     * e.g. /var/log/journal, with its subdirectories per machine.
+     *
+     * @param directory the directory
+     * @return the reader
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException with FAILED_TO_OPEN if the directory cannot be read.
+     */
+    public static ShardedJournalReader ofDirectory(final Path directory) throws JJournalException
+        {
+        return new ShardedJournalReader(listJournalFiles(directory));
+        }
+
+    /**
+     * create a reader for the journal files of the local system: those in RUNTIME_JOURNAL_DIRECTORY and
+     * PERSISTENT_JOURNAL_DIRECTORY, as far as they exist and are readable.
+     *
+     * @return the reader
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException with FAILED_TO_OPEN if a directory cannot be read.
+     */
+    public static ShardedJournalReader ofLocalJournals() throws JJournalException
+        {
+        final List<String> found = new ArrayList<>();
+        for (String directory : new String[] { RUNTIME_JOURNAL_DIRECTORY, PERSISTENT_JOURNAL_DIRECTORY })
+            {
+            final Path path = Paths.get(directory);
+            if (Files.isDirectory(path) && Files.isReadable(path))
+                found.addAll(listJournalFiles(path));
+            }
+        return new ShardedJournalReader(found);
+        }
+
+    /**
+     * list the journal files (active, archived, and those journald set aside as corrupted) in a directory,
+     * and in its subdirectories one level down.
+     *
+     * @param directory the directory
+     * @return the files, with paths, sorted by name.
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException with FAILED_TO_OPEN if the directory cannot be read.
+     */
+    public static List<String> listJournalFiles(final Path directory) throws JJournalException
+        {
+        try (Stream<Path> paths = Files.walk(directory, 2))
+            {
+            return paths.filter(Files::isRegularFile)
+                    .map(Path::toString)
+                    .filter(name -> name.endsWith(".journal") || name.endsWith(".journal~"))
+                    .sorted()
+                    .collect(Collectors.toList());
+            }
+        catch (IOException|SecurityException ex)
+            {
+            throw new JJournalException(FAILED_TO_OPEN);
+            }
+        }
+
+    /**
+     * the files this reader reads.
+     *
+     * @return the file list, unmodifiable.
+     */
+    public List<String> getFiles()
+        { return files; }
+
+    /**
+     * use the matches (and data threshold) of a journal for reading; they are copied when reading starts.
+     *
+     * @param journal the journal to take the filters from; null for none.
+     */
+    public void setFiltersFrom(final Journal journal)
+        {
+        this.filterSource = journal;
+        return;
+        }
+
+    /**
+     * loop over the entries of all files in a time range, in realtime order.
+     * The consumer gets JournalEntry snapshots, and is called on the calling thread only.
+     *
+     * @param startTime the earliest entry; null for the start of each file.
+     * @param endTime   the end of the range, exclusive; null for the end of each file.
+     * @param executor  runs one task per file, on threads other than the calling one; it should be able to run them
+     *                  all at once. Executors which may run tasks on the calling thread, e.g. with
+     *                  ThreadPoolExecutor.CallerRunsPolicy, are not suitable.
+     * @param consumer  called for each entry; throw JJournalException(CONSUMER_ENDING_LOOP) to end the loop early.
+     * @return number of entries processed
+     * @throws org.metabit.platform.interfacing.jjournal.JJournalException on severe problems, also with one of the files.
+     * @throws java.lang.IllegalStateException if the executor runs a task on the calling thread; it would wait for itself.
+     */
+    public int foreachInTimerange(final Instant startTime, final Instant endTime, final Executor executor, final JournalConsumer<JournalEntry, JJournalException> consumer) throws JJournalException
+        {
+        final Shard[] shards = new Shard[files.size()];
+        for (int i = 0; i < shards.length; i++)
+            {
+            final List<String> single = Collections.singletonList(files.get(i));
+            final Supplier<Journal> open = () -> new Journal(single);
+            shards[i] = new Shard(i, (filterSource == null) ? open : filterSource.reopener(open), startTime, endTime, Thread.currentThread());
+            }
+        return new Merge(shards).run(executor, consumer);
+        }
+
+    //--- implementation
+
+    // an entry, with its sort keys; compared lexicographically, so the order is total and transitive.
+    private static final class Item implements Comparable<Item>
+    {
+        final JournalEntry entry;
+        final long sequenceIdHigh;
+        final long sequenceIdLow;
+        final long sequenceNumber;
+        final int shard;
+
+        Item(final JournalEntry entry, final long sequenceIdHigh, final long sequenceIdLow, final long sequenceNumber, final int shard)
+            {
+            this.entry = entry;
+            this.sequenceIdHigh = sequenceIdHigh;
+            this.sequenceIdLow = sequenceIdLow;
+            this.sequenceNumber = sequenceNumber;
+            this.shard = shard;
+            }
+
+        @Override
+        public int compareTo(final Item other)
+            {
+            int result = Long.compare(entry.getTimestampAsMicrosecondsLong(), other.entry.getTimestampAsMicrosecondsLong());
+            if (result == 0x00)
+                result = Long.compareUnsigned(sequenceIdHigh, other.sequenceIdHigh);
+            if (result == 0x00)
+                result = Long.compareUnsigned(sequenceIdLow, other.sequenceIdLow);
+            if (result == 0x00)
+                result = Long.compareUnsigned(sequenceNumber, other.sequenceNumber);
+            if (result == 0x00)
+                result = Integer.compare(shard, other.shard);
+            return result;
+            }
+    }
+
+    // the task reading one file.
+    private static final class Shard implements Runnable
+    {
+        final int index;
+        final Supplier<Journal> opener;
+        final Instant startTime;
+        final long endTimeAsLong;
+        final Thread caller; // the thread running the merge
+        final BlockingQueue<Item> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile RuntimeException failure;
+        volatile boolean stopped;
+        boolean ranOnCaller; // run directly by execute(), e.g. by a caller-runs policy; calling thread only
+
+        Shard(final int index, final Supplier<Journal> opener, final Instant startTime, final Instant endTime, final Thread caller)
+            {
+            this.caller = caller;
+            this.index = index;
+            this.opener = opener;
+            this.startTime = startTime;
+            this.endTimeAsLong = (endTime == null) ? Long.MAX_VALUE : Journal.instantToMicroseconds(endTime);
+            }
+
+        @Override
+        public void run()
+            {
+            if (Thread.currentThread() == caller)
+                {
+                // nothing is put: only this thread could take it.
+                ranOnCaller = true;
+                failure = new IllegalStateException("executor ran a file task on the calling thread; it needs threads of its own");
+                done.countDown();
+                return;
+                }
+            try (Journal journal = opener.get())
+                {
+                final JournalEntry scratch = new JournalEntry();
+                final long[] sequenceId = new long[2];
+                boolean positioned = false;
+                if (startTime != null)
+                    {
+                    if (!journal.moveForwardUntilTime(startTime))
+                        return;
+                    positioned = true;
+                    }
+                while (!stopped)
+                    {
+                    if (!positioned && !journal.moveToNext())
+                        break;
+                    positioned = false;
+                    if (journal.getTimestampAsMicrosecondsLong() >= endTimeAsLong)
+                        break;
+                    journal.readEntry(scratch);
+                    final long sequenceNumber = journal.readSequenceNumber(sequenceId);
+                    put(new Item(scratch.snapshot(), sequenceId[0x00], sequenceId[1], sequenceNumber, index));
+                    }
+                }
+            catch (RuntimeException ex)
+                {
+                failure = ex;
+                }
+            finally
+                {
+                putEnd();
+                done.countDown();
+                }
+            return;
+            }
+
+        // blocks while the queue is full; gives up when the read has stopped.
+        private void put(final Item item)
+            {
+            try
+                {
+                while (!stopped)
+                    {
+                    if (queue.offer(item, OFFER_WAIT_MILLISECONDS, TimeUnit.MILLISECONDS))
+                        return;
+                    }
+                }
+            catch (InterruptedException ex)
+                {
+                Thread.currentThread().interrupt();
+                throw new JJournalException(-4); // EINTR
+                }
+            return;
+            }
+
+        // the end marker must arrive, or the merge would wait for it forever; so interrupts are deferred.
+        private void putEnd()
+            {
+            boolean interrupted = Thread.interrupted();
+            while (!stopped)
+                {
+                try
+                    {
+                    if (queue.offer(END_OF_FILE, OFFER_WAIT_MILLISECONDS, TimeUnit.MILLISECONDS))
+                        break;
+                    }
+                catch (InterruptedException ex)
+                    {
+                    interrupted = true;
+                    }
+                }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+            return;
+            }
+    }
+
+    // the k-way merge, on the calling thread.
+    private static final class Merge
+    {
+        private final Shard[] shards;
+        private int submitted;
+
+        Merge(final Shard[] shards)
+            { this.shards = shards; }
+
+        int run(final Executor executor, final JournalConsumer<JournalEntry, JJournalException> consumer) throws JJournalException
+            {
+            int delivered = 0x00;
+            try
+                {
+                for (Shard shard : shards)
+                    {
+                    executor.execute(shard); // RejectedExecutionException ends the read
+                    submitted++;
+                    if (shard.ranOnCaller)
+                        throw shard.failure;
+                    }
+                // the heap holds the next entry of each file which has not ended yet.
+                final PriorityQueue<Item> heap = new PriorityQueue<>(Math.max(shards.length, 1));
+                for (Shard shard : shards)
+                    takeNext(shard, heap);
+                Item item;
+                while ((item = heap.poll()) != null)
+                    {
+                    consumer.accept(item.entry);
+                    delivered++;
+                    takeNext(shards[item.shard], heap);
+                    }
+                }
+            catch (InterruptedException ex)
+                {
+                Thread.currentThread().interrupt();
+                throw new JJournalException(-4); // EINTR
+                }
+            catch (JJournalException ex)
+                {
+                if (ex.getCode() != CONSUMER_ENDING_LOOP)
+                    throw ex;
+                }
+            finally
+                {
+                stop();
+                }
+            return delivered;
+            }
+
+        private static void takeNext(final Shard shard, final PriorityQueue<Item> heap) throws InterruptedException
+            {
+            final Item next = shard.queue.take();
+            if (next != END_OF_FILE)
+                heap.add(next);
+            else if (shard.failure != null)
+                throw shard.failure;
+            return;
+            }
+
+        // let the file tasks end, and wait for them, so all handles are closed.
+        private void stop()
+            {
+            boolean interrupted = false;
+            for (Shard shard : shards)
+                shard.stopped = true;
+            for (int i = 0; i < submitted; i++)
+                {
+                final Shard shard = shards[i];
+                while (true)
+                    {
+                    shard.queue.clear();
+                    try
+                        {
+                        if (shard.done.await(OFFER_WAIT_MILLISECONDS, TimeUnit.MILLISECONDS))
+                            break;
+                        }
+                    catch (InterruptedException ex)
+                        {
+                        interrupted = true;
+                        }
+                    }
+                }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+            return;
+            }
+    }
+}
+//___EOF___
@@ -0,0 +1,242 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.metabit.platform.interfacing.jjournal.JJournalException.ErrorCodes.CONSUMER_ENDING_LOOP;
+
+/**
+ * a realtime range scan, cut into time slices which are read in parallel; see Journal.foreachInTimerangeParallel().
+ * <br>
+ * Each slice is read by a worker on the executor, through a handle of its own (a JournalSpliterator over the slice).
+ * The workers pass entry snapshots through bounded queues to the calling thread, which runs the consumer;
+ * so the consumer needs no synchronisation, and memory is bounded by the queue capacity per slice.
+ * In order: slice after slice, each in journal order; the slices are disjoint and ascending in time, so this is
+ * the timestamp order. Workers of later slices read ahead until their queue is full.
+ * Unordered: all slices share one queue, and entries are delivered as they come.
+ * The executor must run the workers on other threads: a worker run on the calling thread would block on its full
+ * queue, waiting for itself. This is detected, and ends the scan with an IllegalStateException.
+ *
+ * @author jwilkes
+ * @version $Id: $Id
+ */
+final class TimeSlicedScan
+{
+    private static final int QUEUE_CAPACITY = 1024; // entries per slice in flight
+    private static final long OFFER_WAIT_MILLISECONDS = 100; // workers re-check for the end of the scan this often
+    private static final JournalEntry END_OF_SLICE = new JournalEntry(); // marker, compared by identity
+
+    private final Supplier<Journal> opener;
+    private final Slice[] slices;
+    private final List<BlockingQueue<JournalEntry>> queues; // one per slice; or a single shared one, unordered
+    private int submitted; // slices passed to the executor
+    private Thread caller; // the thread running the consumer
+    private volatile boolean stopped;
+
+    TimeSlicedScan(final Supplier<Journal> opener, final long from, final long to, final int sliceCount, final boolean ordered)
+        {
+        this.opener = opener;
+        final int count = (int) Math.max(1, Math.min(sliceCount, Math.max(to - from, 1)));
+        slices = new Slice[count];
+        queues = new ArrayList<>(ordered ? count : 1);
+        for (int i = 0; i < (ordered ? count : 1); i++)
+            queues.add(new ArrayBlockingQueue<>(ordered ? QUEUE_CAPACITY : QUEUE_CAPACITY * Math.min(count, 4)));
+        final long length = to - from;
+        for (int i = 0; i < count; i++)
+            {
+            // computed from the start each time, so rounding does not add up, and the last slice ends at "to".
+            final long sliceFrom = from + length / count * i + length % count * i / count;
+            final long sliceTo = (i == count - 1) ? to : from + length / count * (i + 1) + length % count * (i + 1) / count;
+            slices[i] = new Slice(sliceFrom, sliceTo, queues.get(ordered ? i : 0));
+            }
+        }
+
+    /**
+     * run the scan, and call the consumer for each entry, on the calling thread.
+     *
+     * @param executor runs the workers, one task per slice, on threads other than the calling one.
+     * @param consumer called for each entry; may end the scan with JJournalException(CONSUMER_ENDING_LOOP).
+     * @return number of entries delivered
+     * @throws java.lang.IllegalStateException if the executor runs a worker on the calling thread.
+     */
+    int run(final Executor executor, final JournalConsumer<JournalEntry, JJournalException> consumer) throws JJournalException
+        {
+        int delivered = 0;
+        caller = Thread.currentThread(); // published to the workers by execute()
+        try
+            {
+            for (Slice slice : slices)
+                {
+                executor.execute(slice); // RejectedExecutionException ends the scan
+                submitted++;
+                if (slice.ranOnCaller)
+                    throw slice.failure;
+                }
+            int slicesEnded = 0x00;
+            int current = 0x00; // the queue being drained, when ordered
+            while (slicesEnded < slices.length)
+                {
+                final JournalEntry entry = queues.get(current).take();
+                if (entry == END_OF_SLICE)
+                    {
+                    slicesEnded++;
+                    if (queues.size() > 1)
+                        current++;
+                    throwFailure();
+                    continue;
+                    }
+                consumer.accept(entry);
+                delivered++;
+                }
+            }
+        catch (InterruptedException ex)
+            {
+            Thread.currentThread().interrupt();
+            throw new JJournalException(-4); // EINTR
+            }
+        catch (JJournalException ex)
+            {
+            if (ex.getCode() != CONSUMER_ENDING_LOOP)
+                throw ex;
+            }
+        finally
+            {
+            stop();
+            }
+        return delivered;
+        }
+
+    // pass on the first failure of a worker.
+    private void throwFailure()
+        {
+        for (Slice slice : slices)
+            {
+            final RuntimeException failure = slice.failure;
+            if (failure != null)
+                throw failure;
+            }
+        return;
+        }
+
+    // end the scan early, or after completion: let the workers end, and wait for them, so all handles are closed.
+    private void stop()
+        {
+        stopped = true;
+        boolean interrupted = false;
+        for (int i = 0; i < submitted; i++)
+            {
+            final Slice slice = slices[i];
+            while (true)
+                {
+                slice.queue.clear();
+                try
+                    {
+                    if (slice.done.await(OFFER_WAIT_MILLISECONDS, TimeUnit.MILLISECONDS))
+                        break;
+                    }
+                catch (InterruptedException ex)
+                    {
+                    interrupted = true;
+                    }
+                }
+            }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        return;
+        }
+
+    private final class Slice implements Runnable
+    {
+        private final long from;
+        private final long to;
+        private final BlockingQueue<JournalEntry> queue;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile RuntimeException failure;
+        private boolean ranOnCaller; // run directly by execute(), e.g. by a caller-runs policy; calling thread only
+
+        Slice(final long from, final long to, final BlockingQueue<JournalEntry> queue)
+            {
+            this.from = from;
+            this.to = to;
+            this.queue = queue;
+            }
+
+        @Override
+        public void run()
+            {
+            if (Thread.currentThread() == caller)
+                {
+                // nothing is put: the queue may be full already, and only this thread could drain it.
+                ranOnCaller = true;
+                failure = new IllegalStateException("executor ran a slice on the calling thread; it needs threads of its own");
+                done.countDown();
+                return;
+                }
+            final JournalSpliterator part = new JournalSpliterator(opener, from, to);
+            try
+                {
+                boolean more = true;
+                while (more && !stopped)
+                    more = part.tryAdvance(this::put);
+                }
+            catch (RuntimeException ex)
+                {
+                failure = ex;
+                }
+            finally
+                {
+                part.closeAll();
+                putEnd();
+                done.countDown();
+                }
+            return;
+            }
+
+        // blocks while the queue is full; gives up when the scan has stopped.
+        private void put(final JournalEntry entry)
+            {
+            try
+                {
+                while (!stopped)
+                    {
+                    if (queue.offer(entry, OFFER_WAIT_MILLISECONDS, TimeUnit.MILLISECONDS))
+                        return;
+                    }
+                }
+            catch (InterruptedException ex)
+                {
+                Thread.currentThread().interrupt();
+                throw new JJournalException(-4); // EINTR
+                }
+            return;
+            }
+
+        // the end marker must arrive, or the calling thread would wait for it forever; so interrupts are deferred.
+        private void putEnd()
+            {
+            boolean interrupted = Thread.interrupted();
+            while (!stopped)
+                {
+                try
+                    {
+                    if (queue.offer(END_OF_SLICE, OFFER_WAIT_MILLISECONDS, TimeUnit.MILLISECONDS))
+                        break;
+                    }
+                catch (InterruptedException ex)
+                    {
+                    interrupted = true;
+                    }
+                }
+            if (interrupted)
+                Thread.currentThread().interrupt();
+            return;
+            }
+    }
+}
+//___EOF___
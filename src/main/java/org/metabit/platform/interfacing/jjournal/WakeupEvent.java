@@ -1,9 +1,10 @@
 package org.metabit.platform.interfacing.jjournal;
 /**
- * Wakeup event types.
- * These entries exist because they're part of the sd-journal.h API. Not in current use.
+ * Wakeup event types, as returned by sd_journal_process() and sd_journal_wait().
+ * See Journal.waitForChanges() and Journal.moveToNextOrWait().
  *
  * The SD_JOURNAL_ prefix is omitted here, because the enum provides the namespace.
+ * The order matches the numeric values of the C API.
  *
  * @author jwilkes
  * @version $Id: $Id
@@ -11,16 +12,26 @@ package org.metabit.platform.interfacing.jjournal;
 public enum WakeupEvent
 {
     /**
-     * add description if you happen to know what's the meaning. These entries exist because they're part of the sd-journal.h API.
+     * the journal did not change, e.g. the wait timed out.
      */
     NOP,
     /**
-     * add description if you happen to know what's the meaning. These entries exist because they're part of the sd-journal.h API.
+     * new entries have been appended to the end of the journal.
      */
     APPEND,
     /**
-     * add description if you happen to know what's the meaning. These entries exist because they're part of the sd-journal.h API.
+     * journal files have been added or removed, e.g. on rotation or vacuuming. Entries may have appeared anywhere.
      */
     INVALIDATE;
+
+    private static final WakeupEvent[] VALUES = values();
+
+    // map a non-negative result of sd_journal_process() or sd_journal_wait().
+    static WakeupEvent fromNative(final int result) throws JJournalException
+        {
+        if ((result < 0x00) || (result >= VALUES.length))
+            throw new JJournalException(JJournalException.ErrorCodes.UNEXPECTED_RETURN_CODE);
+        return VALUES[result];
+        }
 }
 //___EOF___
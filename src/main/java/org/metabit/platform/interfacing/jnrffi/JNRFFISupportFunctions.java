@@ -40,24 +40,26 @@ public class JNRFFISupportFunctions
     public static Pointer generateNullTerminatedStringArray(Runtime runtime, List<String> inputStrings, final Charset inputEncoding, int targetBufferOffset)
         {
         int numEntries = inputStrings.size();
-        // allocate pointer array matching the input.
-        Pointer[] arrayOfPointers = new Pointer[numEntries];
-        // fill the pointer array.
+        // encode all strings first, to know the sizes in bytes.
+        final byte[][] encoded = new byte[numEntries][];
         Iterator<String> it = inputStrings.iterator();
         for (int i=0; (i<numEntries)&&(it.hasNext()); i++)
+            encoded[i] = it.next().getBytes(inputEncoding);
+        // the pointer array, with trailing NULL, followed by the NUL-terminated strings, in a single allocation;
+        // so the one Pointer returned keeps the strings alive too, for as long as the caller holds it.
+        final int pointerArraySize = (numEntries + 1) * runtime.addressSize();
+        long totalSize = targetBufferOffset + pointerArraySize;
+        for (byte[] string : encoded)
+            totalSize += string.length + 1;
+        // allocate memory. The trailing clear=true flag sets the NULL entry, and the string terminators, implicitly.
+        Pointer memory = Memory.allocateDirect(runtime, (int) totalSize, true);
+        long stringOffset = targetBufferOffset + pointerArraySize;
+        for (int i=0; i<numEntries; i++)
             {
-            final String currentString = it.next();
-            final int stringLength = currentString.length();
-            arrayOfPointers[i] = Memory.allocateDirect(runtime, stringLength);
-            arrayOfPointers[i].putString(0, currentString, stringLength, inputEncoding);
+            memory.put(stringOffset, encoded[i], 0, encoded[i].length);
+            memory.putAddress(targetBufferOffset + (long) i * runtime.addressSize(), memory.address() + stringOffset);
+            stringOffset += encoded[i].length + 1;
             }
-        // calculate memory required for the actual data
-        int bytesRequiredToStorePointersPlusTrailingNullOnThisRuntime = (arrayOfPointers.length + 1) * runtime.addressSize();
-        // allocate memory. The trailing clear=true flag sets our last entry to NULL implicitly.
-        Pointer memory = Memory.allocateDirect(runtime, bytesRequiredToStorePointersPlusTrailingNullOnThisRuntime, true);
-        // copy/convert all our prepared pointers into the memory buffer
-        memory.put(targetBufferOffset, arrayOfPointers, 0, arrayOfPointers.length);
-        // further conversion of the pointers themselves is performed by the lower layers - as should the reference handling for the strings referenced via the pointers!
         return memory;
         }
 
@@ -21,29 +21,37 @@ a mapping of #include <systemd/sd-id128.h>
 @SuppressWarnings({"javadoc","unused"}) // this is an internal interface, javadoc processing not intended
 public class JNRFFI_SD_ID128_T extends Union implements Comparable<JNRFFI_SD_ID128_T>
 {
-    public Struct.u_int8_t bytes[] = new Struct.u_int8_t[16];
-    public Struct.u_int64_t qwords[] = new Struct.u_int64_t[2];
+    public final Struct.u_int8_t[] bytes = new Struct.u_int8_t[16];
+    public final Struct.u_int64_t[] qwords = new Struct.u_int64_t[2];
 
-    protected JNRFFI_SD_ID128_T(Runtime runtime)
+    /**
+     * create the union; use useMemory() to place it on native memory, e.g. a 16 byte out-parameter.
+     * @param runtime the JNR runtime
+     */
+    public JNRFFI_SD_ID128_T(Runtime runtime)
         {
         super(runtime);
+        // the members are created with explicit offsets: JNR lays out array elements one after the other,
+        // even in a Union, which would put the qwords behind the bytes instead of on top of them.
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = new Struct.u_int8_t(new Offset(i));
+        for (int i = 0; i < qwords.length; i++)
+            qwords[i] = new Struct.u_int64_t(new Offset(i*8));
         }
 
     @Override
     public int compareTo(final JNRFFI_SD_ID128_T theOther)
         {
-        if (this.bytes == null)
-            return Integer.MIN_VALUE;
         if (theOther == null)
             return Integer.MAX_VALUE;
-        if (theOther.bytes == null)
-            throw new IllegalArgumentException("uninitialised union! should be impossible.");
         for (int i=0; i<16; i++)
             {
-            int diff = (theOther.bytes[i].intValue() - this.bytes[i].intValue());
+            // u_int8_t.get() sign-extends; compare as unsigned, like memcmp() does.
+            int diff = (this.bytes[i].intValue() & 0xFF) - (theOther.bytes[i].intValue() & 0xFF);
             if (diff != 0)
                 return diff;
             }
         return 0;
         }
 }
+//___EOF___
@@ -0,0 +1,811 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import jnr.ffi.Address;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import jnr.ffi.byref.AddressByReference;
+import jnr.ffi.byref.ByReference;
+import jnr.ffi.byref.IntByReference;
+import jnr.ffi.byref.LongLongByReference;
+import jnr.ffi.byref.PointerByReference;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.invoke.MethodHandle;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.lang.foreign.ValueLayout.ADDRESS;
+import static java.lang.foreign.ValueLayout.JAVA_INT;
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+
+/**
+ * NativeJournal implemented with the java.lang.foreign API (FFM) of Java 22, instead of JNR-FFI stubs.
+ * Used on Java 22 and later if the system property org.metabit.jjournal.backend is set to "ffm", see NativeBackend.
+ * <br>
+ * The interface is kept as it is, with its JNR-FFI parameter types; these are only used as containers
+ * for addresses here. Pointers passed in must be direct (native) ones, e.g. from Memory.allocateDirect().
+ * <br>
+ * Calls which only look at the current entry or at settings of the handle, and return quickly without
+ * touching other parts of the files, are linked as "critical": without the thread state transition of
+ * regular native calls. A critical call holds off safepoints, and so garbage collection, for its duration.
+ * Moving through the journal and reading field data may read and decompress file contents, lookups
+ * across all open files (e.g. the cutoffs) read their headers, and opening, closing and waiting may
+ * block; so these are linked normally.
+ * <br>
+ * Each open journal handle gets an arena for the out-parameters of the by-reference calls,
+ * released when the handle is closed. Strings are converted in a short-lived arena per call.
+ * <br>
+ * java.lang.foreign restricts native access; without --enable-native-access=ALL-UNNAMED
+ * (or the module name), the JVM prints a warning when this class is initialised.
+ *
+ * @author jwilkes
+ * @version $Id: $Id
+ */
+final class ForeignNativeJournal implements NativeJournal
+{
+    private static final Linker LINKER = Linker.nativeLinker();
+    private static final SymbolLookup LIBRARY = findLibrary(Journal.LIB_NAME);
+    private static final Linker.Option CRITICAL = Linker.Option.critical(false);
+    private static final Runtime RUNTIME = Runtime.getSystemRuntime();
+
+    private static final FunctionDescriptor INT_HANDLE = FunctionDescriptor.of(JAVA_INT, ADDRESS);
+    private static final FunctionDescriptor INT_HANDLE_ADDRESS = FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS);
+    private static final FunctionDescriptor INT_HANDLE_ADDRESS_ADDRESS = FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS);
+    private static final FunctionDescriptor INT_HANDLE_LONG = FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_LONG);
+    private static final FunctionDescriptor VOID_HANDLE = FunctionDescriptor.ofVoid(ADDRESS);
+
+    // opening and closing
+    private static final MethodHandle OPEN = downcall("sd_journal_open", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_INT));
+    private static final MethodHandle OPEN_NAMESPACE = downcall("sd_journal_open_namespace", FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, JAVA_INT));
+    private static final MethodHandle OPEN_FILES = downcall("sd_journal_open_files", FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, JAVA_INT));
+    private static final MethodHandle OPEN_DIRECTORY = downcall("sd_journal_open_directory", FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, JAVA_INT));
+    private static final MethodHandle CLOSE = downcall("sd_journal_close", VOID_HANDLE);
+    // fields
+    private static final MethodHandle ENUMERATE_FIELDS = downcall("sd_journal_enumerate_fields", INT_HANDLE_ADDRESS);
+    private static final MethodHandle RESTART_FIELDS = downcall("sd_journal_restart_fields", VOID_HANDLE);
+    private static final MethodHandle QUERY_UNIQUE = downcall("sd_journal_query_unique", INT_HANDLE_ADDRESS);
+    // unique values are enumerated across the data objects of all journal files, which is file I/O.
+    private static final MethodHandle ENUMERATE_UNIQUE = downcall("sd_journal_enumerate_unique", INT_HANDLE_ADDRESS_ADDRESS);
+    private static final MethodHandle ENUMERATE_AVAILABLE_UNIQUE = downcall("sd_journal_enumerate_available_unique", INT_HANDLE_ADDRESS_ADDRESS);
+    private static final MethodHandle RESTART_UNIQUE = downcall("sd_journal_restart_unique", VOID_HANDLE);
+    // movement
+    private static final MethodHandle PREVIOUS = downcall("sd_journal_previous", INT_HANDLE);
+    private static final MethodHandle NEXT = downcall("sd_journal_next", INT_HANDLE);
+    private static final MethodHandle PREVIOUS_SKIP = downcall("sd_journal_previous_skip", INT_HANDLE_LONG);
+    private static final MethodHandle NEXT_SKIP = downcall("sd_journal_next_skip", INT_HANDLE_LONG);
+    private static final MethodHandle SEEK_HEAD = downcall("sd_journal_seek_head", INT_HANDLE);
+    private static final MethodHandle SEEK_TAIL = downcall("sd_journal_seek_tail", INT_HANDLE);
+    private static final MethodHandle SEEK_CURSOR = downcall("sd_journal_seek_cursor", INT_HANDLE_ADDRESS);
+    private static final MethodHandle GET_CURSOR = downcall("sd_journal_get_cursor", INT_HANDLE_ADDRESS);
+    private static final MethodHandle TEST_CURSOR = downcall("sd_journal_test_cursor", INT_HANDLE_ADDRESS);
+    private static final MethodHandle FREE = downcall("free", VOID_HANDLE); // libc, through libsystemd's dependencies
+    private static final MethodHandle SEEK_REALTIME_USEC = downcall("sd_journal_seek_realtime_usec", INT_HANDLE_LONG);
+    private static final MethodHandle GET_CUTOFF_REALTIME_USEC = downcall("sd_journal_get_cutoff_realtime_usec", INT_HANDLE_ADDRESS_ADDRESS);
+    // data of the current entry; reading it may map file windows in and decompress, so it is not critical.
+    private static final MethodHandle GET_DATA = downcall("sd_journal_get_data", FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, ADDRESS, ADDRESS));
+    private static final MethodHandle ENUMERATE_DATA = downcall("sd_journal_enumerate_data", INT_HANDLE_ADDRESS_ADDRESS);
+    private static final MethodHandle ENUMERATE_AVAILABLE_DATA = downcall("sd_journal_enumerate_available_data", INT_HANDLE_ADDRESS_ADDRESS);
+    private static final MethodHandle RESTART_DATA = downcall("sd_journal_restart_data", VOID_HANDLE, CRITICAL);
+    private static final MethodHandle GET_REALTIME_USEC = downcall("sd_journal_get_realtime_usec", INT_HANDLE_ADDRESS, CRITICAL);
+    // sd_id128_t by value is passed like two uint64_t, see NativeJournal.
+    private static final MethodHandle GET_MONOTONIC_USEC = downcall("sd_journal_get_monotonic_usec", INT_HANDLE_ADDRESS_ADDRESS, CRITICAL);
+    private static final MethodHandle SEEK_MONOTONIC_USEC = downcall("sd_journal_seek_monotonic_usec", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_LONG, JAVA_LONG, JAVA_LONG));
+    // the cutoffs are looked up in all open journal files, which is file I/O; like the realtime one, not critical.
+    private static final MethodHandle GET_CUTOFF_MONOTONIC_USEC = downcall("sd_journal_get_cutoff_monotonic_usec", FunctionDescriptor.of(JAVA_INT, ADDRESS, JAVA_LONG, JAVA_LONG, ADDRESS, ADDRESS));
+    // the threshold is a setting of the handle; no file is touched.
+    private static final MethodHandle SET_DATA_THRESHOLD = downcall("sd_journal_set_data_threshold", INT_HANDLE_LONG, CRITICAL);
+    private static final MethodHandle GET_DATA_THRESHOLD = downcall("sd_journal_get_data_threshold", INT_HANDLE_ADDRESS, CRITICAL);
+    // filtering
+    private static final MethodHandle ADD_MATCH = downcall("sd_journal_add_match", FunctionDescriptor.of(JAVA_INT, ADDRESS, ADDRESS, JAVA_LONG));
+    private static final MethodHandle ADD_DISJUNCTION = downcall("sd_journal_add_disjunction", INT_HANDLE);
+    private static final MethodHandle ADD_CONJUNCTION = downcall("sd_journal_add_conjunction", INT_HANDLE);
+    private static final MethodHandle FLUSH_MATCHES = downcall("sd_journal_flush_matches", VOID_HANDLE);
+    // journal files
+    private static final MethodHandle GET_USAGE = downcall("sd_journal_get_usage", INT_HANDLE_ADDRESS);
+    private static final MethodHandle HAS_RUNTIME_FILES = downcall("sd_journal_has_runtime_files", INT_HANDLE);
+    private static final MethodHandle HAS_PERSISTENT_FILES = downcall("sd_journal_has_persistent_files", INT_HANDLE);
+    // change notification; sd_journal_wait blocks, and sd_journal_process does I/O, so none of these is critical.
+    private static final MethodHandle GET_FD = downcall("sd_journal_get_fd", INT_HANDLE);
+    private static final MethodHandle GET_EVENTS = downcall("sd_journal_get_events", INT_HANDLE);
+    private static final MethodHandle GET_TIMEOUT = downcall("sd_journal_get_timeout", INT_HANDLE_ADDRESS);
+    private static final MethodHandle PROCESS = downcall("sd_journal_process", INT_HANDLE);
+    private static final MethodHandle WAIT = downcall("sd_journal_wait", INT_HANDLE_LONG);
+    private static final MethodHandle RELIABLE_FD = downcall("sd_journal_reliable_fd", INT_HANDLE);
+
+    private final Map<Long, HandleState> handles = new ConcurrentHashMap<>();
+
+    ForeignNativeJournal()
+        {
+        if (ADDRESS.byteSize() != JAVA_LONG.byteSize())
+            throw new UnsupportedOperationException("64 bit platforms only"); // size_t is mapped to JAVA_LONG
+        }
+
+    //--- opening and closing
+
+    @Override
+    public int sd_journal_open(final AddressByReference handle, final int flags)
+        {
+        try (Arena call = Arena.ofConfined())
+            {
+            final MemorySegment out = call.allocate(ADDRESS);
+            return opened((int) OPEN.invokeExact(out, flags), out, handle);
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_open_namespace(final AddressByReference handle, final String name_space, final int flags)
+        {
+        try (Arena call = Arena.ofConfined())
+            {
+            final MemorySegment out = call.allocate(ADDRESS);
+            return opened((int) OPEN_NAMESPACE.invokeExact(out, string(call, name_space), flags), out, handle);
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_open_files(final AddressByReference journalHandle, final Pointer filenameArray, final int flags)
+        {
+        try (Arena call = Arena.ofConfined())
+            {
+            final MemorySegment out = call.allocate(ADDRESS);
+            return opened((int) OPEN_FILES.invokeExact(out, segment(filenameArray), flags), out, journalHandle);
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_open_directory(final AddressByReference journalHandle, final String absolutePath, final int flags)
+        {
+        try (Arena call = Arena.ofConfined())
+            {
+            final MemorySegment out = call.allocate(ADDRESS);
+            return opened((int) OPEN_DIRECTORY.invokeExact(out, string(call, absolutePath), flags), out, journalHandle);
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public void sd_journal_close(final Address handle)
+        {
+        final HandleState state = handles.remove(handle.address());
+        if (state != null)
+            state.arena.close();
+        try
+            {
+            CLOSE.invokeExact(segment(handle));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        return;
+        }
+
+    //--- fields
+
+    @Override
+    public int sd_journal_enumerate_fields(final Address handle, final PointerByReference fieldName)
+        {
+        final HandleState state = state(handle);
+        try
+            {
+            return state.out((int) ENUMERATE_FIELDS.invokeExact(segment(handle), state.first), fieldName);
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public void sd_journal_restart_fields(final Address handle)
+        {
+        try
+            {
+            RESTART_FIELDS.invokeExact(segment(handle));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        return;
+        }
+
+    @Override
+    public int sd_journal_query_unique(final Address handle, final String field)
+        {
+        try (Arena call = Arena.ofConfined())
+            {
+            return (int) QUERY_UNIQUE.invokeExact(segment(handle), string(call, field));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_query_unique(final Address handle, final Pointer field)
+        {
+        try
+            {
+            return (int) QUERY_UNIQUE.invokeExact(segment(handle), segment(field));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_enumerate_unique(final Address handle, final Pointer data, final Pointer length)
+        {
+        try
+            {
+            return (int) ENUMERATE_UNIQUE.invokeExact(segment(handle), segment(data), segment(length));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_enumerate_available_unique(final Address handle, final Pointer data, final Pointer length)
+        {
+        try
+            {
+            return (int) ENUMERATE_AVAILABLE_UNIQUE.invokeExact(segment(handle), segment(data), segment(length));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public void sd_journal_restart_unique(final Address handle)
+        {
+        try
+            {
+            RESTART_UNIQUE.invokeExact(segment(handle));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        return;
+        }
+
+    //--- movement
+
+    @Override
+    public int sd_journal_previous(final Address handle)
+        {
+        try
+            {
+            return (int) PREVIOUS.invokeExact(segment(handle));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_next(final Address handle)
+        {
+        try
+            {
+            return (int) NEXT.invokeExact(segment(handle));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_previous_skip(final Address handle, final Long skip)
+        {
+        try
+            {
+            return (int) PREVIOUS_SKIP.invokeExact(segment(handle), skip.longValue());
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_next_skip(final Address handle, final Long skip)
+        {
+        try
+            {
+            return (int) NEXT_SKIP.invokeExact(segment(handle), skip.longValue());
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_seek_head(final Address handle)
+        {
+        try
+            {
+            return (int) SEEK_HEAD.invokeExact(segment(handle));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_seek_tail(final Address handle)
+        {
+        try
+            {
+            return (int) SEEK_TAIL.invokeExact(segment(handle));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_seek_cursor(final Address handle, final String cursor)
+        {
+        try (Arena call = Arena.ofConfined())
+            {
+            return (int) SEEK_CURSOR.invokeExact(segment(handle), string(call, cursor));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_get_cursor(final Address handle, final PointerByReference cursorPointerReadOnly)
+        {
+        final HandleState state = state(handle);
+        try
+            {
+            return state.out((int) GET_CURSOR.invokeExact(segment(handle), state.first), cursorPointerReadOnly);
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_test_cursor(final Address handle, final String cursor)
+        {
+        try (Arena call = Arena.ofConfined())
+            {
+            return (int) TEST_CURSOR.invokeExact(segment(handle), string(call, cursor));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public void free(final Pointer ptr)
+        {
+        try
+            {
+            FREE.invokeExact(segment(ptr));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        return;
+        }
+
+    @Override
+    public int sd_journal_seek_realtime_usec(final Address handle, final long usec)
+        {
+        try
+            {
+            return (int) SEEK_REALTIME_USEC.invokeExact(segment(handle), usec);
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_get_cutoff_realtime_usec(final Address handle, final LongLongByReference from, final LongLongByReference to)
+        {
+        final HandleState state = state(handle);
+        try
+            {
+            final int r = (int) GET_CUTOFF_REALTIME_USEC.invokeExact(segment(handle), state.first, state.second);
+            from.fromNative(RUNTIME, state.firstView, 0L);
+            to.fromNative(RUNTIME, state.secondView, 0L);
+            return r;
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    //--- data of the current entry
+
+    @Override
+    public int sd_journal_get_data(final Address handle, final String field, final PointerByReference data, final IntByReference length)
+        {
+        final HandleState state = state(handle);
+        try (Arena call = Arena.ofConfined())
+            {
+            final int r = (int) GET_DATA.invokeExact(segment(handle), string(call, field), state.first, state.second);
+            data.fromNative(RUNTIME, state.firstView, 0L);
+            length.fromNative(RUNTIME, state.secondView, 0L);
+            return r;
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_get_data(final Address handle, final String field, final Pointer data, final Pointer length)
+        {
+        try (Arena call = Arena.ofConfined())
+            {
+            return (int) GET_DATA.invokeExact(segment(handle), string(call, field), segment(data), segment(length));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_get_data(final Address handle, final Pointer field, final Pointer data, final Pointer length)
+        {
+        try
+            {
+            return (int) GET_DATA.invokeExact(segment(handle), segment(field), segment(data), segment(length));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_enumerate_data(final Address handle, final Pointer data, final Pointer length)
+        {
+        try
+            {
+            return (int) ENUMERATE_DATA.invokeExact(segment(handle), segment(data), segment(length));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_enumerate_available_data(final Address handle, final Pointer data, final Pointer length)
+        {
+        try
+            {
+            return (int) ENUMERATE_AVAILABLE_DATA.invokeExact(segment(handle), segment(data), segment(length));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public void sd_journal_restart_data(final Address handle)
+        {
+        try
+            {
+            RESTART_DATA.invokeExact(segment(handle));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        return;
+        }
+
+    @Override
+    public int sd_journal_get_realtime_usec(final Address handle, final LongLongByReference time)
+        {
+        final HandleState state = state(handle);
+        try
+            {
+            return state.out((int) GET_REALTIME_USEC.invokeExact(segment(handle), state.first), time);
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_get_realtime_usec(final Address handle, final Pointer time)
+        {
+        try
+            {
+            return (int) GET_REALTIME_USEC.invokeExact(segment(handle), segment(time));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_get_monotonic_usec(final Address handle, final Pointer usec, final Pointer bootId)
+        {
+        try
+            {
+            return (int) GET_MONOTONIC_USEC.invokeExact(segment(handle), segment(usec), segment(bootId));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_seek_monotonic_usec(final Address handle, final long bootIdQword0, final long bootIdQword1, final long usec)
+        {
+        try
+            {
+            return (int) SEEK_MONOTONIC_USEC.invokeExact(segment(handle), bootIdQword0, bootIdQword1, usec);
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_get_cutoff_monotonic_usec(final Address handle, final long bootIdQword0, final long bootIdQword1, final Pointer from, final Pointer to)
+        {
+        try
+            {
+            return (int) GET_CUTOFF_MONOTONIC_USEC.invokeExact(segment(handle), bootIdQword0, bootIdQword1, segment(from), segment(to));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_set_data_threshold(final Address handle, final long sz)
+        {
+        try
+            {
+            return (int) SET_DATA_THRESHOLD.invokeExact(segment(handle), sz);
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_get_data_threshold(final Address handle, final Pointer sz)
+        {
+        try
+            {
+            return (int) GET_DATA_THRESHOLD.invokeExact(segment(handle), segment(sz));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    //--- filtering
+
+    @Override
+    public int sd_journal_add_match(final Address handle, final ByteBuffer data, final int length)
+        {
+        if (data.isDirect())
+            {
+            try
+                {
+                return (int) ADD_MATCH.invokeExact(segment(handle), MemorySegment.ofBuffer(data), (long) length);
+                }
+            catch (Throwable t)
+                { throw failure(t); }
+            }
+        try (Arena call = Arena.ofConfined())
+            {
+            // the buffer may be on the heap; libsystemd copies the match, so a temporary native copy will do.
+            final MemorySegment match = call.allocate(Math.max(length, 1));
+            MemorySegment.copy(MemorySegment.ofBuffer(data), 0L, match, 0L, length);
+            return (int) ADD_MATCH.invokeExact(segment(handle), match, (long) length);
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_add_disjunction(final Address handle)
+        {
+        try
+            {
+            return (int) ADD_DISJUNCTION.invokeExact(segment(handle));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_add_conjunction(final Address handle)
+        {
+        try
+            {
+            return (int) ADD_CONJUNCTION.invokeExact(segment(handle));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public void sd_journal_flush_matches(final Address handle)
+        {
+        try
+            {
+            FLUSH_MATCHES.invokeExact(segment(handle));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        return;
+        }
+
+    //--- journal files
+
+    @Override
+    public int sd_journal_get_usage(final Address handle, final LongLongByReference bytes)
+        {
+        final HandleState state = state(handle);
+        try
+            {
+            return state.out((int) GET_USAGE.invokeExact(segment(handle), state.first), bytes);
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_has_runtime_files(final Address handle)
+        {
+        try
+            {
+            return (int) HAS_RUNTIME_FILES.invokeExact(segment(handle));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_has_persistent_files(final Address handle)
+        {
+        try
+            {
+            return (int) HAS_PERSISTENT_FILES.invokeExact(segment(handle));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    //--- change notification
+
+    @Override
+    public int sd_journal_get_fd(final Address handle)
+        {
+        try
+            {
+            return (int) GET_FD.invokeExact(segment(handle));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_get_events(final Address handle)
+        {
+        try
+            {
+            return (int) GET_EVENTS.invokeExact(segment(handle));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_get_timeout(final Address handle, final Pointer timeoutUsec)
+        {
+        try
+            {
+            return (int) GET_TIMEOUT.invokeExact(segment(handle), segment(timeoutUsec));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_process(final Address handle)
+        {
+        try
+            {
+            return (int) PROCESS.invokeExact(segment(handle));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_wait(final Address handle, final long timeoutUsec)
+        {
+        try
+            {
+            return (int) WAIT.invokeExact(segment(handle), timeoutUsec);
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    @Override
+    public int sd_journal_reliable_fd(final Address handle)
+        {
+        try
+            {
+            return (int) RELIABLE_FD.invokeExact(segment(handle));
+            }
+        catch (Throwable t)
+            { throw failure(t); }
+        }
+
+    //--- helpers
+
+    /*
+     * per-handle native memory for out-parameters, released on sd_journal_close.
+     * A handle is used by one thread at a time, like the Journal owning it; the arena is shared so this may be any thread.
+     */
+    private static final class HandleState
+    {
+        final Arena arena = Arena.ofShared();
+        final MemorySegment first = arena.allocate(JAVA_LONG);
+        final MemorySegment second = arena.allocate(JAVA_LONG);
+        final Pointer firstView = RUNTIME.getMemoryManager().newPointer(first.address());
+        final Pointer secondView = RUNTIME.getMemoryManager().newPointer(second.address());
+
+        // hand the first out-parameter to a JNR reference object.
+        int out(final int returnCode, final ByReference<?> reference)
+            {
+            reference.fromNative(RUNTIME, firstView, 0L);
+            return returnCode;
+            }
+    }
+
+    private HandleState state(final Address handle)
+        {
+        return handles.computeIfAbsent(handle.address(), address -> new HandleState());
+        }
+
+    private static int opened(final int returnCode, final MemorySegment out, final AddressByReference handle)
+        {
+        if (returnCode >= 0)
+            handle.fromNative(RUNTIME, RUNTIME.getMemoryManager().newPointer(out.address()), 0L);
+        return returnCode;
+        }
+
+    private static MemorySegment segment(final Address address)
+        {
+        return MemorySegment.ofAddress(address.address());
+        }
+
+    private static MemorySegment segment(final Pointer pointer)
+        {
+        if (pointer == null)
+            return MemorySegment.NULL;
+        if (!pointer.isDirect())
+            throw new IllegalArgumentException("native memory required");
+        return MemorySegment.ofAddress(pointer.address());
+        }
+
+    private static MemorySegment string(final Arena arena, final String string)
+        {
+        return (string == null) ? MemorySegment.NULL : arena.allocateFrom(string);
+        }
+
+    private static RuntimeException failure(final Throwable t)
+        {
+        if (t instanceof RuntimeException)
+            return (RuntimeException) t;
+        if (t instanceof Error)
+            throw (Error) t;
+        return new IllegalStateException("native call failed", t);
+        }
+
+    private static MethodHandle downcall(final String name, final FunctionDescriptor descriptor, final Linker.Option... options)
+        {
+        final MemorySegment symbol = LIBRARY.find(name).orElseThrow(() -> new UnsupportedOperationException("symbol not found: " + name));
+        return LINKER.downcallHandle(symbol, descriptor, options);
+        }
+
+    // libsystemd.so.0 is what is installed at runtime; the unversioned name usually comes with development packages only.
+    private static SymbolLookup findLibrary(final String libraryName)
+        {
+        final String fileName = System.mapLibraryName(libraryName);
+        try
+            {
+            return SymbolLookup.libraryLookup(fileName + ".0", Arena.global());
+            }
+        catch (IllegalArgumentException notFound)
+            {
+            return SymbolLookup.libraryLookup(fileName, Arena.global());
+            }
+        }
+}
+//___EOF___
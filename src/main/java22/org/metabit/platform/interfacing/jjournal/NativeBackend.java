@@ -0,0 +1,59 @@
+package org.metabit.platform.interfacing.jjournal;
+
+/**
+ * selection of the NativeJournal implementation.
+ * This is the variant for Java 22 and later, packaged in META-INF/versions/22 of the multi-release jar.
+ * If the system property org.metabit.jjournal.backend is set to "ffm", it uses the java.lang.foreign API
+ * (ForeignNativeJournal); if that is not usable, it falls back to JNR-FFI. Otherwise it behaves like the
+ * variant for older Java versions.
+ *
+ * @author jwilkes
+ * @version $Id: $Id
+ */
+final class NativeBackend
+{
+    /** system property to choose the backend: "jnr", "jffi" or "ffm". */
+    static final String BACKEND_PROPERTY = "org.metabit.jjournal.backend";
+    static final String JNR = "jnr";
+    static final String JFFI = "jffi";
+    static final String FFM = "ffm";
+
+    private NativeBackend()
+        {
+        }
+
+    /*
+     * load the native library.
+     * @return the library interface, or null if the library could not be loaded.
+     */
+    static NativeJournal load(final String libraryName)
+        {
+        final String requested = System.getProperty(BACKEND_PROPERTY);
+        if (JFFI.equals(requested))
+            {
+            final NativeJournal library = JffiNativeJournal.load(libraryName);
+            if (library != null)
+                return library;
+            }
+        else if (FFM.equals(requested) && Journal.LIB_NAME.equals(libraryName))
+            {
+            try
+                {
+                return new ForeignNativeJournal();
+                }
+            catch (LinkageError | RuntimeException notUsable)
+                {
+                // library or symbols not found, native access denied, unsupported platform: JNR-FFI may still do.
+                }
+            }
+        return Journal.loadJnrLibrary(libraryName);
+        }
+
+    static String getName(final NativeJournal library)
+        {
+        if (library instanceof ForeignNativeJournal)
+            return FFM;
+        return (library instanceof JffiNativeJournal) ? JFFI : JNR;
+        }
+}
+//___EOF___
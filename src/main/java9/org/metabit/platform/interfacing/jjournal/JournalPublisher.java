@@ -0,0 +1,120 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * publishes journal entries to java.util.concurrent.Flow subscribers, with backpressure.
+ * <br>
+ * Each subscriber gets a Journal of its own, from the opener, on its first request; it is closed when the
+ * subscription completes, fails, or is cancelled. The cursor is advanced only while the subscriber has requested
+ * more than it has received: a slow subscriber simply leaves the journal where it is, nothing is queued.
+ * Items are produced by the mapper, with the journal positioned on the entry; they must not refer to the journal
+ * afterwards, e.g. take a JournalEntry snapshot, or read the fields needed.
+ * <br>
+ * Signals are delivered on the executor, one after the other per subscriber. A following subscription with
+ * outstanding demand occupies an executor thread while it waits for new entries; when all requested items have been
+ * delivered, it releases the thread. For many followed journals, consider JournalFollower instead.
+ * <br>
+ * Available on Java 9 and later, in the artifact with classifier "flow"; the main artifact is needed alongside.
+ *
+ * @param <T> the type of items published
+ * @author jwilkes
+ * @version $Id: $Id
+ */
+public final class JournalPublisher<T> implements Flow.Publisher<T>
+{
+    private final Supplier<Journal> opener;
+    private final Function<Journal, ? extends T> mapper;
+    private final Instant startTime;
+    private final Instant endTime;
+    private final boolean follow;
+    private final Executor executor;
+
+    /**
+     * create a publisher.
+     *
+     * @param opener    opens the journal for a subscriber, e.g. {@code () -> new Journal(OpenFlags.LOCAL_ONLY)};
+     *                  filters may be set here, and, if startTime is null, the starting position, e.g. moveToLatest().
+     * @param mapper    turns the entry the journal is positioned on into an item. Must not return null.
+     * @param startTime the earliest entry to publish; null to start at the position the opener left the journal in.
+     * @param endTime   publishing ends at the first entry at or after this time; null for no end.
+     * @param follow    true to wait for new entries at the end of the journal; false to complete there.
+     * @param executor  delivers the signals, and does the reading.
+     */
+    public JournalPublisher(final Supplier<Journal> opener, final Function<Journal, ? extends T> mapper, final Instant startTime, final Instant endTime, final boolean follow, final Executor executor)
+        {
+        this.opener = Objects.requireNonNull(opener);
+        this.mapper = Objects.requireNonNull(mapper);
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.follow = follow;
+        this.executor = Objects.requireNonNull(executor);
+        }
+
+    /**
+     * create a publisher of JournalEntry snapshots, one per entry, with all fields.
+     *
+     * @param opener    opens the journal for a subscriber.
+     * @param startTime the earliest entry to publish; null to start at the position the opener left the journal in.
+     * @param endTime   publishing ends at the first entry at or after this time; null for no end.
+     * @param follow    true to wait for new entries at the end of the journal; false to complete there.
+     * @param executor  delivers the signals, and does the reading.
+     * @return the publisher
+     */
+    public static JournalPublisher<JournalEntry> ofEntries(final Supplier<Journal> opener, final Instant startTime, final Instant endTime, final boolean follow, final Executor executor)
+        {
+        return new JournalPublisher<>(opener, journal ->
+            {
+            final JournalEntry entry = new JournalEntry();
+            journal.readEntry(entry);
+            return entry;
+            }, startTime, endTime, follow, executor);
+        }
+
+    /** {@inheritDoc} */
+    @Override
+    public void subscribe(final Flow.Subscriber<? super T> subscriber)
+        {
+        Objects.requireNonNull(subscriber);
+        final FlowSubscription<T> subscription = new FlowSubscription<>(subscriber);
+        subscription.engine = new JournalSubscription<>(opener, mapper, startTime, endTime, follow, executor, subscription);
+        subscriber.onSubscribe(subscription);
+        return;
+        }
+
+    // connects the Flow interfaces to the engine.
+    private static final class FlowSubscription<T> implements Flow.Subscription, JournalSubscription.Sink<T>
+    {
+        private final Flow.Subscriber<? super T> subscriber;
+        private JournalSubscription<T> engine; // set before the subscriber sees this
+
+        FlowSubscription(final Flow.Subscriber<? super T> subscriber)
+            { this.subscriber = subscriber; }
+
+        @Override
+        public void request(final long n)
+            { engine.request(n); }
+
+        @Override
+        public void cancel()
+            { engine.cancel(); }
+
+        @Override
+        public void onNext(final T item)
+            { subscriber.onNext(item); }
+
+        @Override
+        public void onError(final Throwable failure)
+            { subscriber.onError(failure); }
+
+        @Override
+        public void onComplete()
+            { subscriber.onComplete(); }
+    }
+}
+//___EOF___
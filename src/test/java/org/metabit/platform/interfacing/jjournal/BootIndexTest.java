@@ -0,0 +1,85 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BootIndexTest
+{
+    @Test
+    void matchesFullScan() throws JJournalException
+        {
+        final MonotonicTimestamp timestamp = new MonotonicTimestamp();
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            // reference: first and last realtime of each boot, from reading every entry.
+            final Map<UUID, long[]> scanned = new HashMap<>();
+            journal.moveToEarliest();
+            while (journal.moveToNext())
+                {
+                journal.readMonotonicTimestamp(timestamp);
+                final long usec = journal.getTimestampAsMicrosecondsLong();
+                final long[] range = scanned.computeIfAbsent(timestamp.getBootId(), id -> new long[]{usec, usec});
+                range[0] = Math.min(range[0], usec);
+                range[1] = Math.max(range[1], usec);
+                }
+
+            final List<BootInfo> boots = journal.listBoots();
+            assertEquals(scanned.size(), boots.size());
+            for (int i = 0; i < boots.size(); i++)
+                {
+                final BootInfo boot = boots.get(i);
+                final long[] range = scanned.get(boot.getBootId());
+                assertNotNull(range, boot.toString());
+                assertEquals(range[0], boot.getFirstMicroseconds());
+                assertEquals(range[1], boot.getLastMicroseconds());
+                assertEquals(i - boots.size() + 1, boot.getOffset());
+                assertTrue(boot.getFirstMonotonicMicroseconds() <= boot.getLastMonotonicMicroseconds());
+                if (i > 0)
+                    assertTrue(boots.get(i - 1).getFirstMicroseconds() <= boot.getFirstMicroseconds());
+                }
+            assertSame(boots, journal.listBoots()); // cached
+            }
+        }
+
+    @Test
+    void filtersInvalidateCache() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            final List<BootInfo> boots = journal.listBoots();
+            assertFalse(boots.isEmpty());
+            final BootInfo latest = boots.get(boots.size() - 1);
+            journal.filteringAddFilterExpressionExactMatch(JournalField.BOOT_ID, latest.getBootId().toString().replace("-", ""));
+            final List<BootInfo> filtered = journal.listBoots();
+            assertNotSame(boots, filtered);
+            assertEquals(1, filtered.size());
+            assertEquals(latest.getBootId(), filtered.get(0).getBootId());
+            assertEquals(0, filtered.get(0).getOffset());
+            journal.filteringReset();
+            assertEquals(boots.size(), journal.listBoots().size());
+            }
+        }
+
+    @Test
+    void unfilteredIndexSharedBetweenHandles() throws JJournalException
+        {
+        try (Journal first = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY));
+             Journal second = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            final List<BootInfo> boots = first.listBoots();
+            assertFalse(boots.isEmpty());
+            assertSame(boots, second.listBoots()); // same files, unchanged: not enumerated again
+            second.filteringAddFilterExpressionExactMatch(JournalField.BOOT_ID, boots.get(0).getBootId().toString().replace("-", ""));
+            assertEquals(1, second.listBoots().size());
+            assertSame(boots, first.listBoots()); // a filtered result is not shared
+            }
+        }
+}
+//___EOF___
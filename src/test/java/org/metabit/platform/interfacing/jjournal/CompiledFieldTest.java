@@ -0,0 +1,42 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledFieldTest
+{
+    @Test
+    void predefinedFieldsShareTheirInstance() throws JJournalException
+        {
+        assertSame(CompiledField.of(JournalField.MESSAGE), CompiledField.of("MESSAGE"));
+        assertSame(CompiledField.of(JournalField.PRIORITY), CompiledField.of(JournalField.PRIORITY));
+        assertEquals("MESSAGE", CompiledField.of(JournalField.MESSAGE).getName());
+        }
+
+    @Test
+    void invalidNamesAreRejected()
+        {
+        final JJournalException thrown = assertThrows(JJournalException.class, () -> CompiledField.of("message"));
+        assertEquals(JJournalException.ErrorCodes.FIELD_NAME_INVALID, thrown.getCode());
+        }
+
+    @Test
+    void compiledReadsMatchStringReads() throws JJournalException
+        {
+        final CompiledField message = CompiledField.of("MESSAGE");
+        final CompiledField adHoc = CompiledField.of("SYSLOG_IDENTIFIER");
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToEarliest();
+            assertTrue(journal.moveToNext());
+            assertEquals(journal.readFieldAsString("MESSAGE"), journal.readFieldAsString(message));
+            assertArrayEquals(journal.readFieldAsByteArray(JournalField.MESSAGE), journal.readFieldAsByteArray(message));
+            assertEquals(journal.getDataSize("MESSAGE"), journal.getDataSize(message));
+            assertEquals(journal.readFieldAsString("SYSLOG_IDENTIFIER"), journal.readFieldAsString(adHoc));
+            }
+        }
+}
+//___EOF___
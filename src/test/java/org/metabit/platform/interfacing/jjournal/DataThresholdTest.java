@@ -0,0 +1,71 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataThresholdTest
+{
+    @Test
+    void perReadLimitCutsValue() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToEarliest();
+            assertTrue(journal.moveToNext());
+            final long handleThreshold = journal.getDataThreshold();
+            final byte[] full = journal.readFieldAsByteArray(JournalField.MESSAGE);
+            assertFalse(journal.isLastReadTruncated());
+            assertTrue(full.length > 2);
+
+            final byte[] cut = journal.readFieldAsByteArray(JournalField.MESSAGE, 2);
+            assertTrue(journal.isLastReadTruncated());
+            assertArrayEquals(Arrays.copyOf(full, 2), cut);
+            assertEquals(handleThreshold, journal.getDataThreshold()); // restored after the read
+
+            final String whole = journal.readFieldAsString("MESSAGE", full.length + 10);
+            assertFalse(journal.isLastReadTruncated());
+            assertEquals(new String(full, StandardCharsets.UTF_8), whole);
+            }
+        }
+
+    @Test
+    void handleThresholdAppliesToAllReads() throws JJournalException
+        {
+        final JournalEntry entry = new JournalEntry();
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.setDataThreshold(12);
+            assertEquals(12, journal.getDataThreshold());
+            journal.moveToEarliest();
+            assertTrue(journal.moveToNext());
+            final String message = journal.readFieldAsString(JournalField.MESSAGE);
+            assertTrue(message.getBytes(StandardCharsets.UTF_8).length <= 12 - "MESSAGE=".length());
+            journal.readEntry(entry);
+            for (int i = 0; i < entry.getFieldCount(); i++)
+                assertTrue(entry.getValueLength(i) <= 12);
+
+            journal.setDataThreshold(0);
+            assertEquals(0, journal.getDataThreshold());
+            journal.readFieldAsString(JournalField.MESSAGE);
+            assertFalse(journal.isLastReadTruncated());
+            }
+        }
+
+    @Test
+    void truncationKeepsCharactersWhole()
+        {
+        final byte[] data = "abä€".getBytes(StandardCharsets.UTF_8); // 2 + 2 + 3 bytes
+        assertEquals(7, Journal.completeUtf8Length(data, 0, 7));
+        assertEquals(4, Journal.completeUtf8Length(data, 0, 6));
+        assertEquals(4, Journal.completeUtf8Length(data, 0, 5));
+        assertEquals(4, Journal.completeUtf8Length(data, 0, 4));
+        assertEquals(2, Journal.completeUtf8Length(data, 0, 3));
+        assertEquals(1, Journal.completeUtf8Length(data, 1, 2));
+        }
+}
+//___EOF___
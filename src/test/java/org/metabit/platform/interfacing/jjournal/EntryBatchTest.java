@@ -0,0 +1,82 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntryBatchTest
+{
+    @Test
+    void batchMatchesEntryReads() throws JJournalException
+        {
+        final FieldProjection projection = FieldProjection.of(JournalField.MESSAGE, JournalField.SYSTEMD_UNIT);
+        final EntryBatch batch = new EntryBatch(true);
+        final JournalEntry entry = new JournalEntry();
+        try (Journal reference = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY));
+             Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            reference.moveToEarliest();
+            journal.moveToEarliest();
+            int total = 0;
+            for (int round = 0; round < 5; round++)
+                {
+                final int count = journal.readBatch(batch, 64, projection);
+                assertEquals(count, batch.size());
+                for (int row = 0; row < count; row++)
+                    {
+                    assertTrue(reference.moveToNext());
+                    reference.readEntry(entry);
+                    assertEquals(reference.getTimestampAsMicrosecondsLong(), batch.getTimestampAsMicrosecondsLong(row));
+                    assertEquals(reference.getCursorRaw(), batch.getCursor(row));
+                    assertEquals(entry.getFieldAsString(JournalField.MESSAGE), batch.getValueAsString(0, row));
+                    assertEquals(entry.getFieldAsString(JournalField.SYSTEMD_UNIT), batch.getValueAsString(1, row));
+                    final String priority = entry.getFieldAsString(JournalField.PRIORITY);
+                    assertEquals((priority == null) ? EntryBatch.NO_PRIORITY : Byte.parseByte(priority), batch.getPriority(row));
+                    }
+                total += count;
+                }
+            assertEquals(5 * 64, total);
+            // the journal is left on the last entry read
+            assertEquals(reference.getTimestampAsMicrosecondsLong(), journal.getTimestampAsMicrosecondsLong());
+            }
+        }
+
+    @Test
+    void priorityColumnFromProjection() throws JJournalException
+        {
+        final FieldProjection projection = FieldProjection.of(JournalField.PRIORITY);
+        final EntryBatch batch = new EntryBatch();
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToEarliest();
+            final int count = journal.readBatch(batch, 100, projection);
+            assertTrue(count > 0);
+            for (int row = 0; row < count; row++)
+                {
+                if (batch.hasValue(0, row))
+                    assertEquals(Byte.parseByte(batch.getValueAsString(0, row)), batch.getPriority(row));
+                else
+                    assertEquals(EntryBatch.NO_PRIORITY, batch.getPriority(row));
+                }
+            assertThrows(IllegalStateException.class, () -> batch.getCursor(0));
+            }
+        }
+
+    @Test
+    void endOfJournal() throws JJournalException
+        {
+        final EntryBatch batch = new EntryBatch();
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToLatest();
+            while (journal.readBatch(batch, 10, FieldProjection.of(JournalField.MESSAGE)) == 10)
+                continue; // entries written meanwhile
+            assertEquals(0, journal.readBatch(batch, 10, FieldProjection.of(JournalField.MESSAGE)));
+            assertEquals(0, batch.size());
+            assertThrows(IndexOutOfBoundsException.class, () -> batch.getTimestampAsMicrosecondsLong(0));
+            }
+        }
+}
+//___EOF___
@@ -0,0 +1,120 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FieldSearchTest
+{
+    private static final String[] TEXTS = {
+            "", "e", "error", "no errors here", "Started Session 42 of user root.",
+            "connection reset by peer (errno=104)", "xxxxxxxxxxxxxxxxxxxxxxxxxerror", "ERROR: disk full",
+            "Grüße aus Köln — 東京", "failed\twith\nnewlines", "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaab"
+    };
+
+    @Test
+    void substringsMatchStringContains()
+        {
+        final String[][] needleSets = {
+                {"error"}, {"e"}, {"ab"}, {"Köln", "東京"}, {"reset", "full", "Session"},
+                {"a", "b", "c", "d", "e", "f", "g"}, // too many first bytes for the word scan
+                {"error", "errno", "peer"}, {"\n"}, {""}
+        };
+        final Random random = new Random(4711);
+        final List<String> texts = new ArrayList<>();
+        for (String text : TEXTS)
+            texts.add(text);
+        for (int i = 0; i < 200; i++)
+            {
+            final char[] chars = new char[random.nextInt(40)];
+            for (int k = 0; k < chars.length; k++)
+                chars[k] = "abcdeflnorsu ".charAt(random.nextInt(13));
+            texts.add(new String(chars));
+            }
+        for (String[] needles : needleSets)
+            {
+            final FieldSearch search = FieldSearch.forSubstrings(needles);
+            for (String text : texts)
+                {
+                boolean expected = false;
+                for (String needle : needles)
+                    expected |= text.contains(needle);
+                // at an offset, so the word reads are not aligned with the array
+                final byte[] bytes = ("###" + text + "###").getBytes(StandardCharsets.UTF_8);
+                assertEquals(expected, search.matches(bytes, 3, bytes.length - 6), search + " on \"" + text + "\"");
+                }
+            }
+        assertThrows(IllegalArgumentException.class, FieldSearch::forSubstrings);
+        }
+
+    @Test
+    void regexMatchesPatternFind()
+        {
+        final String[] patterns = {
+                "error", "err(or|no)", "^ERROR", "here$", "^$", "[0-9]+", "\\d\\d", "user \\w+\\.$",
+                "a*b", "^a+b$", "x+error", "K.ln", "[^a-z ]", "\\s", "(ab|cd)?e", ".", "Grüße", "東.?",
+                "\\(errno=\\d+\\)", "[]a]", "a|", "(a+)+b"
+        };
+        for (String regex : patterns)
+            {
+            final FieldSearch search = FieldSearch.forRegex(regex);
+            final Pattern pattern = Pattern.compile(regex);
+            for (String text : TEXTS)
+                {
+                final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                assertEquals(pattern.matcher(text).find(), search.matches(bytes, 0x00, bytes.length), regex + " on \"" + text + "\"");
+                }
+            }
+        assertThrows(IllegalArgumentException.class, () -> FieldSearch.forRegex("(ab"));
+        assertThrows(IllegalArgumentException.class, () -> FieldSearch.forRegex("ab)"));
+        assertThrows(IllegalArgumentException.class, () -> FieldSearch.forRegex("*a"));
+        assertThrows(IllegalArgumentException.class, () -> FieldSearch.forRegex("a^b"));
+        assertThrows(IllegalArgumentException.class, () -> FieldSearch.forRegex("a{2}b\\1"));
+        }
+
+    @Test
+    void searchesFieldViewsInPlace() throws JJournalException
+        {
+        final FieldSearch words = FieldSearch.forSubstrings("e", "Started");
+        final FieldSearch regex = FieldSearch.forRegex("[0-9]+ ");
+        final Pattern pattern = Pattern.compile("[0-9]+ ");
+        int expected = 0x00;
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            final FieldView view = new FieldView();
+            final CompiledField message = JournalField.MESSAGE.getCompiledField();
+            journal.moveToEarliest();
+            int entries = 0x00;
+            while (journal.moveToNext() && (entries++ < 2000))
+                {
+                if (!journal.readFieldViewIfPresent(message, view))
+                    continue;
+                final String text = journal.readMessageField();
+                journal.readFieldView(message, view); // again: any other read invalidates the view
+                assertEquals(text.contains("e") || text.contains("Started"), words.matches(view), text);
+                assertEquals(pattern.matcher(text).find(), regex.matches(view), text);
+                if (text.contains("e") || text.contains("Started"))
+                    expected++;
+                }
+            assertTrue(entries > 0x00);
+            }
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            final JournalQuery query = JournalQuery.search(JournalField.MESSAGE, words);
+            assertTrue(query.hasResidual());
+            final List<String> found = new ArrayList<>();
+            final int count = journal.foreachMatching(query, null, null, expected, entry -> found.add(entry.getFieldAsString(JournalField.MESSAGE)));
+            assertEquals(expected, count);
+            for (String text : found)
+                assertTrue(text.contains("e") || text.contains("Started"), text);
+            }
+        }
+}
+//___EOF___
@@ -0,0 +1,51 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FieldViewTest
+{
+    @Test
+    void viewMatchesCopiedValue() throws JJournalException
+        {
+        final FieldView view = new FieldView();
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToEarliest();
+            assertTrue(journal.moveToNext());
+            final byte[] copy = journal.readFieldAsByteArray(JournalField.MESSAGE);
+            journal.readFieldView(JournalField.MESSAGE, view);
+            assertTrue(view.isValid());
+            assertEquals(copy.length, view.length());
+            assertTrue(view.contentEquals(copy));
+            assertEquals(Arrays.hashCode(copy), view.contentHashCode());
+            assertTrue(view.startsWith(Arrays.copyOf(copy, Math.min(3, copy.length))));
+            final ByteBuffer buffer = view.asByteBuffer();
+            assertTrue(buffer.isDirect());
+            assertTrue(buffer.isReadOnly());
+            assertEquals(ByteBuffer.wrap(copy), buffer);
+            assertEquals(new String(copy, StandardCharsets.UTF_8), view.toString());
+            }
+        }
+
+    @Test
+    void viewBecomesStaleOnMove() throws JJournalException
+        {
+        final FieldView view = new FieldView();
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToEarliest();
+            assertTrue(journal.moveToNext());
+            journal.readFieldView("MESSAGE", view);
+            assertTrue(view.isValid());
+            journal.moveToNext();
+            assertFalse(view.isValid());
+            }
+        }
+}
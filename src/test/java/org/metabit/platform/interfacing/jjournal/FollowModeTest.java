@@ -0,0 +1,77 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class FollowModeTest
+{
+    @Test
+    void notificationPrimitives() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            assertTrue(journal.getFileDescriptor() >= 0);
+            assertTrue((journal.getWakeupEvents() & 0x01) != 0); // POLLIN
+            journal.hasReliableFileDescriptor();
+            journal.getWakeupTimeoutMicroseconds();
+            assertNotNull(journal.processChanges());
+            }
+        }
+
+    @Test
+    void newEntryIsDelivered() throws Exception
+        {
+        final String marker = "follow-" + System.nanoTime();
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToLatest();
+            while (journal.moveToNext())
+                {
+                // skip to the end
+                }
+            final Thread writer = new Thread(() ->
+                {
+                try
+                    {
+                    Thread.sleep(300);
+                    new ProcessBuilder("systemd-cat", "-t", "jjfollow", "echo", marker).inheritIO().start().waitFor();
+                    }
+                catch (InterruptedException | IOException ignored)
+                    {
+                    }
+                });
+            writer.start();
+
+            final long start = System.nanoTime();
+            boolean found = false;
+            while (!found && journal.moveToNextOrWait(Duration.ofSeconds(10)))
+                found = marker.equals(journal.readMessageField());
+            writer.join();
+            assumeTrue(found, "systemd-cat could not write to the journal");
+            assertTrue(System.nanoTime() - start < Duration.ofSeconds(10).toNanos());
+            }
+        }
+
+    @Test
+    void timeoutReturns() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToLatest();
+            final long start = System.nanoTime();
+            while (journal.moveToNextOrWait(Duration.ofMillis(100)))
+                {
+                assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos()); // journal keeps changing; should not happen here
+                }
+            assertTrue(System.nanoTime() - start >= Duration.ofMillis(100).toNanos());
+            assertNotNull(journal.waitForChanges(Duration.ZERO));
+            }
+        }
+}
+//___EOF___
@@ -0,0 +1,57 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import jnr.ffi.Address;
+import jnr.ffi.Memory;
+import jnr.ffi.Pointer;
+import jnr.ffi.Runtime;
+import jnr.ffi.byref.AddressByReference;
+import jnr.ffi.byref.LongLongByReference;
+import jnr.ffi.byref.PointerByReference;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JffiNativeJournalTest
+{
+    @Test
+    void readsTheSameAsTheDefaultBackend() throws JJournalException
+        {
+        final NativeJournal lib = JffiNativeJournal.load(Journal.LIB_NAME);
+        assertNotNull(lib);
+        final Runtime runtime = Runtime.getSystemRuntime();
+        final Pointer data = Memory.allocateDirect(runtime, 8);
+        final Pointer length = Memory.allocateDirect(runtime, 8);
+
+        final AddressByReference handleReference = new AddressByReference();
+        assertEquals(0, lib.sd_journal_open(handleReference, OpenFlags.getCombinedFlagValue(EnumSet.of(OpenFlags.LOCAL_ONLY))));
+        final Address handle = handleReference.getValue();
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToEarliest();
+            assertTrue(journal.moveToNext());
+            assertEquals(0, lib.sd_journal_seek_head(handle));
+            assertEquals(1, lib.sd_journal_next(handle));
+
+            final LongLongByReference usec = new LongLongByReference();
+            assertEquals(0, lib.sd_journal_get_realtime_usec(handle, usec));
+            assertEquals(journal.getTimestampAsMicrosecondsLong(), usec.longValue());
+
+            assertEquals(0, lib.sd_journal_get_data(handle, CompiledField.of(JournalField.MESSAGE).getNativeName(), data, length));
+            final byte[] raw = new byte[(int) length.getLong(0)];
+            data.getPointer(0).get(0, raw, 0, raw.length);
+            assertEquals("MESSAGE=" + journal.readFieldAsString(JournalField.MESSAGE), new String(raw, java.nio.charset.StandardCharsets.UTF_8));
+
+            final PointerByReference cursor = new PointerByReference();
+            assertEquals(0, lib.sd_journal_get_cursor(handle, cursor));
+            assertEquals(journal.getCursorRaw(), cursor.getValue().getString(0));
+            assertTrue(lib.sd_journal_test_cursor(handle, journal.getCursorRaw()) > 0);
+            }
+        finally
+            {
+            lib.sd_journal_close(handle);
+            }
+        }
+}
+//___EOF___
@@ -0,0 +1,73 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalEntryTest
+{
+    @Test
+    void readWholeEntriesMatchesFieldReads() throws JJournalException
+        {
+        final JournalEntry entry = new JournalEntry();
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToEarliest();
+            for (int i = 0; (i < 100) && journal.moveToNext(); i++)
+                {
+                journal.readEntry(entry);
+                assertTrue(entry.getFieldCount() > 0);
+                assertEquals(journal.getTimestampAsMicrosecondsLong(), entry.getTimestampAsMicrosecondsLong());
+                final int index = entry.indexOf(JournalField.MESSAGE);
+                if (index >= 0)
+                    assertEquals(journal.readMessageField(), entry.getValueAsString(index));
+                }
+            }
+        }
+
+    @Test
+    void projectionLimitsFields() throws JJournalException
+        {
+        final JournalEntry entry = new JournalEntry();
+        final FieldProjection projection = FieldProjection.of(JournalField.MESSAGE, JournalField.PRIORITY);
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToEarliest();
+            for (int i = 0; (i < 100) && journal.moveToNext(); i++)
+                {
+                journal.readEntry(entry, projection);
+                for (int f = 0; f < entry.getFieldCount(); f++)
+                    assertTrue(projection.indexOf(entry.getFieldName(f)) >= 0, entry.getFieldName(f));
+                assertEquals(journal.readMessageField(), entry.getFieldAsString(JournalField.MESSAGE));
+                }
+            }
+        }
+
+    @Test
+    void snapshotIsIndependent() throws JJournalException
+        {
+        final JournalEntry entry = new JournalEntry();
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToEarliest();
+            assertTrue(journal.moveToNext());
+            journal.readEntry(entry);
+            final JournalEntry snapshot = entry.snapshot();
+            final String text = entry.toString();
+            assertTrue(journal.moveToNext());
+            journal.readEntry(entry);
+            assertEquals(text, snapshot.toString());
+            // a snapshot can be reused for reading, like any other entry
+            journal.readEntry(snapshot);
+            assertEquals(entry.toString(), snapshot.toString());
+            }
+        }
+
+    @Test
+    void projectionRejectsInvalidNames()
+        {
+        assertThrows(JJournalException.class, () -> FieldProjection.of("message"));
+        }
+}
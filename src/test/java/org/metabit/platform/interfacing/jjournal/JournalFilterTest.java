@@ -0,0 +1,87 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalFilterTest
+{
+    private static final JournalFilter JOURNAL = JournalFilter.match(JournalField.TRANSPORT, "journal");
+    private static final JournalFilter STDOUT = JournalFilter.match(JournalField.TRANSPORT, "stdout");
+    private static final JournalFilter DRIVER = JournalFilter.match(JournalField.TRANSPORT, "driver");
+    private static final JournalFilter INFO = JournalFilter.match(JournalField.PRIORITY, "6");
+
+    @Test
+    void sameFieldFoldsIntoImplicitOr()
+        {
+        final JournalFilter filter = JOURNAL.or(STDOUT).or(JOURNAL);
+        assertEquals("_TRANSPORT=(journal|stdout)", filter.toString());
+        assertEquals(2, filter.getMatchCount());
+        assertEquals(filter, JournalFilter.anyOf(STDOUT, JOURNAL).or(JOURNAL)); // order of values aside, same form
+        }
+
+    @Test
+    void andOfDifferentFieldsIsOneTerm()
+        {
+        final JournalFilter filter = JOURNAL.or(STDOUT).and(INFO);
+        assertEquals("_TRANSPORT=(journal|stdout) + PRIORITY=6", filter.toString());
+        assertEquals(filter, JournalFilter.allOf(INFO, JOURNAL.or(STDOUT)).and(INFO));
+        // the same field twice in an AND needs two groups
+        assertEquals("_TRANSPORT=journal & _TRANSPORT=stdout", JOURNAL.and(STDOUT).toString());
+        }
+
+    @Test
+    void orOverAndIsDistributed()
+        {
+        // an OR of ANDs is a native group as it is
+        assertEquals("_TRANSPORT=driver | _TRANSPORT=journal + PRIORITY=6", JOURNAL.and(INFO).or(DRIVER).toString());
+        // but an OR over separate groups is distributed: (journal & stdout) | driver = (journal | driver) & (stdout | driver)
+        final JournalFilter filter = JOURNAL.and(STDOUT).or(DRIVER);
+        assertEquals("_TRANSPORT=(journal|driver) & _TRANSPORT=(stdout|driver)", filter.toString());
+        assertEquals(4, filter.getMatchCount());
+        assertTrue(JournalFilter.all().isAll());
+        assertSame(JOURNAL, JournalFilter.all().and(JOURNAL));
+        assertTrue(JOURNAL.or(JournalFilter.all()).isAll());
+        assertThrows(IllegalArgumentException.class, JournalFilter::anyOf);
+        }
+
+    @Test
+    void appliedFilterSelectsSameEntriesAsManualMatches() throws JJournalException
+        {
+        final JournalFilter filter = JOURNAL.or(STDOUT).and(JournalFilter.match(JournalField.PRIORITY, "6").or(JournalFilter.match(JournalField.PRIORITY, "5")));
+        final List<String> expected = new ArrayList<>();
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            final JournalEntry entry = new JournalEntry();
+            journal.moveToEarliest();
+            while (journal.moveToNext())
+                {
+                journal.readEntry(entry);
+                final String transport = entry.getFieldAsString(JournalField.TRANSPORT);
+                final String priority = entry.getFieldAsString(JournalField.PRIORITY);
+                if (("journal".equals(transport) || "stdout".equals(transport)) && ("6".equals(priority) || "5".equals(priority)))
+                    expected.add(journal.getCursorRaw());
+                }
+            }
+        assertFalse(expected.isEmpty());
+
+        final List<String> actual = new ArrayList<>();
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.applyFilter(filter);
+            assertTrue(journal.hasActiveFilters());
+            journal.moveToEarliest();
+            while (journal.moveToNext())
+                actual.add(journal.getCursorRaw());
+            // reapplying replaces the matches
+            journal.applyFilter(JournalFilter.all());
+            assertFalse(journal.hasActiveFilters());
+            }
+        assertEquals(expected, actual);
+        }
+}
+//___EOF___
@@ -0,0 +1,122 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class JournalFollowerTest
+{
+    private ExecutorService executor;
+    private final List<Journal> journals = new ArrayList<>();
+
+    @BeforeEach
+    void setUp()
+        {
+        executor = Executors.newFixedThreadPool(2);
+        }
+
+    @AfterEach
+    void tearDown() throws InterruptedException
+        {
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        for (Journal journal : journals)
+            journal.close();
+        }
+
+    private Journal open() throws JJournalException
+        {
+        final Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY));
+        journals.add(journal);
+        return journal;
+        }
+
+    @Test
+    void newEntriesReachAllJournals() throws Exception
+        {
+        final String marker = "follower-" + System.nanoTime();
+        final CountDownLatch delivered = new CountDownLatch(3);
+        try (JournalFollower follower = new JournalFollower(executor, (journal, ex) -> fail(ex)))
+            {
+            for (int i = 0; i < 3; i++)
+                {
+                final Journal journal = open();
+                journal.moveToLatest();
+                follower.follow(journal, j ->
+                    {
+                    if (marker.equals(j.readMessageField()))
+                        delivered.countDown();
+                    });
+                }
+            assertEquals(3, follower.getFollowedCount());
+            assumeTrue(new ProcessBuilder("systemd-cat", "-t", "jjfollower", "echo", marker).inheritIO().start().waitFor() == 0x00, "systemd-cat could not write to the journal");
+            assertTrue(delivered.await(10, TimeUnit.SECONDS));
+            }
+        }
+
+    @Test
+    void deliversBacklogInBatches() throws Exception
+        {
+        final Journal reference = open();
+        reference.moveToEarliest();
+        int total = 0;
+        while (reference.moveToNext())
+            total++;
+
+        final AtomicInteger count = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(1);
+        final int expected = total;
+        try (JournalFollower follower = new JournalFollower(executor, (journal, ex) -> fail(ex)))
+            {
+            final Journal journal = open();
+            journal.moveToEarliest();
+            follower.follow(journal, j ->
+                {
+                if (count.incrementAndGet() == expected)
+                    done.countDown();
+                });
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+            assertTrue(follower.unfollow(journal));
+            assertFalse(follower.unfollow(journal));
+            }
+        }
+
+    @Test
+    void consumerEndsFollowing() throws Exception
+        {
+        final AtomicInteger count = new AtomicInteger();
+        try (JournalFollower follower = new JournalFollower(executor, (journal, ex) -> fail(ex)))
+            {
+            final Journal journal = open();
+            journal.moveToEarliest();
+            follower.follow(journal, j ->
+                {
+                if (count.incrementAndGet() == 5)
+                    throw new JJournalException(JJournalException.ErrorCodes.CONSUMER_ENDING_LOOP);
+                });
+            final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (follower.getFollowedCount() > 0 && System.nanoTime() < deadline)
+                Thread.sleep(10);
+            assertEquals(0, follower.getFollowedCount());
+            assertEquals(5, count.get());
+            assertThrows(IllegalStateException.class, () ->
+                {
+                follower.follow(journal, j -> { });
+                follower.follow(journal, j -> { });
+                });
+            }
+        }
+}
+//___EOF___
@@ -0,0 +1,124 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class JournalQueryTest
+{
+    private static final JournalQuery JOURNAL = JournalQuery.equalTo(JournalField.TRANSPORT, "journal");
+    private static final JournalQuery STDOUT = JournalQuery.equalTo(JournalField.TRANSPORT, "stdout");
+
+    @Test
+    void splitsIntoNativeAndResidual()
+        {
+        final JournalQuery pushedDown = JOURNAL.or(STDOUT);
+        assertFalse(pushedDown.hasResidual());
+        assertEquals("_TRANSPORT=(journal|stdout)", pushedDown.getNativeFilter().toString());
+
+        final JournalQuery mixed = pushedDown.and(JournalQuery.contains(JournalField.MESSAGE, "error"));
+        assertTrue(mixed.hasResidual());
+        assertEquals(pushedDown.getNativeFilter(), mixed.getNativeFilter());
+
+        // an OR with a residual branch cannot be pushed down, unless all branches have a native part
+        final JournalQuery unpushable = JOURNAL.or(JournalQuery.contains(JournalField.MESSAGE, "error"));
+        assertTrue(unpushable.getNativeFilter().isAll());
+        final JournalQuery superset = JOURNAL.and(JournalQuery.contains(JournalField.MESSAGE, "error")).or(STDOUT);
+        assertEquals("_TRANSPORT=(journal|stdout)", superset.getNativeFilter().toString());
+        assertTrue(superset.hasResidual());
+
+        assertTrue(JournalQuery.not(JOURNAL).getNativeFilter().isAll());
+        assertThrows(IllegalArgumentException.class, () -> JournalQuery.priorityRange(3, 8));
+        }
+
+    @Test
+    void residualMatchesStringEvaluation() throws JJournalException
+        {
+        final JournalQuery query = JournalQuery.allOf(JOURNAL.or(STDOUT),
+                JournalQuery.contains(JournalField.MESSAGE, "e"),
+                JournalQuery.priorityRange(0, 6),
+                JournalQuery.not(JournalQuery.startsWith(JournalField.SYSLOG_IDENTIFIER, "systemd")));
+        final List<String> expected = new ArrayList<>();
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            final JournalEntry entry = new JournalEntry();
+            journal.moveToEarliest();
+            while (journal.moveToNext())
+                {
+                journal.readEntry(entry);
+                final String transport = entry.getFieldAsString(JournalField.TRANSPORT);
+                final String message = entry.getFieldAsString(JournalField.MESSAGE);
+                final String priority = entry.getFieldAsString(JournalField.PRIORITY);
+                final String identifier = entry.getFieldAsString(JournalField.SYSLOG_IDENTIFIER);
+                if (("journal".equals(transport) || "stdout".equals(transport))
+                        && (message != null) && message.contains("e")
+                        && (priority != null) && (priority.compareTo("6") <= 0)
+                        && ((identifier == null) || !identifier.startsWith("systemd")))
+                    expected.add(entry.getFieldAsString(JournalField.MESSAGE));
+                }
+            }
+        assertFalse(expected.isEmpty());
+
+        final List<String> actual = new ArrayList<>();
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            final int count = journal.foreachMatching(query, null, null, Integer.MAX_VALUE, entry -> actual.add(entry.getFieldAsString(JournalField.MESSAGE)));
+            assertEquals(actual.size(), count);
+            }
+        assertEquals(expected, actual);
+        }
+
+    @Test
+    void restoresPreviousMatches() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.applyFilter(JournalFilter.match(JournalField.TRANSPORT, "stdout"));
+            final int before = countTransport(journal, "stdout");
+            journal.foreachMatching(JOURNAL, null, null, Integer.MAX_VALUE, entry -> assertEquals("journal", entry.getFieldAsString(JournalField.TRANSPORT)));
+            assertTrue(countTransport(journal, "stdout") >= before); // may have grown meanwhile
+            }
+        }
+
+    // count the entries passing the current matches, each expected to have the transport given.
+    private static int countTransport(final Journal journal, final String transport) throws JJournalException
+        {
+        final JournalEntry entry = new JournalEntry();
+        int count = 0x00;
+        journal.moveToEarliest();
+        while (journal.moveToNext())
+            {
+            journal.readEntry(entry);
+            assertEquals(transport, entry.getFieldAsString(JournalField.TRANSPORT));
+            count++;
+            }
+        return count;
+        }
+
+    @Test
+    void findsWrittenEntriesAndStopsEarly() throws JJournalException, IOException, InterruptedException
+        {
+        final String marker = UUID.randomUUID().toString();
+        for (int i = 0; i < 3; i++)
+            assumeTrue(new ProcessBuilder("systemd-cat", "-t", "jjournal-query", "echo", "query test "+marker+" "+i).inheritIO().start().waitFor() == 0x00, "systemd-cat could not write to the journal");
+        Thread.sleep(200);
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            final JournalQuery query = JournalQuery.contains(JournalField.MESSAGE, marker);
+            final List<String> found = new ArrayList<>();
+            assertEquals(3, journal.foreachMatching(query, null, null, Integer.MAX_VALUE, entry -> found.add(entry.getFieldAsString(JournalField.MESSAGE))));
+            assertEquals("query test "+marker+" 0", found.get(0));
+            assertEquals(2, journal.foreachMatching(query, null, null, 2, entry -> { }));
+            assertEquals(0, journal.foreachMatching(query, null, null, Integer.MAX_VALUE, entry -> // the entry ending the loop is not counted
+                { throw new JJournalException(JJournalException.ErrorCodes.CONSUMER_ENDING_LOOP); }));
+            }
+        }
+}
+//___EOF___
@@ -0,0 +1,123 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalStreamTest
+{
+    // timestamps of the entries in [start, end), read the plain way.
+    private static List<Long> timestamps(final Journal journal, final Instant start, final Instant end) throws JJournalException
+        {
+        final List<Long> result = new ArrayList<>();
+        journal.foreachInTimerange(start, end, Integer.MAX_VALUE, j -> result.add(j.getTimestampAsMicrosecondsLong()));
+        return result;
+        }
+
+    @Test
+    void sequentialStreamDeliversAllEntries() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToEarliest();
+            int count = 0;
+            while (journal.moveToNext())
+                count++;
+            try (Stream<JournalEntry> stream = journal.stream())
+                {
+                // entries may have been added in between
+                assertTrue(stream.count() >= count);
+                }
+            }
+        }
+
+    @Test
+    void parallelStreamMatchesSequential() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            final Period range = journal.getFirstAndLastInstant();
+            final Instant start = range.getFrom();
+            final Instant end = range.getUntil(); // fixed, so entries added during the test do not count
+            journal.moveToEarliest();
+            assertTrue(journal.moveToNext());
+            final List<Long> expected = timestamps(journal, start, end);
+
+            final List<Long> sequential;
+            try (Stream<JournalEntry> stream = journal.stream(start, end))
+                {
+                sequential = stream.map(JournalEntry::getTimestampAsMicrosecondsLong).collect(Collectors.toList());
+                }
+            assertEquals(expected, sequential);
+
+            final List<Long> parallel;
+            try (Stream<JournalEntry> stream = journal.stream(start, end).parallel())
+                {
+                parallel = stream.map(JournalEntry::getTimestampAsMicrosecondsLong).collect(Collectors.toList());
+                }
+            assertEquals(expected.size(), parallel.size());
+            assertEquals(expected.stream().sorted().collect(Collectors.toList()), parallel.stream().sorted().collect(Collectors.toList()));
+            }
+        }
+
+    @Test
+    void splitsCoverTheRange()
+        {
+        final JournalSpliterator root = new JournalSpliterator(() -> { throw new AssertionError("not to be opened"); }, 0x00, 64L * Journal.MILLION);
+        final JournalSpliterator prefix = (JournalSpliterator) root.trySplit();
+        assertNotNull(prefix);
+        assertEquals(32L * Journal.MILLION, prefix.estimateSize());
+        assertEquals(32L * Journal.MILLION, root.estimateSize());
+        final JournalSpliterator tiny = new JournalSpliterator(() -> null, 0x00, Journal.MILLION);
+        assertNull(tiny.trySplit());
+        }
+
+    @Test
+    void streamKeepsFilters() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToEarliest();
+            assertTrue(journal.moveToNext());
+            final String transport = journal.readFieldAsString(JournalField.TRANSPORT);
+            final Instant end = journal.getFirstAndLastInstant().getUntil();
+            journal.filteringAddFilterExpressionExactMatch(JournalField.TRANSPORT, transport);
+            journal.moveToEarliest();
+            assertTrue(journal.moveToNext());
+            final List<Long> expected = timestamps(journal, null, end);
+
+            try (Stream<JournalEntry> stream = journal.stream(null, end).parallel())
+                {
+                final List<JournalEntry> entries = stream.collect(Collectors.toList());
+                assertEquals(expected.size(), entries.size());
+                for (JournalEntry entry : entries)
+                    assertEquals(transport, entry.getFieldAsString(JournalField.TRANSPORT));
+                }
+            }
+        }
+
+    @Test
+    void shortCircuitAndClose() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToEarliest();
+            assertTrue(journal.moveToNext());
+            final long first = journal.getTimestampAsMicrosecondsLong();
+            try (Stream<JournalEntry> stream = journal.stream())
+                {
+                assertEquals(first, stream.findFirst().get().getTimestampAsMicrosecondsLong());
+                }
+            // the stream has not moved this journal
+            assertEquals(first, journal.getTimestampAsMicrosecondsLong());
+            }
+        }
+}
+//___EOF___
@@ -0,0 +1,178 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class JournalSubscriptionTest
+{
+    private static Journal openLocal()
+        { return new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)); }
+
+    // records the signals; runs on the calling thread with a direct executor.
+    private static class Recorder<T> implements JournalSubscription.Sink<T>
+    {
+        final List<T> items = new ArrayList<>();
+        Throwable failure;
+        boolean completed;
+
+        @Override
+        public void onNext(final T item)
+            { items.add(item); }
+
+        @Override
+        public void onError(final Throwable failure)
+            { this.failure = failure; }
+
+        @Override
+        public void onComplete()
+            { completed = true; }
+    }
+
+    @Test
+    void advancesOnlyOnDemand()
+        {
+        final AtomicInteger mapped = new AtomicInteger();
+        final Recorder<Long> sink = new Recorder<>();
+        final JournalSubscription<Long> subscription = new JournalSubscription<>(JournalSubscriptionTest::openLocal, journal ->
+            {
+            mapped.incrementAndGet();
+            return journal.getTimestampAsMicrosecondsLong();
+            }, null, null, false, Runnable::run, sink);
+
+        subscription.request(5);
+        assertEquals(5, sink.items.size());
+        assertEquals(5, mapped.get());
+        subscription.request(3);
+        assertEquals(8, sink.items.size());
+        assertEquals(8, mapped.get());
+        assertFalse(sink.completed);
+        subscription.cancel();
+        subscription.request(10);
+        assertEquals(8, mapped.get());
+        assertNull(sink.failure);
+        }
+
+    @Test
+    void timeRangeMatchesForeach()
+        {
+        final List<Long> expected = new ArrayList<>();
+        final Instant start;
+        final Instant end;
+        try (Journal journal = openLocal())
+            {
+            journal.moveToEarliest();
+            assertTrue(journal.moveToNext());
+            journal.skip(10);
+            start = journal.getTimestampAsInstant();
+            journal.skip(50);
+            end = journal.getTimestampAsInstant();
+            journal.foreachInTimerange(start, end, Integer.MAX_VALUE, j -> expected.add(j.getTimestampAsMicrosecondsLong()));
+            }
+        assertFalse(expected.isEmpty());
+
+        final Recorder<Long> sink = new Recorder<>();
+        final JournalSubscription<Long> subscription = new JournalSubscription<>(JournalSubscriptionTest::openLocal, Journal::getTimestampAsMicrosecondsLong, start, end, false, Runnable::run, sink);
+        subscription.request(Long.MAX_VALUE);
+        assertEquals(expected, sink.items);
+        assertTrue(sink.completed);
+        }
+
+    @Test
+    void requestFromWithinOnNext()
+        {
+        final List<Long> delivered = new ArrayList<>();
+        final JournalSubscription<?>[] self = new JournalSubscription<?>[1];
+        final JournalSubscription<Long> subscription = new JournalSubscription<>(JournalSubscriptionTest::openLocal, Journal::getTimestampAsMicrosecondsLong, null, null, false, Runnable::run, new Recorder<Long>()
+            {
+            @Override
+            public void onNext(final Long item)
+                {
+                delivered.add(item);
+                if (delivered.size() < 100)
+                    self[0].request(1); // must not recurse into the journal
+                }
+            });
+        self[0] = subscription;
+        subscription.request(1);
+        assertEquals(100, delivered.size());
+        }
+
+    @Test
+    void invalidRequestSignalsError()
+        {
+        final Recorder<Long> sink = new Recorder<>();
+        final JournalSubscription<Long> subscription = new JournalSubscription<>(JournalSubscriptionTest::openLocal, Journal::getTimestampAsMicrosecondsLong, null, null, false, Runnable::run, sink);
+        subscription.request(2);
+        subscription.request(0);
+        assertEquals(2, sink.items.size());
+        assertTrue(sink.failure instanceof IllegalArgumentException);
+        }
+
+    @Test
+    void mapperFailureSignalsError()
+        {
+        final Recorder<Long> sink = new Recorder<>();
+        final JournalSubscription<Long> subscription = new JournalSubscription<>(JournalSubscriptionTest::openLocal, journal ->
+            { throw new JJournalException(JJournalException.ErrorCodes.NO_SUCH_FIELD); }, null, null, false, Runnable::run, sink);
+        subscription.request(1);
+        assertTrue(sink.failure instanceof JJournalException);
+        assertTrue(sink.items.isEmpty());
+        }
+
+    @Test
+    void followDeliversNewEntries() throws IOException, InterruptedException
+        {
+        final String marker = "jjournal-publisher-"+UUID.randomUUID();
+        final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+            {
+            final JournalSubscription<String> subscription = new JournalSubscription<>(() ->
+                {
+                final Journal journal = openLocal();
+                journal.moveToLatest();
+                return journal;
+                }, Journal::readMessageField, null, null, true, executor, new Recorder<String>()
+                {
+                @Override
+                public void onNext(final String item)
+                    { received.add(item); }
+                });
+            subscription.request(Long.MAX_VALUE);
+            Thread.sleep(300);
+            final boolean written = new ProcessBuilder("systemd-cat", "-t", "jjournal-test", "echo", marker).inheritIO().start().waitFor() == 0x00;
+            if (!written)
+                subscription.cancel(); // so the executor can end
+            assumeTrue(written, "systemd-cat could not write to the journal");
+            String message;
+            do
+                {
+                message = received.poll(10, TimeUnit.SECONDS);
+                assertNotNull(message, "followed entry not delivered");
+                }
+            while (!marker.equals(message));
+            subscription.cancel();
+            }
+        finally
+            {
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+            }
+        }
+}
+//___EOF___
@@ -81,6 +81,63 @@ class JournalTimestampTest
             }
         }
 
+    @Test
+    public void seekingMatchesLinearPositions() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToEarliest();
+            assertTrue(journal.moveToNext());
+            journal.skip(50);
+            final long target = journal.getTimestampAsMicrosecondsLong();
+            final Instant targetInstant = journal.getTimestampAsInstant();
+
+            // forward: first entry at or after target, with its predecessor before it.
+            journal.moveToLatest();
+            assertTrue(journal.moveForwardUntilTime(targetInstant));
+            assertTrue(journal.getTimestampAsMicrosecondsLong() >= target);
+            if (journal.moveToPrevious())
+                assertTrue(journal.getTimestampAsMicrosecondsLong() < target);
+
+            // backward: last entry at or before target
+            journal.moveToEarliest();
+            assertTrue(journal.moveBackwardUntilLatestTime(targetInstant));
+            assertTrue(journal.getTimestampAsMicrosecondsLong() <= target);
+            if (journal.moveToNext())
+                assertTrue(journal.getTimestampAsMicrosecondsLong() > target);
+
+            // earliest entry not before target
+            journal.moveToLatest();
+            assertTrue(journal.moveBackwardUntilEarliestTime(targetInstant));
+            assertEquals(target, journal.getTimestampAsMicrosecondsLong());
+
+            // beyond the end, there is nothing to be found.
+            assertFalse(journal.moveForwardUntilTime(Instant.now().plusSeconds(3600)));
+            }
+        }
+
+    @Test
+    public void timerangeExcludesEndTime() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToEarliest();
+            assertTrue(journal.moveToNext());
+            journal.skip(10);
+            final Instant start = journal.getTimestampAsInstant();
+            journal.skip(20);
+            final Instant end = journal.getTimestampAsInstant();
+            final long endAsLong = journal.getTimestampAsMicrosecondsLong();
+
+            final int count = journal.foreachInTimerange(start, end, Integer.MAX_VALUE, jj ->
+                {
+                assertTrue(jj.getTimestampAsMicrosecondsLong() < endAsLong);
+                });
+            assertTrue(count > 0);
+            assertTrue(count <= 20);
+            }
+        }
+
     private void printMessagesFromTimeRange(Journal journal, Instant since, Instant until) throws JJournalException
         {
         journal.foreachInTimerange(since, until, 100, jj ->
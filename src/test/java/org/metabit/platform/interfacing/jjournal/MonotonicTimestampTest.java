@@ -0,0 +1,83 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MonotonicTimestampTest
+{
+    @Test
+    void bootIdMatchesField() throws JJournalException
+        {
+        final MonotonicTimestamp timestamp = new MonotonicTimestamp();
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToEarliest();
+            assertTrue(journal.moveToNext());
+            journal.readMonotonicTimestamp(timestamp);
+            assertEquals(journal.readFieldAsString(JournalField.BOOT_ID), timestamp.getBootIdAsString());
+            assertTrue(timestamp.isFromBoot(MonotonicTimestamp.parseBootId(timestamp.getBootIdAsString())));
+            }
+        }
+
+    @Test
+    void seekToBootTime() throws JJournalException
+        {
+        final MonotonicTimestamp target = new MonotonicTimestamp();
+        final MonotonicTimestamp found = new MonotonicTimestamp();
+        final MonotonicTimestamp from = new MonotonicTimestamp();
+        final MonotonicTimestamp until = new MonotonicTimestamp();
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToEarliest();
+            assertTrue(journal.moveToNext());
+            journal.skip(10);
+            journal.readMonotonicTimestamp(target);
+
+            assertTrue(journal.getBootTimeRange(target.getBootId(), from, until));
+            assertTrue(from.isSameBoot(target));
+            assertTrue(from.getMicroseconds() <= target.getMicroseconds());
+            assertTrue(target.getMicroseconds() <= until.getMicroseconds());
+
+            journal.moveToLatest();
+            assertTrue(journal.moveToBootTime(target));
+            journal.readMonotonicTimestamp(found);
+            assertTrue(found.isSameBoot(target));
+            assertEquals(target.getMicroseconds(), found.getMicroseconds());
+
+            assertTrue(journal.moveToBootTime(target.getBootId(), from.getSinceBoot()));
+            journal.readMonotonicTimestamp(found);
+            assertEquals(from.getMicroseconds(), found.getMicroseconds());
+
+            assertFalse(journal.moveToBootTime(target.getBootId(), until.getSinceBoot().plusSeconds(1)));
+            }
+        }
+
+    @Test
+    void unknownBoot() throws JJournalException
+        {
+        final MonotonicTimestamp from = new MonotonicTimestamp();
+        final MonotonicTimestamp until = new MonotonicTimestamp();
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            final UUID bootId = UUID.randomUUID();
+            assertFalse(journal.getBootTimeRange(bootId, from, until));
+            assertFalse(journal.moveToBootTime(bootId, Duration.ZERO));
+            }
+        }
+
+    @Test
+    void parseBootId()
+        {
+        final UUID id = UUID.fromString("0123abcd-4567-89ef-fedc-ba9876543210");
+        assertEquals(id, MonotonicTimestamp.parseBootId("0123abcd456789effedcba9876543210"));
+        assertEquals(id, MonotonicTimestamp.parseBootId(id.toString()));
+        assertEquals("0123abcd456789effedcba9876543210", new MonotonicTimestamp(id, 5).getBootIdAsString());
+        assertThrows(IllegalArgumentException.class, () -> MonotonicTimestamp.parseBootId("0123abcd456789effedcba987654321x"));
+        }
+}
+//___EOF___
@@ -0,0 +1,30 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class NativeBackendTest
+{
+    // a requested backend must not fall back silently; otherwise a run with e.g. -Dorg.metabit.jjournal.backend=ffm tests JNR-FFI.
+    @Test
+    void requestedBackendIsUsed() throws JJournalException
+        {
+        final String requested = System.getProperty(NativeBackend.BACKEND_PROPERTY);
+        assumeTrue(requested != null, "no backend requested");
+        assertEquals(requested, Journal.getNativeBackendName());
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToEarliest();
+            if (journal.moveToNext())
+                {
+                assertNotNull(journal.getCursorRaw());
+                assertTrue(journal.getTimestampAsMicrosecondsLong() > 0x00);
+                }
+            }
+        }
+}
+//___EOF___
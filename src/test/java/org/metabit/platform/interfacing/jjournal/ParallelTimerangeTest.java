@@ -0,0 +1,117 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelTimerangeTest
+{
+    private static ExecutorService executor;
+
+    @BeforeAll
+    static void startExecutor()
+        {
+        executor = Executors.newFixedThreadPool(8);
+        }
+
+    @AfterAll
+    static void stopExecutor() throws InterruptedException
+        {
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+    // the timestamps of the whole journal, as of now, read sequentially; and the end of that range.
+    private static List<Long> sequential(final Journal journal, final Instant[] end) throws JJournalException
+        {
+        final List<Long> result = new ArrayList<>();
+        final Period range = journal.getFirstAndLastInstant();
+        end[0] = range.getUntil();
+        journal.moveToEarliest();
+        assertTrue(journal.moveToNext());
+        journal.foreachInTimerange(range.getFrom(), end[0], Integer.MAX_VALUE, j -> result.add(j.getTimestampAsMicrosecondsLong()));
+        return result;
+        }
+
+    @Test
+    void orderedMatchesSequential() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            final Instant[] end = new Instant[1];
+            final List<Long> expected = sequential(journal, end);
+            for (int slices : new int[] { 1, 3, 16 })
+                {
+                final List<Long> actual = new ArrayList<>();
+                final int count = journal.foreachInTimerangeParallel(null, end[0], slices, executor, true, entry -> actual.add(entry.getTimestampAsMicrosecondsLong()));
+                assertEquals(expected.size(), count);
+                assertEquals(expected, actual, "slices: "+slices);
+                }
+            }
+        }
+
+    @Test
+    void unorderedDeliversTheSameEntries() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            final Instant[] end = new Instant[1];
+            final List<Long> expected = sequential(journal, end);
+            final List<Long> actual = new ArrayList<>();
+            journal.foreachInTimerangeParallel(null, end[0], 8, executor, false, entry -> actual.add(entry.getTimestampAsMicrosecondsLong()));
+            Collections.sort(expected);
+            Collections.sort(actual);
+            assertEquals(expected, actual);
+            }
+        }
+
+    @Test
+    void consumerEndsLoop() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            final int[] seen = new int[1];
+            final int count = journal.foreachInTimerangeParallel(null, null, 4, executor, true, entry ->
+                {
+                if (++seen[0] > 10)
+                    throw new JJournalException(JJournalException.ErrorCodes.CONSUMER_ENDING_LOOP);
+                });
+            assertEquals(10, count);
+            }
+        }
+
+    @Test
+    void consumerFailurePassedOn() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            final JJournalException thrown = assertThrows(JJournalException.class, () -> journal.foreachInTimerangeParallel(null, null, 4, executor, false, entry ->
+                { throw new JJournalException(JJournalException.ErrorCodes.NO_SUCH_FIELD); }));
+            assertEquals(JJournalException.ErrorCodes.NO_SUCH_FIELD, thrown.getCode());
+            assertThrows(IllegalArgumentException.class, () -> journal.foreachInTimerangeParallel(null, null, 0, executor, false, entry -> { }));
+            }
+        }
+
+    @Test
+    void callerRunningExecutorRejected() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            // a worker on the calling thread would block on its full queue forever; it must fail instead.
+            for (boolean ordered : new boolean[] { true, false })
+                assertThrows(IllegalStateException.class, () -> journal.foreachInTimerangeParallel(null, null, 4, Runnable::run, ordered, entry -> { }));
+            }
+        }
+}
+//___EOF___
@@ -0,0 +1,101 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PrefetchingBatchReaderTest
+{
+    private static final FieldProjection PROJECTION = FieldProjection.of(JournalField.MESSAGE, JournalField.PRIORITY);
+
+    @Test
+    void deliversSameEntriesAsDirectReads() throws JJournalException
+        {
+        final List<String> expected = new ArrayList<>();
+        final List<Long> expectedTimes = new ArrayList<>();
+        final EntryBatch direct = new EntryBatch();
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToEarliest();
+            while ((expected.size() < 2000) && (journal.readBatch(direct, 100, PROJECTION) > 0))
+                for (int row = 0; row < direct.size(); row++)
+                    {
+                    expected.add(direct.getValueAsString(0, row));
+                    expectedTimes.add(direct.getTimestampAsMicrosecondsLong(row));
+                    }
+            }
+
+        final List<String> actual = new ArrayList<>();
+        final List<Long> actualTimes = new ArrayList<>();
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToEarliest();
+            try (PrefetchingBatchReader reader = journal.prefetchBatches(PROJECTION, 100, 3, false))
+                {
+                while ((actual.size() < expected.size()) && reader.hasNext())
+                    {
+                    final EntryBatch batch = reader.next();
+                    assertTrue(batch.size() > 0);
+                    for (int row = 0; row < batch.size(); row++)
+                        {
+                        actual.add(batch.getValueAsString(0, row));
+                        actualTimes.add(batch.getTimestampAsMicrosecondsLong(row));
+                        }
+                    }
+                }
+            }
+        assertEquals(expected, actual);
+        assertEquals(expectedTimes, actualTimes);
+        }
+
+    @Test
+    void endsAndCloses() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToLatest();
+            journal.skip(-50);
+            final PrefetchingBatchReader reader = journal.prefetchBatches(PROJECTION, 16);
+            int count = 0;
+            while (reader.hasNext())
+                count += reader.next().size();
+            assertTrue(count > 0);
+            assertFalse(reader.hasNext());
+            assertThrows(NoSuchElementException.class, reader::next);
+            reader.close();
+            // the handle is usable again after the reader is closed
+            journal.moveToEarliest();
+            assertTrue(journal.moveToNext());
+            }
+        }
+
+    @Test
+    void earlyCloseStopsReader() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToEarliest();
+            final PrefetchingBatchReader reader = journal.prefetchBatches(PROJECTION, 8, 2, true);
+            assertTrue(reader.hasNext());
+            assertNotNull(reader.next().getCursor(0));
+            reader.close(); // the reader thread is blocked on the full pool; must end anyway
+            assertFalse(reader.hasNext());
+            }
+        }
+
+    @Test
+    void invalidArguments()
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            assertThrows(IllegalArgumentException.class, () -> journal.prefetchBatches(PROJECTION, 0));
+            assertThrows(IllegalArgumentException.class, () -> journal.prefetchBatches(PROJECTION, 10, 1, false));
+            }
+        }
+}
+//___EOF___
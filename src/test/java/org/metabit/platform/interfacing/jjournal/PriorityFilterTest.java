@@ -0,0 +1,64 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PriorityFilterTest
+{
+    @Test
+    void rangeIsOneOrGroup()
+        {
+        final JournalFilter warnings = JournalFilter.priorityRange(0, 4);
+        assertEquals("PRIORITY=(0|1|2|3|4)", warnings.toString());
+        assertEquals(5, warnings.getMatchCount());
+        assertSame(warnings, JournalFilter.priorityRange(0, 4));
+        assertEquals(warnings, JournalFilter.oneOf(JournalField.PRIORITY, "4", "3", "2", "1", "0"));
+        // combined with another field, still one term
+        assertEquals("PRIORITY=(0|1|2|3|4) + _TRANSPORT=journal", warnings.and(JournalFilter.match(JournalField.TRANSPORT, "journal")).toString());
+        assertThrows(IllegalArgumentException.class, () -> JournalFilter.priorityRange(-1, 3));
+        assertThrows(IllegalArgumentException.class, () -> JournalFilter.priorityRange(5, 4));
+        assertThrows(IllegalArgumentException.class, () -> JournalFilter.oneOf(JournalField.PRIORITY));
+        }
+
+    @Test
+    void filteredEntriesAndReadPriority() throws JJournalException
+        {
+        final List<String> expected = new ArrayList<>();
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            final JournalEntry entry = new JournalEntry();
+            journal.moveToEarliest();
+            while (journal.moveToNext())
+                {
+                journal.readEntry(entry);
+                final String priority = entry.getFieldAsString(JournalField.PRIORITY);
+                assertEquals((priority == null) ? -1 : Integer.parseInt(priority), journal.readPriority());
+                final String transport = entry.getFieldAsString(JournalField.TRANSPORT);
+                if ((priority != null) && (Integer.parseInt(priority) >= 5) && (Integer.parseInt(priority) <= 6)
+                        && ("journal".equals(transport) || "stdout".equals(transport)))
+                    expected.add(journal.getCursorRaw());
+                }
+            }
+        assertFalse(expected.isEmpty());
+
+        final List<String> actual = new ArrayList<>();
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.applyFilter(JournalFilter.priorityRange(5, 6).and(JournalFilter.oneOf(JournalField.TRANSPORT, "journal", "stdout")));
+            journal.moveToEarliest();
+            while (journal.moveToNext())
+                {
+                final int priority = journal.readPriority();
+                assertTrue((priority >= 5) && (priority <= 6));
+                actual.add(journal.getCursorRaw());
+                }
+            }
+        assertEquals(expected, actual);
+        }
+}
+//___EOF___
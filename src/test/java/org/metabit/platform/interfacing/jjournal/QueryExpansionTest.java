@@ -0,0 +1,89 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.EnumSet;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class QueryExpansionTest
+{
+    private static final String PREFIX = "jjq-" + UUID.randomUUID().toString().substring(0, 8) + "-";
+
+    @BeforeAll
+    static void writeEntries() throws IOException, InterruptedException
+        {
+        for (String suffix : new String[] { "a1", "a2", "b1", "ä1" })
+            assumeTrue(new ProcessBuilder("systemd-cat", "-t", PREFIX + suffix, "echo", "expansion test").inheritIO().start().waitFor() == 0x00, "systemd-cat could not write to the journal");
+        Thread.sleep(200);
+        }
+
+    private static int count(final Journal journal, final JournalQuery query)
+        {
+        return journal.foreachMatching(query, null, null, Integer.MAX_VALUE, entry -> { });
+        }
+
+    @Test
+    void globExpandsToNativeMatches() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            final JournalQuery query = JournalQuery.glob(JournalField.SYSLOG_IDENTIFIER, PREFIX + "a?");
+            assertTrue(query.hasResidual());
+            final JournalQuery resolved = query.resolve(journal);
+            assertFalse(resolved.hasResidual());
+            assertEquals(2, resolved.getNativeFilter().getMatchCount());
+            assertEquals(2, count(journal, query));
+            // '?' is one character, also if it takes two bytes
+            assertEquals(3, count(journal, JournalQuery.glob(JournalField.SYSLOG_IDENTIFIER, PREFIX + "?1")));
+            assertEquals(4, count(journal, JournalQuery.glob(JournalField.SYSLOG_IDENTIFIER, PREFIX + "*")));
+            assertEquals(0, count(journal, JournalQuery.glob(JournalField.SYSLOG_IDENTIFIER, PREFIX + "a\\?")));
+            }
+        }
+
+    @Test
+    void prefixExpandsAndCombines() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            final JournalQuery query = JournalQuery.startsWith(JournalField.SYSLOG_IDENTIFIER, PREFIX + "a")
+                    .and(JournalQuery.contains(JournalField.MESSAGE, "expansion"));
+            final JournalQuery resolved = query.resolve(journal);
+            assertEquals(2, resolved.getNativeFilter().getMatchCount());
+            assertTrue(resolved.hasResidual());
+            assertEquals(2, count(journal, query));
+            assertEquals(2, count(journal, JournalQuery.not(JournalQuery.startsWith(JournalField.SYSLOG_IDENTIFIER, PREFIX + "a"))
+                    .and(JournalQuery.startsWith(JournalField.SYSLOG_IDENTIFIER, PREFIX))));
+            }
+        }
+
+    @Test
+    void overLimitStaysResidual() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            final JournalQuery query = JournalQuery.startsWith(JournalField.SYSLOG_IDENTIFIER, PREFIX, 2);
+            final JournalQuery resolved = query.resolve(journal);
+            assertTrue(resolved.hasResidual());
+            assertTrue(resolved.getNativeFilter().isAll());
+            assertEquals(4, count(journal, query));
+            }
+        }
+
+    @Test
+    void noValuesIsNativeNothing() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            final JournalQuery resolved = JournalQuery.glob(JournalField.SYSLOG_IDENTIFIER, PREFIX + "zz*").resolve(journal);
+            assertFalse(resolved.hasResidual());
+            assertEquals(1, resolved.getNativeFilter().getMatchCount());
+            assertEquals(0, count(journal, resolved));
+            }
+        }
+}
+//___EOF___
@@ -0,0 +1,61 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class ReadLatestTest
+{
+    private static final FieldProjection PROJECTION = FieldProjection.of(JournalField.MESSAGE);
+
+    @Test
+    void matchesBackwardIteration() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            final EntryBatch batch = new EntryBatch(true);
+            final int count = journal.readLatest(batch, 200, PROJECTION);
+            assertEquals(200, count);
+
+            final List<String> expected = new ArrayList<>();
+            journal.moveToLatest();
+            while ((expected.size() < count) && journal.moveToPrevious())
+                expected.add(journal.getCursorRaw());
+            Collections.reverse(expected);
+            for (int row = 0; row < count; row++)
+                assertEquals(expected.get(row), batch.getCursor(row));
+            for (int row = 1; row < count; row++)
+                assertTrue(batch.getTimestampAsMicrosecondsLong(row - 1) <= batch.getTimestampAsMicrosecondsLong(row));
+            }
+        }
+
+    @Test
+    void fewerMatchesThanRequested() throws JJournalException, IOException, InterruptedException
+        {
+        final String tag = "jjournal-latest-"+UUID.randomUUID();
+        for (int i = 0; i < 3; i++)
+            assumeTrue(new ProcessBuilder("systemd-cat", "-t", tag, "echo", "line "+i).inheritIO().start().waitFor() == 0x00, "systemd-cat could not write to the journal");
+        Thread.sleep(200);
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.filteringAddFilterExpressionExactMatch(JournalField.SYSLOG_IDENTIFIER, tag);
+            final EntryBatch batch = new EntryBatch();
+            assertEquals(3, journal.readLatest(batch, 10, PROJECTION));
+            for (int i = 0; i < 3; i++)
+                assertEquals("line "+i, batch.getValueAsString(0, i));
+            assertEquals(2, journal.readLatest(batch, 2, PROJECTION));
+            assertEquals("line 1", batch.getValueAsString(0, 0));
+            assertEquals("line 2", batch.getValueAsString(0, 1));
+            assertEquals(0, journal.readLatest(batch, 0, PROJECTION));
+            }
+        }
+}
+//___EOF___
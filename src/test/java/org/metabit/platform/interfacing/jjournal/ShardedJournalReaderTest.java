@@ -0,0 +1,112 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+class ShardedJournalReaderTest
+{
+    private static ExecutorService executor;
+
+    @BeforeAll
+    static void startExecutor()
+        {
+        executor = Executors.newCachedThreadPool();
+        }
+
+    @AfterAll
+    static void stopExecutor() throws InterruptedException
+        {
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+    @Test
+    void mergedOrderMatchesJournal() throws JJournalException
+        {
+        final ShardedJournalReader reader = ShardedJournalReader.ofLocalJournals();
+        assumeFalse(reader.getFiles().isEmpty(), "no local journal files");
+        final List<Long> expected = new ArrayList<>();
+        final Instant end;
+        try (Journal journal = new Journal(reader.getFiles()))
+            {
+            end = journal.getFirstAndLastInstant().getUntil(); // fixed, so entries added during the test do not count
+            journal.moveToEarliest();
+            while (journal.moveToNext() && journal.getTimestampAsMicrosecondsLong() < Journal.instantToMicroseconds(end))
+                expected.add(journal.getTimestampAsMicrosecondsLong());
+            }
+        final List<Long> merged = new ArrayList<>();
+        final int count = reader.foreachInTimerange(null, end, executor, entry -> merged.add(entry.getTimestampAsMicrosecondsLong()));
+        assertEquals(merged.size(), count);
+        assertEquals(expected, merged);
+        }
+
+    @Test
+    void filtersAreApplied() throws JJournalException
+        {
+        final ShardedJournalReader reader = ShardedJournalReader.ofDirectory(Paths.get(ShardedJournalReader.RUNTIME_JOURNAL_DIRECTORY));
+        assumeFalse(reader.getFiles().isEmpty(), "no runtime journal files");
+        try (Journal journal = new Journal(reader.getFiles()))
+            {
+            journal.moveToEarliest();
+            assertTrue(journal.moveToNext());
+            final String transport = journal.readFieldAsString(JournalField.TRANSPORT);
+            journal.filteringAddFilterExpressionExactMatch(JournalField.TRANSPORT, transport);
+            reader.setFiltersFrom(journal);
+            final int[] seen = new int[1];
+            reader.foreachInTimerange(null, null, executor, entry ->
+                {
+                assertEquals(transport, entry.getFieldAsString(JournalField.TRANSPORT));
+                if (++seen[0] == 100)
+                    throw new JJournalException(JJournalException.ErrorCodes.CONSUMER_ENDING_LOOP);
+                });
+            assertTrue(seen[0] > 0);
+            }
+        }
+
+    @Test
+    void sequenceNumberMatchesCursor() throws JJournalException
+        {
+        final long[] sequenceId = new long[2];
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToEarliest();
+            for (int i = 0; (i < 50) && journal.moveToNext(); i++)
+                {
+                final long sequenceNumber = journal.readSequenceNumber(sequenceId);
+                final String cursor = journal.getCursorRaw();
+                final String[] parts = cursor.split(";");
+                assertEquals("s="+String.format("%016x%016x", sequenceId[0], sequenceId[1]), parts[0]);
+                assertEquals("i="+Long.toHexString(sequenceNumber), parts[1]);
+                }
+            }
+        }
+
+    @Test
+    void emptyFileList() throws JJournalException
+        {
+        assertEquals(0, new ShardedJournalReader(new ArrayList<>()).foreachInTimerange(null, null, executor, entry -> fail("no entries expected")));
+        }
+
+    @Test
+    void callerRunningExecutorRejected() throws JJournalException
+        {
+        final ShardedJournalReader reader = ShardedJournalReader.ofLocalJournals();
+        assumeFalse(reader.getFiles().isEmpty(), "no local journal files");
+        // a file task on the calling thread would block on its full queue forever; it must fail instead.
+        assertThrows(IllegalStateException.class, () -> reader.foreachInTimerange(null, null, Runnable::run, entry -> { }));
+        }
+}
+//___EOF___
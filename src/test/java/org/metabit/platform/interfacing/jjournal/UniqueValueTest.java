@@ -0,0 +1,80 @@
+package org.metabit.platform.interfacing.jjournal;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UniqueValueTest
+{
+    @Test
+    void matchesFullScan() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            final Set<String> scanned = new HashSet<>();
+            journal.moveToEarliest();
+            while (journal.moveToNext())
+                {
+                try
+                    {
+                    scanned.add(journal.readFieldAsString(JournalField.SYSLOG_IDENTIFIER));
+                    }
+                catch (JJournalException notPresent)
+                    {
+                    // entries without the field
+                    }
+                }
+            assertFalse(scanned.isEmpty());
+
+            final Set<String> unique = new HashSet<>();
+            final int count = journal.foreachUniqueValueAsString(JournalField.SYSLOG_IDENTIFIER, unique::add);
+            assertEquals(scanned, unique);
+            assertTrue(count >= unique.size());
+
+            final List<String> viewed = new ArrayList<>();
+            journal.foreachUniqueValue("SYSLOG_IDENTIFIER", view ->
+                {
+                assertTrue(view.isValid());
+                viewed.add(view.toString());
+                });
+            assertEquals(unique, new HashSet<>(viewed));
+            }
+        }
+
+    @Test
+    void consumerEndsLoop() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            final int count = journal.foreachUniqueValueAsString(JournalField.SYSLOG_IDENTIFIER, value ->
+                {
+                throw new JJournalException(JJournalException.ErrorCodes.CONSUMER_ENDING_LOOP);
+                });
+            assertEquals(0, count);
+            final FieldView[] kept = new FieldView[1];
+            assertEquals(0, journal.foreachUniqueValue(JournalField.SYSLOG_IDENTIFIER, view ->
+                {
+                kept[0] = view;
+                throw new JJournalException(JJournalException.ErrorCodes.CONSUMER_ENDING_LOOP);
+                }));
+            journal.moveToEarliest();
+            assertFalse(kept[0].isValid());
+            }
+        }
+
+    @Test
+    void unknownFieldHasNoValues() throws JJournalException
+        {
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            assertEquals(0, journal.foreachUniqueValueAsString("NO_SUCH_FIELD_IN_THIS_JOURNAL", value -> fail(value)));
+            }
+        }
+}
+//___EOF___
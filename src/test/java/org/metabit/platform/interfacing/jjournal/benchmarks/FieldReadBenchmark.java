@@ -0,0 +1,98 @@
+package org.metabit.platform.interfacing.jjournal.benchmarks;
+
+import org.metabit.platform.interfacing.jjournal.CompiledField;
+import org.metabit.platform.interfacing.jjournal.JJournalException;
+import org.metabit.platform.interfacing.jjournal.Journal;
+import org.metabit.platform.interfacing.jjournal.JournalField;
+import org.metabit.platform.interfacing.jjournal.OpenFlags;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * per-field read cost and allocation, on a fixed entry of the local journal.
+ * run with the test classpath, e.g. via main(); the gc profiler reports gc.alloc.rate.norm as bytes per read.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FieldReadBenchmark
+{
+    private Journal journal;
+    private ByteBuffer buffer;
+    private CompiledField compiledMessage;
+
+    @Setup
+    public void open() throws JJournalException
+        {
+        journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY));
+        journal.moveToEarliest();
+        if (!journal.moveToNext())
+            throw new IllegalStateException("benchmark needs a journal with entries");
+        buffer = ByteBuffer.allocate(65536);
+        compiledMessage = CompiledField.of("MESSAGE");
+        }
+
+    @TearDown
+    public void close()
+        {
+        journal.close();
+        }
+
+    @Benchmark
+    public String readFieldAsStringByEnum() throws JJournalException
+        {
+        return journal.readFieldAsString(JournalField.MESSAGE);
+        }
+
+    @Benchmark
+    public String readFieldAsStringByName() throws JJournalException
+        {
+        return journal.readFieldAsString("MESSAGE");
+        }
+
+    @Benchmark
+    public String readFieldAsStringByCompiledField() throws JJournalException
+        {
+        return journal.readFieldAsString(compiledMessage);
+        }
+
+    @Benchmark
+    public byte[] readFieldAsByteArray() throws JJournalException
+        {
+        return journal.readFieldAsByteArray(JournalField.MESSAGE);
+        }
+
+    @Benchmark
+    public int readDataToBuffer() throws JJournalException
+        {
+        ((java.nio.Buffer) buffer).clear();
+        journal.readDataToBuffer("MESSAGE", buffer);
+        return buffer.limit();
+        }
+
+    @Benchmark
+    public int getDataSize() throws JJournalException
+        {
+        return journal.getDataSize("MESSAGE");
+        }
+
+    public static void main(String[] args) throws RunnerException
+        {
+        Options options = new OptionsBuilder()
+                .include(FieldReadBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+        }
+}
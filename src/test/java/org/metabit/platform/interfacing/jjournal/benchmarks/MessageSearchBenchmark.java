@@ -0,0 +1,133 @@
+package org.metabit.platform.interfacing.jjournal.benchmarks;
+
+import org.metabit.platform.interfacing.jjournal.CompiledField;
+import org.metabit.platform.interfacing.jjournal.FieldSearch;
+import org.metabit.platform.interfacing.jjournal.FieldView;
+import org.metabit.platform.interfacing.jjournal.JJournalException;
+import org.metabit.platform.interfacing.jjournal.Journal;
+import org.metabit.platform.interfacing.jjournal.JournalField;
+import org.metabit.platform.interfacing.jjournal.OpenFlags;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * grep over MESSAGE: FieldSearch on the raw bytes, against decoding each message and searching the String.
+ * The substring scan is chosen per JVM, so main() runs the word-wide scan and the bytewise one in forks of their own.
+ * Entries without MESSAGE are skipped by all variants alike.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MessageSearchBenchmark
+{
+    private static final String[] NEEDLES = {"error", "failed", "timeout"};
+    private static final String REGEX = "(error|failed|timeout)[^a-z]";
+
+    @Param({"swar"})
+    public String scan;
+
+    private Journal journal;
+    private CompiledField message;
+    private FieldView view;
+    private FieldSearch substrings;
+    private FieldSearch regex;
+    private Pattern pattern;
+
+    @Setup
+    public void open() throws JJournalException
+        {
+        journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY));
+        message = CompiledField.of(JournalField.MESSAGE);
+        view = new FieldView();
+        substrings = FieldSearch.forSubstrings(NEEDLES);
+        regex = FieldSearch.forRegex(REGEX);
+        pattern = Pattern.compile(REGEX);
+        journal.moveToEarliest();
+        }
+
+    @TearDown
+    public void close()
+        {
+        journal.close();
+        }
+
+    // wrap around at the end, and stop at entries with MESSAGE.
+    private void next() throws JJournalException
+        {
+        while (true)
+            {
+            if (!journal.moveToNext())
+                {
+                journal.moveToEarliest();
+                if (!journal.moveToNext())
+                    throw new IllegalStateException("benchmark needs a journal with entries");
+                }
+            try
+                {
+                journal.getDataSize(message);
+                return;
+                }
+            catch (JJournalException ex)
+                {
+                // no MESSAGE; skip
+                }
+            }
+        }
+
+    @Benchmark
+    public boolean stringContains() throws JJournalException
+        {
+        next();
+        final String text = journal.readMessageField();
+        for (String needle : NEEDLES)
+            if (text.contains(needle))
+                return true;
+        return false;
+        }
+
+    @Benchmark
+    public boolean viewSubstrings() throws JJournalException
+        {
+        next();
+        journal.readFieldView(message, view);
+        return substrings.matches(view);
+        }
+
+    @Benchmark
+    public boolean stringPattern() throws JJournalException
+        {
+        next();
+        return pattern.matcher(journal.readMessageField()).find();
+        }
+
+    @Benchmark
+    public boolean viewRegex() throws JJournalException
+        {
+        next();
+        journal.readFieldView(message, view);
+        return regex.matches(view);
+        }
+
+    public static void main(String[] args) throws RunnerException
+        {
+        for (String scan : new String[]{"swar", "scalar"})
+            {
+            Options options = new OptionsBuilder()
+                    .include(MessageSearchBenchmark.class.getSimpleName())
+                    .param("scan", scan)
+                    .jvmArgsAppend("-Dorg.metabit.jjournal.search=" + scan)
+                    .build();
+            new Runner(options).run();
+            }
+        }
+}
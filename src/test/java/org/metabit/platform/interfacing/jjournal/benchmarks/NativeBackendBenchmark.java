@@ -0,0 +1,108 @@
+package org.metabit.platform.interfacing.jjournal.benchmarks;
+
+import org.metabit.platform.interfacing.jjournal.CompiledField;
+import org.metabit.platform.interfacing.jjournal.FieldView;
+import org.metabit.platform.interfacing.jjournal.JJournalException;
+import org.metabit.platform.interfacing.jjournal.Journal;
+import org.metabit.platform.interfacing.jjournal.JournalField;
+import org.metabit.platform.interfacing.jjournal.OpenFlags;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JNR-FFI against java.lang.foreign: the per-entry cost of moving to the next entry and reading from it.
+ * The backend is chosen per JVM, so main() runs each one in forks of its own.
+ * The ffm variant needs Java 22 or later, with the multi-release classes first on the class path, e.g.
+ * java -cp target/classes/META-INF/versions/22:target/classes:target/test-classes:... NativeBackendBenchmark
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NativeBackendBenchmark
+{
+    @Param({"jnr"})
+    public String backend;
+
+    private Journal journal;
+    private CompiledField message;
+    private FieldView view;
+
+    @Setup
+    public void open() throws JJournalException
+        {
+        if (!backend.equals(Journal.getNativeBackendName()))
+            throw new IllegalStateException("expected backend " + backend + ", got " + Journal.getNativeBackendName());
+        journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY));
+        message = CompiledField.of(JournalField.MESSAGE);
+        view = new FieldView();
+        journal.moveToEarliest();
+        }
+
+    @TearDown
+    public void close()
+        {
+        journal.close();
+        }
+
+    // wrap around at the end, so the loop runs for as long as JMH wants.
+    private void next() throws JJournalException
+        {
+        if (!journal.moveToNext())
+            {
+            journal.moveToEarliest();
+            if (!journal.moveToNext())
+                throw new IllegalStateException("benchmark needs a journal with entries");
+            }
+        }
+
+    @Benchmark
+    public int nextOnly() throws JJournalException
+        {
+        next();
+        return 0;
+        }
+
+    @Benchmark
+    public long nextAndTimestamp() throws JJournalException
+        {
+        next();
+        return journal.getTimestampAsMicrosecondsLong();
+        }
+
+    @Benchmark
+    public int nextAndReadView() throws JJournalException
+        {
+        next();
+        journal.readFieldView(message, view);
+        return view.length();
+        }
+
+    @Benchmark
+    public String nextAndReadString() throws JJournalException
+        {
+        next();
+        return journal.readFieldAsString(message);
+        }
+
+    public static void main(String[] args) throws RunnerException
+        {
+        for (String backend : new String[]{"jnr", "ffm"})
+            {
+            Options options = new OptionsBuilder()
+                    .include(NativeBackendBenchmark.class.getSimpleName())
+                    .param("backend", backend)
+                    .jvmArgsAppend("-Dorg.metabit.jjournal.backend=" + backend, "--enable-native-access=ALL-UNNAMED")
+                    .build();
+            new Runner(options).run();
+            }
+        }
+}
@@ -0,0 +1,30 @@
+package org.metabit.platform.interfacing.jjournal.benchmarks;
+
+import org.metabit.platform.interfacing.jjournal.JJournalException;
+import org.metabit.platform.interfacing.jjournal.Journal;
+import org.metabit.platform.interfacing.jjournal.JournalField;
+import org.metabit.platform.interfacing.jjournal.OpenFlags;
+
+import java.util.EnumSet;
+
+/**
+ * time-to-first-entry of a fresh JVM: from main() to the first MESSAGE read, including library loading and binding.
+ * Start it in a new JVM for each measurement, e.g. in a shell loop; pass -Dorg.metabit.jjournal.backend=... to compare backends.
+ * Total process time (e.g. via time) adds JVM startup, which is where AppCDS helps.
+ */
+public class StartupTime
+{
+    public static void main(String[] args) throws JJournalException
+        {
+        final long start = System.nanoTime();
+        final String message;
+        try (Journal journal = new Journal(EnumSet.of(OpenFlags.LOCAL_ONLY)))
+            {
+            journal.moveToEarliest();
+            journal.moveToNext();
+            message = journal.readFieldAsString(JournalField.MESSAGE);
+            }
+        final long end = System.nanoTime();
+        System.out.println(Journal.getNativeBackendName() + ": first entry after " + (end - start) / 1000000.0 + " ms (" + message.length() + " chars)");
+        }
+}